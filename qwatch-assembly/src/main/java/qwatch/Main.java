@@ -6,7 +6,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qwatch.jenkins.command.JenkinsExportCommand;
 import qwatch.logs.command.CollectCommand;
+import qwatch.logs.command.FetchCommand;
 import qwatch.logs.command.StatsCommand;
+import qwatch.logs.command.WatchCommand;
+import qwatch.logs.io.CollectPipeline;
+import qwatch.logs.io.DayFileFormat;
 
 /**
  * @author Mincong Huang
@@ -20,16 +24,42 @@ public class Main {
     if (args.length < 1) {
       logger.warn("qwatch <command>");
       logger.warn("qwatch collect");
+      logger.warn("qwatch watch [--catalog FILE]");
+      logger.warn("qwatch fetch [--from DATE] [--to DATE]");
       logger.warn("qwatch stats <topN>");
       System.exit(-1);
     }
     var command = args[0];
+    // New day files are segments, scanned off-heap by stats; existing ones are read in any format
+    var pipeline = CollectPipeline.newBuilder().format(DayFileFormat.SEGMENT).build();
     if (CollectCommand.NAME.equals(command)) {
       logger.info("Received command '{}'", command);
       CollectCommand.newBuilder() //
           .logDir(Paths.get("/Users/mincong/Downloads"))
+          .pipeline(pipeline)
           .build()
           .execute();
+    } else if (WatchCommand.NAME.equals(command)) {
+      logger.info("Received command '{}'", command);
+      var parsed = WatchCommand.parse(Arrays.copyOfRange(args, 1, args.length));
+      if (parsed.isLeft()) {
+        logger.error("Failed to parse command '" + WatchCommand.NAME + "'", parsed.getLeft());
+      } else {
+        parsed
+            .get() //
+            .logDir(Paths.get("/Users/mincong/Downloads"))
+            .pipeline(pipeline)
+            .build()
+            .execute();
+      }
+    } else if (FetchCommand.NAME.equals(command)) {
+      logger.info("Received command '{}'", command);
+      var parsed = FetchCommand.parse(Arrays.copyOfRange(args, 1, args.length));
+      if (parsed.isLeft()) {
+        logger.error("Failed to parse command '" + FetchCommand.NAME + "'", parsed.getLeft());
+      } else {
+        parsed.get().pipeline(pipeline).build().execute();
+      }
     } else if (StatsCommand.NAME.equals(command)) {
       logger.info("Received command '{}'", command);
       var parsed = StatsCommand.parse(Arrays.copyOfRange(args, 1, args.length));
@@ -1,17 +1,10 @@
 package qwatch.logs.command;
 
-import io.vavr.collection.Map;
-import io.vavr.collection.SortedSet;
-import io.vavr.collection.TreeSet;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import qwatch.logs.io.CsvImporter;
-import qwatch.logs.io.JsonExporter;
-import qwatch.logs.io.JsonImporter;
-import qwatch.logs.model.LogEntry;
+import qwatch.logs.io.CollectPipeline;
 
 /**
  * Collect command.
@@ -30,6 +23,8 @@ public class CollectCommand implements Command<Void> {
 
   public static class Builder implements CommandBuilder<CollectCommand> {
     private Path logDir;
+    private Path destDir = Paths.get("/Users/mincong/datadog");
+    private CollectPipeline pipeline;
 
     private Builder() {}
 
@@ -44,6 +39,30 @@ public class CollectCommand implements Command<Void> {
       return this;
     }
 
+    /**
+     * The directory path where log entries (JSON) are stored, one file per day.
+     *
+     * @param destDir destination directory
+     * @return this
+     */
+    public Builder destDir(Path destDir) {
+      this.destDir = destDir;
+      return this;
+    }
+
+    /**
+     * Sets the pipeline collecting the logs, to tune its parallelism and memory usage.
+     *
+     * <p>By default, a pipeline with the default settings of {@link CollectPipeline.Builder}.
+     *
+     * @param pipeline collect pipeline
+     * @return this
+     */
+    public Builder pipeline(CollectPipeline pipeline) {
+      this.pipeline = pipeline;
+      return this;
+    }
+
     @Override
     public CollectCommand build() {
       return new CollectCommand(this);
@@ -51,38 +70,23 @@ public class CollectCommand implements Command<Void> {
   }
 
   private final Path csvDir;
-  private final Path destDir = Paths.get("/Users/mincong/datadog");
+  private final Path destDir;
+  private final CollectPipeline pipeline;
 
   private CollectCommand(Builder builder) {
     this.csvDir = builder.logDir;
+    this.destDir = builder.destDir;
+    this.pipeline =
+        builder.pipeline != null ? builder.pipeline : CollectPipeline.newBuilder().build();
   }
 
   @Override
   public Void execute() {
-    // Import existing log entries
-    var tryImport = JsonImporter.importLogEntries(destDir);
-    if (tryImport.isFailure()) {
-      logger.error("Failed to import JSON files", tryImport.getCause());
-      return null;
-    }
-    var entries = tryImport.get();
-
-    // Import new log entries
-    var eitherImport = CsvImporter.importLogEntries(csvDir);
-    if (eitherImport.isLeft()) {
-      logger.error(eitherImport.getLeft());
-    }
-    entries = entries.addAll(eitherImport.get());
-
-    // Export
-    Map<LocalDate, SortedSet<LogEntry>> entriesByDay =
-        entries
-            .groupBy(entry -> entry.dateTime().toLocalDate())
-            .mapValues(v -> TreeSet.ofAll(LogEntry.BY_DATE, v));
-    var exportResult = new JsonExporter(destDir).export(entriesByDay);
-    if (exportResult.isFailure()) {
-      logger.error("Failed to export", exportResult.getCause());
-    }
+    // New log entries are merged into the day files of their days, other days are untouched
+    pipeline
+        .run(csvDir, destDir)
+        .onSuccess(stats -> stats.forEach(s -> logger.info("Stage {}", s)))
+        .onFailure(e -> logger.error("Failed to collect logs", e));
     return null;
   }
 }
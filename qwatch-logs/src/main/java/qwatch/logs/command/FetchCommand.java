@@ -0,0 +1,288 @@
+package qwatch.logs.command;
+
+import io.vavr.control.Either;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.io.CollectPipeline;
+import qwatch.logs.io.DatadogFetcher;
+import qwatch.logs.util.Timestamps;
+
+/**
+ * Fetch command, downloading logs from the Datadog Logs API into the day files.
+ *
+ * <p>The API key and the application key are read from the environment variables {@value
+ * #ENV_API_KEY} and {@value #ENV_APPLICATION_KEY}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class FetchCommand implements Command<Void> {
+
+  private static final Logger logger = LoggerFactory.getLogger(FetchCommand.class);
+  public static final String NAME = "fetch";
+
+  static final String ENV_API_KEY = "DD_API_KEY";
+  static final String ENV_APPLICATION_KEY = "DD_APP_KEY";
+
+  static final String OPT_LONG_FROM = "from";
+  static final String OPT_LONG_TO = "to";
+  static final String OPT_LONG_QUERY = "query";
+  static final String OPT_LONG_SITE = "site";
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static Either<IllegalArgumentException, Builder> parse(String... args) {
+    var options = newOptions();
+    var parser = new DefaultParser();
+    CommandLine cmd;
+    try {
+      cmd = parser.parse(options, args);
+    } catch (ParseException e) {
+      return Either.left(
+          new IllegalArgumentException("Failed to parse arguments: " + Arrays.toString(args), e));
+    }
+    var builder = new Builder();
+
+    for (var opt : new String[] {OPT_LONG_FROM, OPT_LONG_TO}) {
+      if (cmd.hasOption(opt)) {
+        var v = cmd.getOptionValue(opt);
+        try {
+          var d = LocalDate.parse(v);
+          if (OPT_LONG_FROM.equals(opt)) {
+            builder.fromDate(d);
+          } else {
+            builder.toDate(d);
+          }
+        } catch (DateTimeParseException e) {
+          return Either.left(new IllegalArgumentException("Invalid date value: " + v, e));
+        }
+      }
+    }
+
+    if (cmd.hasOption(OPT_LONG_QUERY)) {
+      builder.query(cmd.getOptionValue(OPT_LONG_QUERY));
+    }
+
+    if (cmd.hasOption(OPT_LONG_SITE)) {
+      var v = cmd.getOptionValue(OPT_LONG_SITE);
+      try {
+        builder.site(URI.create(v));
+      } catch (IllegalArgumentException e) {
+        return Either.left(new IllegalArgumentException("Invalid site: " + v, e));
+      }
+    }
+    return Either.right(builder);
+  }
+
+  public static class Builder implements CommandBuilder<FetchCommand> {
+
+    private Path destDir = Paths.get("/Users/mincong/datadog");
+    private LocalDate fromDate = LocalDate.now().minusDays(1);
+    private LocalDate toDate = LocalDate.now();
+    private String query = "status:error";
+    private URI site = DatadogFetcher.DEFAULT_SITE;
+    private String apiKey = System.getenv(ENV_API_KEY);
+    private String applicationKey = System.getenv(ENV_APPLICATION_KEY);
+    private CollectPipeline pipeline;
+
+    private Builder() {}
+
+    /**
+     * The directory path where log entries (JSON) are stored, one file per day.
+     *
+     * @param destDir destination directory
+     * @return this
+     */
+    public Builder destDir(Path destDir) {
+      this.destDir = destDir;
+      return this;
+    }
+
+    /**
+     * Sets the first day to fetch, in UTC.
+     *
+     * <p>By default, yesterday.
+     *
+     * @param fromDate first day, inclusive
+     * @return this
+     */
+    public Builder fromDate(LocalDate fromDate) {
+      this.fromDate = fromDate;
+      return this;
+    }
+
+    /**
+     * Sets the day where fetching stops, in UTC.
+     *
+     * <p>By default, today.
+     *
+     * @param toDate last day, exclusive
+     * @return this
+     */
+    public Builder toDate(LocalDate toDate) {
+      this.toDate = toDate;
+      return this;
+    }
+
+    /**
+     * Sets the search query. By default, {@code status:error}.
+     *
+     * @param query search query
+     * @return this
+     */
+    public Builder query(String query) {
+      this.query = query;
+      return this;
+    }
+
+    /**
+     * Sets the Datadog site. By default, {@link DatadogFetcher#DEFAULT_SITE}.
+     *
+     * @param site base URI of the API
+     * @return this
+     */
+    public Builder site(URI site) {
+      this.site = site;
+      return this;
+    }
+
+    /**
+     * Sets the API key, instead of the environment variable {@value #ENV_API_KEY}.
+     *
+     * @param apiKey API key
+     * @return this
+     */
+    public Builder apiKey(String apiKey) {
+      this.apiKey = apiKey;
+      return this;
+    }
+
+    /**
+     * Sets the application key, instead of the environment variable {@value
+     * #ENV_APPLICATION_KEY}.
+     *
+     * @param applicationKey application key
+     * @return this
+     */
+    public Builder applicationKey(String applicationKey) {
+      this.applicationKey = applicationKey;
+      return this;
+    }
+
+    /**
+     * Sets the pipeline merging the fetched entries into the day files.
+     *
+     * @param pipeline collect pipeline
+     * @return this
+     * @see CollectCommand.Builder#pipeline(CollectPipeline)
+     */
+    public Builder pipeline(CollectPipeline pipeline) {
+      this.pipeline = pipeline;
+      return this;
+    }
+
+    @Override
+    public FetchCommand build() {
+      return new FetchCommand(this);
+    }
+  }
+
+  private final Path destDir;
+  private final LocalDate fromDate;
+  private final LocalDate toDate;
+  private final String query;
+  private final URI site;
+  private final String apiKey;
+  private final String applicationKey;
+  private final CollectPipeline pipeline;
+
+  private FetchCommand(Builder builder) {
+    this.destDir = builder.destDir;
+    this.fromDate = builder.fromDate;
+    this.toDate = builder.toDate;
+    this.query = builder.query;
+    this.site = builder.site;
+    this.apiKey = builder.apiKey;
+    this.applicationKey = builder.applicationKey;
+    this.pipeline =
+        builder.pipeline != null ? builder.pipeline : CollectPipeline.newBuilder().build();
+  }
+
+  @Override
+  public Void execute() {
+    if (apiKey == null || applicationKey == null) {
+      logger.error("Missing Datadog keys: set {} and {}", ENV_API_KEY, ENV_APPLICATION_KEY);
+      return null;
+    }
+    var fetcher =
+        DatadogFetcher.newBuilder()
+            .site(site)
+            .apiKey(apiKey)
+            .applicationKey(applicationKey)
+            .query(query)
+            .build();
+    var from = fromDate.atStartOfDay(Timestamps.UTC);
+    var to = toDate.atStartOfDay(Timestamps.UTC);
+
+    // Fetched entries are written into their day file as soon as they are received
+    pipeline
+        .runIncremental(sink -> fetcher.fetch(from, to, sink), destDir)
+        .onSuccess(stats -> stats.forEach(s -> logger.info("Stage {}", s)))
+        .onFailure(e -> logger.error("Failed to fetch logs", e));
+    return null;
+  }
+
+  static Options newOptions() {
+    var options = new Options();
+    var optFrom =
+        Option.builder()
+            .longOpt(OPT_LONG_FROM)
+            .hasArg()
+            .argName("DATE")
+            .desc("First day to fetch in ISO date format (yyyy-MM-dd), defaults to yesterday.")
+            .required(false)
+            .build();
+    var optTo =
+        Option.builder()
+            .longOpt(OPT_LONG_TO)
+            .hasArg()
+            .argName("DATE")
+            .desc("Day where fetching stops, exclusive, defaults to today.")
+            .required(false)
+            .build();
+    var optQuery =
+        Option.builder()
+            .longOpt(OPT_LONG_QUERY)
+            .hasArg()
+            .argName("QUERY")
+            .desc("Datadog log search query, defaults to 'status:error'.")
+            .required(false)
+            .build();
+    var optSite =
+        Option.builder()
+            .longOpt(OPT_LONG_SITE)
+            .hasArg()
+            .argName("URL")
+            .desc("Datadog API site, defaults to https://api.datadoghq.com.")
+            .required(false)
+            .build();
+    options.addOption(optFrom);
+    options.addOption(optTo);
+    options.addOption(optQuery);
+    options.addOption(optSite);
+    return options;
+  }
+}
@@ -3,8 +3,9 @@ package qwatch.logs.command;
 import io.vavr.collection.List;
 import io.vavr.control.Either;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -15,10 +16,14 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import qwatch.logs.io.JsonImporter;
-import qwatch.logs.model.LogEntry;
+import qwatch.logs.io.CatalogImporter;
+import qwatch.logs.io.SegmentColumn;
+import qwatch.logs.io.SegmentStore;
 import qwatch.logs.model.LogSummary;
-import qwatch.logs.util.SummaryExtractor;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.ParameterAnalytics;
+import qwatch.logs.util.SummaryAggregator;
+import qwatch.logs.util.Timestamps;
 
 /**
  * Stats Command.
@@ -33,6 +38,8 @@ public class StatsCommand implements Command<List<LogSummary>> {
 
   static final String OPT_LONG_SINCE = "since";
   static final String OPT_LONG_TOP = "top";
+  static final String OPT_LONG_CATALOG = "catalog";
+  static final String OPT_LONG_PARAMS = "params";
 
   public static Builder newBuilder() {
     return new Builder();
@@ -69,6 +76,19 @@ public class StatsCommand implements Command<List<LogSummary>> {
         return Either.left(new IllegalArgumentException("Invalid int value: " + v, e));
       }
     }
+
+    if (cmd.hasOption(OPT_LONG_CATALOG)) {
+      builder.catalog(Paths.get(cmd.getOptionValue(OPT_LONG_CATALOG)));
+    }
+
+    if (cmd.hasOption(OPT_LONG_PARAMS)) {
+      var v = cmd.getOptionValue(OPT_LONG_PARAMS);
+      try {
+        builder.paramsTopN(Integer.parseInt(v));
+      } catch (NumberFormatException e) {
+        return Either.left(new IllegalArgumentException("Invalid int value: " + v, e));
+      }
+    }
     return Either.right(builder);
   }
 
@@ -77,6 +97,8 @@ public class StatsCommand implements Command<List<LogSummary>> {
     private int topN = Integer.MAX_VALUE;
     private LocalDate sinceDate = LocalDate.now().minusDays(14);
     private Path logDir;
+    private Path catalog;
+    private int paramsTopN;
 
     /**
      * Sets the top N exceptions to display in the statistics.
@@ -115,6 +137,33 @@ public class StatsCommand implements Command<List<LogSummary>> {
       return this;
     }
 
+    /**
+     * Sets the pattern catalog used for classification, instead of the builtin patterns.
+     *
+     * @param catalog path of the catalog file
+     * @return this
+     * @see CatalogImporter
+     */
+    public Builder catalog(Path catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    /**
+     * Sets the number of most frequent values to display for each capture group of the log
+     * patterns.
+     *
+     * <p>By default, parameter analytics are disabled.
+     *
+     * @param paramsTopN top N values to display per capture group, 0 to disable
+     * @return this
+     * @see ParameterAnalytics
+     */
+    public Builder paramsTopN(int paramsTopN) {
+      this.paramsTopN = paramsTopN;
+      return this;
+    }
+
     @Override
     public StatsCommand build() {
       return new StatsCommand(this);
@@ -124,42 +173,129 @@ public class StatsCommand implements Command<List<LogSummary>> {
   private final int topN;
   private final LocalDate startDate;
   private final Path logDir;
+  private final Path catalog;
+  private final int paramsTopN;
 
   private StatsCommand(Builder builder) {
     this.topN = builder.topN;
     this.startDate = builder.sinceDate;
     this.logDir = builder.logDir;
+    this.catalog = builder.catalog;
+    this.paramsTopN = builder.paramsTopN;
   }
 
   @Override
   public List<LogSummary> execute() {
-    // Import log entries
-    var tryImport = JsonImporter.importLogEntries(logDir);
-    if (tryImport.isFailure()) {
-      logger.error("Failed to import JSON files", tryImport.getCause());
+    // Install pattern catalog
+    if (catalog != null) {
+      var tryCatalog = CatalogImporter.importRegistry(catalog);
+      if (tryCatalog.isFailure()) {
+        logger.error("Failed to import catalog " + catalog, tryCatalog.getCause());
+        return List.empty();
+      }
+      LogPatterns.install(tryCatalog.get());
+    }
+
+    // Scan log entries off-heap, decoding only the columns needed from segments
+    var aggregator = new SummaryAggregator();
+    var analytics = new ParameterAnalytics();
+    var lastNanos = new long[] {Long.MIN_VALUE};
+    var tryScan =
+        new SegmentStore(logDir)
+            .scan(
+                startDate,
+                SegmentColumn.summary(),
+                cursor -> {
+                  var logPattern = cursor.logPattern();
+                  if (logPattern.isEmpty()) {
+                    aggregator.addUnmatched(cursor.head());
+                  } else {
+                    aggregator.addMatched(logPattern.get());
+                    if (paramsTopN > 0) {
+                      analytics.add(logPattern.get(), cursor.head());
+                    }
+                  }
+                  lastNanos[0] = Math.max(lastNanos[0], cursor.epochNanos());
+                });
+    if (tryScan.isFailure()) {
+      logger.error("Failed to scan day files", tryScan.getCause());
       return List.empty();
     }
-    var entries = tryImport.get();
-    if (entries.nonEmpty()) {
-      var dates = entries.map(LogEntry::dateTime).map(ZonedDateTime::toLocalDate).toSortedSet();
-      var end = dates.last(); // inclusive
-      entries = entries.filter(e -> !e.dateTime().toLocalDate().isBefore(startDate));
-      var size = String.format("%,d", entries.size());
-      logger.info("{} entries extracted ({} to {}).", size, startDate, end);
+    long count = tryScan.get();
+    if (count > 0) {
+      var end = Instant.ofEpochSecond(Math.floorDiv(lastNanos[0], 1_000_000_000L));
+      var size = String.format("%,d", count);
+      var endDate = end.atZone(Timestamps.UTC).toLocalDate(); // inclusive
+      logger.info("{} entries extracted ({} to {}).", size, startDate, endDate);
     } else {
       logger.info("0 entries extracted.");
     }
 
     // Summary
-    var summaries = new SummaryExtractor(entries).top(topN);
+    var summaries = aggregator.top(topN);
     var detail =
         summaries
             .map(s -> String.format("- %,6d: %s", s.count(), s.description()))
             .collect(Collectors.joining("\n"));
     logger.info("Top {} errors:\n{}", summaries.size(), detail);
+    if (paramsTopN > 0) {
+      logParameters(analytics, paramsTopN);
+    }
+    logClassificationStats();
+    logCandidatePatterns(aggregator);
     return summaries;
   }
 
+  private static void logParameters(ParameterAnalytics analytics, int topN) {
+    var format = "- P%02d: %,d occurrences across ~%,d distinct values of group %d, top %d: %s";
+    var detail =
+        analytics
+            .summaries(topN)
+            .map(
+                s ->
+                    String.format(
+                        format,
+                        s.logPattern().id(),
+                        s.occurrences(),
+                        s.distinctValues(),
+                        s.group(),
+                        s.topValues().size(),
+                        s.topValues().map(t -> t._1 + " (" + t._2 + ")").mkString(", ")))
+            .collect(Collectors.joining("\n"));
+    logger.info("Parameters:\n{}", detail);
+  }
+
+  private static void logCandidatePatterns(SummaryAggregator aggregator) {
+    if (!logger.isDebugEnabled()) {
+      return;
+    }
+    var detail =
+        aggregator.candidatePatterns(10).map(r -> "- " + r).collect(Collectors.joining("\n"));
+    logger.debug("Candidate patterns for unmatched entries:\n{}", detail);
+  }
+
+  private static void logClassificationStats() {
+    if (!logger.isDebugEnabled()) {
+      return;
+    }
+    var registry = LogPatterns.registry();
+    var hits = String.format("%,d", registry.cache().hits());
+    var misses = String.format("%,d", registry.cache().misses());
+    logger.debug("Classification cache: {} hits, {} misses", hits, misses);
+    var detail =
+        registry
+            .stats()
+            .filter(s -> s.attempts() > 0)
+            .sortBy(s -> -s.attempts())
+            .map(
+                s ->
+                    String.format(
+                        "- P%02d: %,d attempts, %,d hits",
+                        s.logPattern().id(), s.attempts(), s.hits()))
+            .collect(Collectors.joining("\n"));
+    logger.debug("Pattern evaluations:\n{}", detail);
+  }
+
   static Options newOptions() {
     var options = new Options();
     var optSince =
@@ -178,8 +314,26 @@ public class StatsCommand implements Command<List<LogSummary>> {
             .desc("Top N results to display, defaults to all.")
             .required(false)
             .build();
+    var optCatalog =
+        Option.builder()
+            .longOpt(OPT_LONG_CATALOG)
+            .hasArg()
+            .argName("FILE")
+            .desc("Pattern catalog (JSON) to use instead of the builtin patterns.")
+            .required(false)
+            .build();
+    var optParams =
+        Option.builder()
+            .longOpt(OPT_LONG_PARAMS)
+            .hasArg()
+            .argName("N")
+            .desc("Top N values captured by each pattern group to display, defaults to none.")
+            .required(false)
+            .build();
     options.addOption(optSince);
     options.addOption(optTop);
+    options.addOption(optCatalog);
+    options.addOption(optParams);
     return options;
   }
 }
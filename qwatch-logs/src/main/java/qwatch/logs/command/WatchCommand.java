@@ -0,0 +1,169 @@
+package qwatch.logs.command;
+
+import io.vavr.control.Either;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.io.CollectPipeline;
+import qwatch.logs.io.ExtractWatcher;
+
+/**
+ * Watch command, collecting new CSV extracts as soon as they are downloaded, until interrupted.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class WatchCommand implements Command<Void> {
+
+  private static final Logger logger = LoggerFactory.getLogger(WatchCommand.class);
+  public static final String NAME = "watch";
+
+  static final String OPT_LONG_CATALOG = "catalog";
+
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(10);
+
+  public static WatchCommand.Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static Either<IllegalArgumentException, Builder> parse(String... args) {
+    var options = newOptions();
+    var parser = new DefaultParser();
+    CommandLine cmd;
+    try {
+      cmd = parser.parse(options, args);
+    } catch (ParseException e) {
+      return Either.left(
+          new IllegalArgumentException("Failed to parse arguments: " + Arrays.toString(args), e));
+    }
+    var builder = new Builder();
+
+    if (cmd.hasOption(OPT_LONG_CATALOG)) {
+      builder.catalog(Paths.get(cmd.getOptionValue(OPT_LONG_CATALOG)));
+    }
+    return Either.right(builder);
+  }
+
+  public static class Builder implements CommandBuilder<WatchCommand> {
+    private Path logDir;
+    private Path destDir = Paths.get("/Users/mincong/datadog");
+    private CollectPipeline pipeline;
+    private Path catalog;
+    private Duration quietPeriod = ExtractWatcher.DEFAULT_QUIET_PERIOD;
+
+    private Builder() {}
+
+    /**
+     * The directory path where logs (CSV) are downloaded.
+     *
+     * @param logDir log directory
+     * @return this
+     */
+    public Builder logDir(Path logDir) {
+      this.logDir = logDir;
+      return this;
+    }
+
+    /**
+     * The directory path where log entries (JSON) are stored, one file per day.
+     *
+     * @param destDir destination directory
+     * @return this
+     */
+    public Builder destDir(Path destDir) {
+      this.destDir = destDir;
+      return this;
+    }
+
+    /**
+     * Sets the pipeline collecting the logs.
+     *
+     * @param pipeline collect pipeline
+     * @return this
+     * @see CollectCommand.Builder#pipeline(CollectPipeline)
+     */
+    public Builder pipeline(CollectPipeline pipeline) {
+      this.pipeline = pipeline;
+      return this;
+    }
+
+    /**
+     * Sets the pattern catalog used for classification, instead of the builtin patterns. The
+     * catalog is reloaded when the file is modified, without restarting the command.
+     *
+     * @param catalog path of the catalog file
+     * @return this
+     * @see ExtractWatcher.Builder#catalog(Path)
+     */
+    public Builder catalog(Path catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    /**
+     * Sets how long a CSV file must remain unchanged before being collected, so that files being
+     * downloaded are not collected partially.
+     *
+     * @param quietPeriod quiet period
+     * @return this
+     */
+    public Builder quietPeriod(Duration quietPeriod) {
+      this.quietPeriod = quietPeriod;
+      return this;
+    }
+
+    @Override
+    public WatchCommand build() {
+      return new WatchCommand(this);
+    }
+  }
+
+  private final ExtractWatcher.Builder watcherBuilder;
+
+  private WatchCommand(Builder builder) {
+    this.watcherBuilder =
+        ExtractWatcher.newBuilder()
+            .csvDir(builder.logDir)
+            .destDir(builder.destDir)
+            .pipeline(builder.pipeline)
+            .catalog(builder.catalog)
+            .quietPeriod(builder.quietPeriod);
+  }
+
+  @Override
+  public Void execute() {
+    try (var watcher = watcherBuilder.start()) {
+      while (!Thread.currentThread().isInterrupted()) {
+        watcher.poll(POLL_TIMEOUT);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      logger.error("Failed to watch logs", e);
+    }
+    return null;
+  }
+
+  private static Options newOptions() {
+    var options = new Options();
+    var optCatalog =
+        Option.builder()
+            .longOpt(OPT_LONG_CATALOG)
+            .hasArg()
+            .argName("FILE")
+            .desc("Pattern catalog (JSON) replacing the builtin patterns, reloaded when modified.")
+            .required(false)
+            .build();
+    options.addOption(optCatalog);
+    return options;
+  }
+}
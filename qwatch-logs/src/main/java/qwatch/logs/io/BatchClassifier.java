@@ -0,0 +1,117 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import io.vavr.control.Either;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Batch Classifier converts and classifies items in batches on an executor, while the calling
+ * thread keeps reading the next items.
+ *
+ * <p>Each batch is converted into classified log entries independently, and batches are
+ * reassembled in reading order. The number of pending batches is bounded, so that reading cannot
+ * run far ahead of classification. This class is not thread-safe.
+ *
+ * @param <T> type of the items read, e.g. CSV rows
+ * @author Mincong Huang
+ * @since 1.0
+ */
+final class BatchClassifier<T> {
+
+  /** Number of items classified together. */
+  static final int BATCH_SIZE = 4_096;
+
+  private static final int MAX_PENDING_BATCHES = 2 * Runtime.getRuntime().availableProcessors();
+
+  private final Function<java.util.List<T>, Either<String, List<LogEntry>>> converter;
+  private final Executor executor;
+  private final ArrayDeque<CompletableFuture<Either<String, List<LogEntry>>>> pending =
+      new ArrayDeque<>();
+  private final ArrayList<LogEntry> entries = new ArrayList<>();
+  private ArrayList<T> batch = new ArrayList<>(BATCH_SIZE);
+
+  /**
+   * Creates a batch classifier.
+   *
+   * @param converter converts a batch into classified entries, or a failure
+   * @param executor executor running the converter
+   */
+  BatchClassifier(
+      Function<java.util.List<T>, Either<String, List<LogEntry>>> converter, Executor executor) {
+    this.converter = converter;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates a batch classifier of entries which are already converted.
+   *
+   * @param executor executor classifying the entries
+   * @return a new batch classifier
+   */
+  static BatchClassifier<LogEntry> ofEntries(Executor executor) {
+    return new BatchClassifier<>(
+        batch -> {
+          batch.forEach(LogEntry::classification);
+          return Either.right(List.ofAll(batch));
+        },
+        executor);
+  }
+
+  /**
+   * Adds an item, which must not be modified afterwards.
+   *
+   * @param item the item
+   * @return a failure of a previous batch, if any
+   */
+  Either<String, Void> add(T item) {
+    batch.add(item);
+    if (batch.size() == BATCH_SIZE) {
+      submit();
+    }
+    while (pending.size() > MAX_PENDING_BATCHES) {
+      var result = join();
+      if (result.isLeft()) {
+        return result;
+      }
+    }
+    return Either.right(null);
+  }
+
+  /**
+   * Waits for the classification of all the items.
+   *
+   * @return either the classified entries, in reading order, or a failure
+   */
+  Either<String, List<LogEntry>> finish() {
+    if (!batch.isEmpty()) {
+      submit();
+    }
+    while (!pending.isEmpty()) {
+      var result = join();
+      if (result.isLeft()) {
+        return Either.left(result.getLeft());
+      }
+    }
+    return Either.right(List.ofAll(entries));
+  }
+
+  private void submit() {
+    var items = batch;
+    pending.add(CompletableFuture.supplyAsync(() -> converter.apply(items), executor));
+    batch = new ArrayList<>(BATCH_SIZE);
+  }
+
+  private Either<String, Void> join() {
+    var result = pending.poll().join();
+    if (result.isLeft()) {
+      return Either.left(result.getLeft());
+    }
+    entries.addAll(result.get().asJava());
+    return Either.right(null);
+  }
+}
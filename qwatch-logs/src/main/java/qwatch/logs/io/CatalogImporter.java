@@ -0,0 +1,85 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+import java.nio.file.Path;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.CatalogLogPattern;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.util.LogPatternRegistry;
+import qwatch.logs.util.ObjectMapperFactory;
+
+/**
+ * Catalog Importer imports log patterns from an external catalog file.
+ *
+ * <p>A catalog is a JSON file, such as:
+ *
+ * <pre>
+ * {
+ *   "builtin" : true,
+ *   "patterns" : [ {
+ *     "id" : 101,
+ *     "regex" : "^Timeout after (.*) ms$",
+ *     "shortMsg" : "Timeout",
+ *     "longMsg" : "Timeout after ${duration} ms"
+ *   } ]
+ * }
+ * </pre>
+ *
+ * <p>where "builtin" tells whether {@link BuiltinLogPattern} are included before the patterns of
+ * the catalog. Pattern identifiers must be unique.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CatalogImporter {
+
+  private static final ObjectMapper mapper = ObjectMapperFactory.newObjectMapper();
+
+  /**
+   * Imports the catalog file and compiles it into a new registry.
+   *
+   * @param path path of the catalog file
+   * @return a new registry, or a failure if the catalog cannot be read or is invalid
+   */
+  public static Try<LogPatternRegistry> importRegistry(Path path) {
+    return Try.of(() -> mapper.readValue(path.toFile(), Catalog.class))
+        .flatMap(CatalogImporter::validate)
+        .map(LogPatternRegistry::of);
+  }
+
+  private static Try<List<LogPattern>> validate(Catalog catalog) {
+    List<LogPattern> patterns = List.empty();
+    if (catalog.builtin) {
+      patterns = patterns.appendAll(List.of(BuiltinLogPattern.values()));
+    }
+    patterns = patterns.appendAll(catalog.patterns);
+    var duplicates =
+        patterns.groupBy(LogPattern::id).filterValues(v -> v.size() > 1).keySet().toSortedSet();
+    if (duplicates.nonEmpty()) {
+      return Try.failure(
+          new IllegalArgumentException("Duplicate pattern ids in catalog: " + duplicates));
+    }
+    return Try.success(patterns);
+  }
+
+  private static class Catalog {
+    private final boolean builtin;
+    private final List<CatalogLogPattern> patterns;
+
+    @JsonCreator
+    private Catalog(
+        @JsonProperty("builtin") boolean builtin,
+        @JsonProperty("patterns") java.util.List<CatalogLogPattern> patterns) {
+      this.builtin = builtin;
+      this.patterns = patterns == null ? List.empty() : List.ofAll(patterns);
+    }
+  }
+
+  private CatalogImporter() {
+    // Utility class, do not instantiate
+  }
+}
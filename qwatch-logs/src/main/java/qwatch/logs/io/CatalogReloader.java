@@ -0,0 +1,68 @@
+package qwatch.logs.io;
+
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.util.LogPatterns;
+
+/**
+ * Catalog Reloader installs a pattern catalog for classification, and installs it again whenever
+ * the catalog file is modified, so that long-running commands pick up new patterns without being
+ * restarted.
+ *
+ * <p>The catalog file is not watched: its modification time is checked each time {@link
+ * #reloadIfModified()} is called. A catalog which fails to be imported does not replace the
+ * current registry, and is not imported again until it is modified. This class is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ * @see CatalogImporter
+ * @see LogPatterns#install(qwatch.logs.util.LogPatternRegistry)
+ */
+public final class CatalogReloader {
+
+  private static final Logger logger = LoggerFactory.getLogger(CatalogReloader.class);
+
+  private final Path path;
+  /** Modification time of the catalog when last imported, successfully or not. */
+  private long importedMillis = Long.MIN_VALUE;
+
+  public CatalogReloader(Path path) {
+    this.path = path;
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Installs the catalog if it was modified since it was last imported, or if it was never
+   * imported.
+   *
+   * @return {@code true} if the catalog was installed, {@code false} if it was unchanged; or a
+   *     failure if the catalog cannot be read or is invalid, the current registry being kept
+   */
+  public Try<Boolean> reloadIfModified() {
+    long modifiedMillis;
+    try {
+      modifiedMillis = Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+    if (modifiedMillis == importedMillis) {
+      return Try.success(false);
+    }
+    importedMillis = modifiedMillis;
+    // The time is read before the catalog, so a catalog modified meanwhile is installed again
+    return CatalogImporter.importRegistry(path)
+        .map(
+            registry -> {
+              LogPatterns.install(registry);
+              logger.info("Installed catalog {}, version {}", path, registry.version());
+              return true;
+            });
+  }
+}
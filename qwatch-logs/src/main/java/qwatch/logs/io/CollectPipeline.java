@@ -0,0 +1,588 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Pipeline;
+
+/**
+ * Collect Pipeline merges the Datadog extracts into the day files, see {@link DayFileFormat}.
+ *
+ * <p>Collecting is incremental: the new entries go first through the pipeline, then only the day
+ * files of the days having new entries, so that the other day files are neither read nor
+ * rewritten. Days whose new entries are all in their day file already, according to the {@link
+ * Manifest}, are skipped without opening the day file.
+ *
+ * <p>Files go through four stages running concurrently: "read" streams the extracts (CSV, JSON or
+ * NDJSON, see {@link DatadogImporter}) or the existing day files in batches, "parse" converts CSV
+ * rows into log entries, "classify" resolves the classification of the entries and "write" hands
+ * them to the {@link DayWriters}. CSV extracts larger than {@link Builder#splitSize(long)} are
+ * split into chunks of whole records by "read" instead, see {@link MappedCsvImporter}, so that
+ * their rows are parsed by all the threads of "parse".
+ *
+ * <p>Stages are connected by bounded queues of batches, so the entries in flight are bounded by the
+ * queue capacity, and the entries waiting for their day file are bounded by {@link
+ * Builder#maxBufferedEntries(long)}. Day files are replaced once all the files are read.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class CollectPipeline {
+
+  private static final Logger logger = LoggerFactory.getLogger(CollectPipeline.class);
+
+  /** Number of entries or rows per batch. */
+  static final int BATCH_SIZE = 1_024;
+
+  public static final long DEFAULT_SPLIT_SIZE = 16L << 20;
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private int readers = 2;
+    private int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int classifiers = Runtime.getRuntime().availableProcessors();
+    private int writers = 2;
+    private int queueCapacity = 16;
+    private long maxBufferedEntries = 1_000_000;
+    private long splitSize = DEFAULT_SPLIT_SIZE;
+    private DayFileFormat format = DayFileFormat.JSON;
+
+    private Builder() {}
+
+    /**
+     * Sets the number of threads reading files. By default, 2.
+     *
+     * @param readers number of threads
+     * @return this
+     */
+    public Builder readers(int readers) {
+      this.readers = readers;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads parsing CSV rows. By default, half of the available processors.
+     *
+     * @param parsers number of threads
+     * @return this
+     */
+    public Builder parsers(int parsers) {
+      this.parsers = parsers;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads classifying entries. By default, one per available processor.
+     *
+     * @param classifiers number of threads
+     * @return this
+     */
+    public Builder classifiers(int classifiers) {
+      this.classifiers = classifiers;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads handing entries to the day writers. By default, 2.
+     *
+     * @param writers number of threads
+     * @return this
+     */
+    public Builder writers(int writers) {
+      this.writers = writers;
+      return this;
+    }
+
+    /**
+     * Sets the capacity of each queue between two stages, in batches of {@value #BATCH_SIZE}
+     * entries. By default, 16.
+     *
+     * @param queueCapacity number of batches
+     * @return this
+     */
+    public Builder queueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries buffered by the day writers before spilling them to disk.
+     * By default, 1,000,000.
+     *
+     * @param maxBufferedEntries number of entries
+     * @return this
+     */
+    public Builder maxBufferedEntries(long maxBufferedEntries) {
+      this.maxBufferedEntries = maxBufferedEntries;
+      return this;
+    }
+
+    /**
+     * Sets the size of the chunks which large CSV extracts are split into, so that the rows of a
+     * single extract are parsed by all the parsers. Smaller extracts are read as a whole. By
+     * default, {@value #DEFAULT_SPLIT_SIZE} bytes.
+     *
+     * @param splitSize size in bytes
+     * @return this
+     * @see MappedCsvImporter
+     */
+    public Builder splitSize(long splitSize) {
+      this.splitSize = splitSize;
+      return this;
+    }
+
+    /**
+     * Sets the format of the day files written. Day files of other formats are still read, and
+     * replaced by the new format when their day has new entries. By default, {@link
+     * DayFileFormat#JSON}.
+     *
+     * @param format day file format
+     * @return this
+     */
+    public Builder format(DayFileFormat format) {
+      this.format = format;
+      return this;
+    }
+
+    public CollectPipeline build() {
+      for (int n : new int[] {readers, parsers, classifiers, writers, queueCapacity}) {
+        if (n <= 0) {
+          throw new IllegalArgumentException("Parallelism and capacity should be positive: " + n);
+        }
+      }
+      if (splitSize <= 0) {
+        throw new IllegalArgumentException("Split size should be positive: " + splitSize);
+      }
+      return new CollectPipeline(this);
+    }
+  }
+
+  private final int readers;
+  private final int parsers;
+  private final int classifiers;
+  private final int writers;
+  private final int queueCapacity;
+  private final long maxBufferedEntries;
+  private final long splitSize;
+  private final DayFileFormat format;
+
+  private CollectPipeline(Builder builder) {
+    this.readers = builder.readers;
+    this.parsers = builder.parsers;
+    this.classifiers = builder.classifiers;
+    this.writers = builder.writers;
+    this.queueCapacity = builder.queueCapacity;
+    this.maxBufferedEntries = builder.maxBufferedEntries;
+    this.splitSize = builder.splitSize;
+    this.format = builder.format;
+  }
+
+  /**
+   * Collects the extracts of a directory into the day files of another directory.
+   *
+   * @param csvDir directory of the extracts
+   * @param destDir directory of the day files
+   * @return the statistics of each stage, for the extracts and then for the affected day files;
+   *     or a failure. If a stage fails, day files are unchanged.
+   * @see #runIncremental(Iterable, Path)
+   */
+  public Try<List<Pipeline.StageStats>> run(Path csvDir, Path destDir) {
+    var tryCsv = CsvImporter.listCsvPaths(csvDir);
+    if (tryCsv.isFailure()) {
+      return Try.failure(tryCsv.getCause());
+    }
+    var tryExports = DatadogImporter.listExportPaths(csvDir);
+    if (tryExports.isFailure()) {
+      return Try.failure(tryExports.getCause());
+    }
+    return runIncremental(tryCsv.get().addAll(tryExports.get()), destDir);
+  }
+
+  /**
+   * Collects the given extracts into the day files of a directory. Only the days having
+   * entries in these extracts are read and rewritten, the other day files are left untouched.
+   *
+   * @param extracts extracts to collect
+   * @param destDir directory of the day files
+   * @return the statistics of each stage, for the extracts and then for the affected day files;
+   *     or a failure. If a stage fails, day files are unchanged.
+   */
+  public Try<List<Pipeline.StageStats>> runIncremental(Iterable<Path> extracts, Path destDir) {
+    return incremental(destDir, dayWriters -> runPipeline(newPipeline(extracts, dayWriters)));
+  }
+
+  /**
+   * Collects the entries of a producer, such as {@link DatadogFetcher}, into the day files of a
+   * directory. Entries are classified and handed to the day writers by the producing threads, as
+   * soon as they are produced. Only the days having new entries are read and rewritten.
+   *
+   * @param producer sends entries to the given sink, possibly from several threads, and returns
+   *     once all entries are sent
+   * @param destDir directory of the day files
+   * @return the statistics of each stage reading the affected day files, or a failure. If the
+   *     producer or a stage fails, day files are unchanged.
+   */
+  public Try<List<Pipeline.StageStats>> runIncremental(
+      Function<LogEntrySink, Try<?>> producer, Path destDir) {
+    return incremental(
+        destDir,
+        dayWriters ->
+            producer
+                .apply(
+                    entry -> {
+                      entry.classification();
+                      dayWriters.add(entry);
+                    })
+                .map(v -> List.empty()));
+  }
+
+  /**
+   * Collects new entries, then the existing entries of their days, except for the days which are
+   * unchanged. The manifest is updated once the day files are written.
+   */
+  private Try<List<Pipeline.StageStats>> incremental(
+      Path destDir, Function<DayWriters, Try<List<Pipeline.StageStats>>> newEntries) {
+    var manifest =
+        Manifest.read(destDir)
+            .onFailure(e -> logger.warn("Ignoring the manifest of " + destDir, e))
+            .getOrElse(Manifest::empty);
+    Path spillDir;
+    try {
+      spillDir = Files.createTempDirectory("qwatch-collect-");
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+    try {
+      var dayWriters = new DayWriters(destDir, spillDir, maxBufferedEntries, format);
+      return newEntries
+          .apply(dayWriters)
+          .flatMap(
+              stats ->
+                  dayWriters
+                      .discardUnchanged(manifest)
+                      .flatMap(
+                          unchanged -> {
+                            logger.info("{} unchanged days skipped", unchanged.size());
+                            var dayFiles =
+                                dayWriters
+                                    .days()
+                                    .flatMap(day -> DayFileFormat.existingDayFiles(destDir, day));
+                            return runPipeline(newPipeline(dayFiles, dayWriters))
+                                .map(stats::appendAll);
+                          }))
+          .flatMap(
+              stats ->
+                  dayWriters
+                      .finish()
+                      .flatMap(days -> manifest.withDays(days).write(destDir))
+                      .map(v -> stats));
+    } finally {
+      deleteQuietly(spillDir);
+    }
+  }
+
+  private Pipeline newPipeline(Iterable<Path> paths, DayWriters dayWriters) {
+    // Largest files first, so that they do not delay the end of the pipeline
+    var sources =
+        List.ofAll(paths).sorted(Comparator.comparingLong(CollectPipeline::sizeOf).reversed());
+    return Pipeline.from(sources)
+        .<Batch>stage("read", readers, queueCapacity, this::read)
+        .<Batch>stage("parse", parsers, queueCapacity, CollectPipeline::parse)
+        .<java.util.List<LogEntry>>stage(
+            "classify", classifiers, queueCapacity, CollectPipeline::classify)
+        .sink("write", writers, entries -> write(dayWriters, entries));
+  }
+
+  private static Try<List<Pipeline.StageStats>> runPipeline(Pipeline pipeline) {
+    return pipeline.run().map(v -> pipeline.stats());
+  }
+
+  /**
+   * Reads a file into batches of entries, for JSON files, or batches of rows, for CSV files. Large
+   * CSV files are split into chunks instead, which are parsed in parallel.
+   */
+  private void read(Path path, Consumer<? super Batch> emitter) throws IOException {
+    if (path.getFileName().toString().endsWith(".csv")) {
+      if (sizeOf(path) > splitSize) {
+        readCsvChunks(path, emitter);
+      } else {
+        readCsv(path, emitter);
+      }
+    } else if (DatadogImporter.isExport(path)) {
+      readExport(path, emitter);
+    } else {
+      // A day file which cannot be read fails the pipeline, as it would be overwritten
+      readJson(path, emitter);
+    }
+  }
+
+  private static void readJson(Path path, Consumer<? super Batch> emitter) throws IOException {
+    var entries = new ArrayList<LogEntry>(BATCH_SIZE);
+    long count = 0;
+    try (var iterator = DayFileFormat.openEntries(path)) {
+      while (iterator.hasNext()) {
+        entries.add(iterator.next());
+        if (entries.size() == BATCH_SIZE) {
+          emitter.accept(Batch.ofEntries(entries));
+          count += entries.size();
+          entries = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+    }
+    if (!entries.isEmpty()) {
+      emitter.accept(Batch.ofEntries(entries));
+      count += entries.size();
+    }
+    logger.info("{}: {} entries", path, String.format("%,d", count));
+  }
+
+  private static void readExport(Path path, Consumer<? super Batch> emitter) throws IOException {
+    var batcher = new EntryBatcher(emitter);
+    var result = DatadogImporter.readLogEntries(path, batcher);
+    if (result.isFailure()) {
+      throw new IOException(
+          path + ": failed after " + batcher.count + " entries", result.getCause());
+    }
+    batcher.flush();
+    logger.info("{}: {} entries", path, String.format("%,d", result.get()));
+  }
+
+  private static void readCsv(Path path, Consumer<? super Batch> emitter) throws IOException {
+    var header = CsvImporter.readHeader(path);
+    var mapping = header.flatMap(CsvImporter::toHeaderMapping);
+    if (mapping.isLeft()) {
+      throw new IOException(path + ": " + mapping.getLeft());
+    }
+    var columns = header.get().length;
+    var index = mapping.get();
+    long count = 0;
+    try (var channel = Files.newByteChannel(path)) {
+      var scanner = new CsvScanner(channel, CsvImporter.toProjection(columns, index));
+      scanner.next(); // header
+      var rows = new ArrayList<String[]>(BATCH_SIZE);
+      String[] row;
+      while ((row = scanner.next()) != null) {
+        if (scanner.fieldCount() < columns) {
+          throw unexpectedColumns(path, scanner.fieldCount());
+        }
+        rows.add(row.clone()); // the scanner reuses its row
+        if (rows.size() == BATCH_SIZE) {
+          emitter.accept(Batch.ofRows(path, index, rows));
+          count += rows.size();
+          rows = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (!rows.isEmpty()) {
+        emitter.accept(Batch.ofRows(path, index, rows));
+        count += rows.size();
+      }
+      logger.info("{}: {} rows", path, String.format("%,d", count));
+    }
+  }
+
+  /**
+   * Splits a CSV file into chunks of whole records, see {@link MappedCsvImporter}. Chunks are
+   * mapped, the mappings remaining valid once the file is closed, and parsed by the next stage.
+   */
+  private void readCsvChunks(Path path, Consumer<? super Batch> emitter) throws IOException {
+    var header = CsvImporter.readHeader(path);
+    var mapping = header.flatMap(CsvImporter::toHeaderMapping);
+    if (mapping.isLeft()) {
+      throw new IOException(path + ": " + mapping.getLeft());
+    }
+    var columns = header.get().length;
+    var index = mapping.get();
+    var chunks = new int[1];
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedCsvImporter.split(
+          channel,
+          splitSize,
+          (start, end) -> {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            emitter.accept(Batch.ofChunk(path, index, columns, buffer, start == 0));
+            chunks[0]++;
+          });
+      logger.info("{}: {} chunks", path, chunks[0]);
+    }
+  }
+
+  /**
+   * Converts the rows of a batch, or of a chunk, into entries. Batches of entries are passed
+   * through.
+   */
+  private static void parse(Batch batch, Consumer<? super Batch> emitter) throws IOException {
+    if (batch.entries != null) {
+      emitter.accept(batch);
+      return;
+    }
+    if (batch.chunk != null) {
+      parseChunk(batch, emitter);
+      return;
+    }
+    var entries = new ArrayList<LogEntry>(batch.rows.size());
+    for (var row : batch.rows) {
+      entries.add(toLogEntry(batch, row));
+    }
+    emitter.accept(Batch.ofEntries(entries));
+  }
+
+  private static void parseChunk(Batch batch, Consumer<? super Batch> emitter)
+      throws IOException {
+    var scanner = new CsvScanner(batch.chunk, CsvImporter.toProjection(batch.columns, batch.index));
+    if (batch.header) {
+      scanner.next();
+    }
+    var entries = new ArrayList<LogEntry>(BATCH_SIZE);
+    String[] row;
+    while ((row = scanner.next()) != null) {
+      if (scanner.fieldCount() < batch.columns) {
+        throw unexpectedColumns(batch.path, scanner.fieldCount());
+      }
+      entries.add(toLogEntry(batch, row));
+      if (entries.size() == BATCH_SIZE) {
+        emitter.accept(Batch.ofEntries(entries));
+        entries = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+    if (!entries.isEmpty()) {
+      emitter.accept(Batch.ofEntries(entries));
+    }
+  }
+
+  private static LogEntry toLogEntry(Batch batch, String[] row) throws IOException {
+    var entry = CsvImporter.toLogEntry(row, batch.index);
+    if (entry.isLeft()) {
+      throw new IOException(batch.path + ": " + entry.getLeft());
+    }
+    return entry.get();
+  }
+
+  private static IOException unexpectedColumns(Path path, int count) {
+    return new IOException(path + ": unexpected number of columns: " + count);
+  }
+
+  private static void classify(Batch batch, Consumer<? super java.util.List<LogEntry>> emitter) {
+    batch.entries.forEach(LogEntry::classification);
+    emitter.accept(batch.entries);
+  }
+
+  private static void write(DayWriters dayWriters, java.util.List<LogEntry> entries) {
+    try {
+      for (var entry : entries) {
+        dayWriters.add(entry);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long sizeOf(Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException e) {
+      // the read stage reports it
+      return 0;
+    }
+  }
+
+  private static void deleteQuietly(Path dir) {
+    try (var paths = Files.list(dir)) {
+      for (var path : (Iterable<Path>) paths::iterator) {
+        Files.deleteIfExists(path);
+      }
+      Files.deleteIfExists(dir);
+    } catch (IOException e) {
+      logger.warn("Failed to delete " + dir, e);
+    }
+  }
+
+  /** Groups entries into batches, emitted as soon as they are full. */
+  private static final class EntryBatcher implements LogEntrySink {
+    private final Consumer<? super Batch> emitter;
+    private java.util.List<LogEntry> entries = new ArrayList<>(BATCH_SIZE);
+    private long count;
+
+    private EntryBatcher(Consumer<? super Batch> emitter) {
+      this.emitter = emitter;
+    }
+
+    @Override
+    public void accept(LogEntry entry) {
+      entries.add(entry);
+      count++;
+      if (entries.size() == BATCH_SIZE) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (!entries.isEmpty()) {
+        emitter.accept(Batch.ofEntries(entries));
+        entries = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+  }
+
+  /**
+   * Batch of CSV rows, or chunk of a CSV file, with the column mapping of their file; or batch of
+   * log entries.
+   */
+  private static final class Batch {
+    private final Path path;
+    private final Map<String, Integer> index;
+    private final java.util.List<String[]> rows;
+    private final ByteBuffer chunk;
+    private final int columns;
+    private final boolean header;
+    private final java.util.List<LogEntry> entries;
+
+    private Batch(
+        Path path,
+        Map<String, Integer> index,
+        java.util.List<String[]> rows,
+        ByteBuffer chunk,
+        int columns,
+        boolean header,
+        java.util.List<LogEntry> entries) {
+      this.path = path;
+      this.index = index;
+      this.rows = rows;
+      this.chunk = chunk;
+      this.columns = columns;
+      this.header = header;
+      this.entries = entries;
+    }
+
+    private static Batch ofRows(
+        Path path, Map<String, Integer> index, java.util.List<String[]> rows) {
+      return new Batch(path, index, rows, null, 0, false, null);
+    }
+
+    private static Batch ofChunk(
+        Path path, Map<String, Integer> index, int columns, ByteBuffer chunk, boolean header) {
+      return new Batch(path, index, null, chunk, columns, header, null);
+    }
+
+    private static Batch ofEntries(java.util.List<LogEntry> entries) {
+      return new Batch(null, null, null, null, 0, false, entries);
+    }
+  }
+}
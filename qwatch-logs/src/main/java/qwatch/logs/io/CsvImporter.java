@@ -8,18 +8,19 @@ import io.vavr.collection.Set;
 import io.vavr.control.Either;
 import io.vavr.control.Try;
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -39,7 +40,7 @@ public class CsvImporter {
   private static final String COL_STATUS = "Status";
   private static final String[] REQUIRED_COLUMNS = {COL_DATE, COL_HOST, COL_MESSAGE, COL_SERVICE};
 
-  private static Try<Set<Path>> listCsvPaths(Path dir) {
+  static Try<Set<Path>> listCsvPaths(Path dir) {
     Set<Path> paths = HashSet.empty();
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "extract-*.csv")) {
       for (Path csv : stream) {
@@ -51,6 +52,16 @@ public class CsvImporter {
     }
   }
 
+  /**
+   * Imports the CSV extracts of a directory onto the heap, large extracts being imported in
+   * parallel chunks by {@link MappedCsvImporter}.
+   *
+   * @param dir the directory containing the extracts
+   * @return either the log entries imported or a failure
+   * @deprecated extracts are collected by {@link CollectPipeline}, which streams them into the day
+   *     files, splitting large CSV extracts into chunks parsed in parallel
+   */
+  @Deprecated
   public static Either<String, Set<LogEntry>> importLogEntries(Path dir) {
     // Find paths
     var tryListing = listCsvPaths(dir);
@@ -58,60 +69,146 @@ public class CsvImporter {
       return Either.left(tryListing.getCause().getMessage());
     }
     var paths = tryListing.get();
+    var largePaths = paths.filter(CsvImporter::isLarge);
 
-    // Import log entries
+    // Import large files one by one, each of them in parallel chunks
     Set<LogEntry> entries = HashSet.empty();
-    var pool = Executors.newWorkStealingPool();
-    var tasks = paths.map(ImportCsvTask::new).toSet();
-    try {
-      for (var future : pool.invokeAll(tasks.toJavaSet())) {
-        if (!future.isCancelled()) {
-          entries = entries.addAll(future.get());
-        }
+    for (var path : largePaths) {
+      var result = MappedCsvImporter.importLogEntriesFromFile(path);
+      if (result.isLeft()) {
+        logger.warn("{}: failed\n{}", path, result.getLeft());
+      } else {
+        logger.info("{}: {} entries", path, String.format("%,d", result.get().size()));
+        entries = entries.addAll(result.get());
       }
+    }
+
+    // Import other files in parallel, merging results as they complete
+    try {
+      entries =
+          IngestionExecutor.shared()
+              .foldCompleted(paths.removeAll(largePaths), ImportCsvTask::new, entries, Set::addAll);
     } catch (InterruptedException e) {
       logger.error("Interrupted", e);
       Thread.currentThread().interrupt();
     } catch (ExecutionException e) {
       return Either.left("Failed to get result from future");
-    } finally {
-      pool.shutdownNow();
     }
     return Either.right(entries);
   }
 
-  public static Either<String, List<LogEntry>> importLogEntriesFromFile(Path logPath) {
-    String content;
+  private static boolean isLarge(Path path) {
     try {
-      content = new String(Files.readAllBytes(logPath), UTF_8);
+      return Files.size(path) >= MappedCsvImporter.THRESHOLD;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  public static Either<String, List<LogEntry>> importLogEntriesFromFile(Path logPath) {
+    var h = readHeader(logPath);
+    if (h.isLeft()) {
+      return Either.left(h.getLeft());
+    }
+    var header = h.get();
+    var m = toHeaderMapping(header);
+    if (m.isLeft()) {
+      return Either.left(m.getLeft());
+    }
+    var columnMapping = m.get();
+    try (var channel = Files.newByteChannel(logPath)) {
+      var scanner = new CsvScanner(channel, toProjection(header.length, columnMapping));
+      scanner.next(); // header
+      var executor = IngestionExecutor.shared().fileTaskExecutor();
+      var entries = scanLogEntries(scanner, header.length, columnMapping, executor);
+      if (entries.isLeft()) {
+        logger.debug("{}: {}", logPath, entries.getLeft());
+        return Either.left("Unable to parse CSV file: " + logPath);
+      }
+      return Either.right(entries.get());
     } catch (IOException e) {
       return Either.left("Failed to read logs from filepath: " + logPath);
     }
-    var parsed = internalParseCsv(content);
-    if (parsed.isLeft()) {
-      return Either.left(parsed.getLeft());
-    }
-    java.util.List<LogEntry> entries = new ArrayList<>();
-    java.util.List<String> failures = new ArrayList<>();
-    boolean isHeader = true;
-    Map<String, Integer> columnMapping = HashMap.empty();
-    for (var row : parsed.get()) {
-      if (isHeader) {
-        var m = toHeaderMapping(row);
-        if (m.isLeft()) {
-          return Either.left(m.getLeft());
-        }
-        columnMapping = m.get();
-        isHeader = false;
-      } else {
-        toLogEntry(row, columnMapping).peek(entries::add).peekLeft(failures::add);
+  }
+
+  /**
+   * Reads the header of a CSV file, in its first row.
+   *
+   * @param logPath path of the CSV file
+   * @return either the column names or a failure
+   */
+  static Either<String, String[]> readHeader(Path logPath) {
+    try (var reader = new CsvReader(Files.newBufferedReader(logPath, UTF_8))) {
+      var header = reader.readRow();
+      if (header == null) {
+        return Either.left("Missing header in CSV file: " + logPath);
       }
+      return Either.right(header);
+    } catch (IOException e) {
+      return Either.left("Failed to read logs from filepath: " + logPath);
     }
-    if (failures.isEmpty()) {
-      return Either.right(List.ofAll(entries));
-    } else {
-      return Either.left("Unable to parse CSV file: " + logPath);
+  }
+
+  /**
+   * Scans the remaining rows into classified log entries.
+   *
+   * <p>Rows are scanned by the calling thread, which hands batches of rows to the classifier
+   * executor. Each batch is converted and classified independently, and batches are reassembled in
+   * scanning order. The number of pending batches is bounded, so that scanning cannot run far ahead
+   * of classification.
+   *
+   * @param scanner the scanner, positioned after the header
+   * @param columns number of columns in the header
+   * @param index column name-index mapping (key: column name, value: column index)
+   * @param classifier executor converting and classifying batches of rows
+   * @return either the log entries or a failure
+   * @throws IOException if an I/O error occurs
+   */
+  static Either<String, List<LogEntry>> scanLogEntries(
+      CsvScanner scanner, int columns, Map<String, Integer> index, Executor classifier)
+      throws IOException {
+    var batches = new BatchClassifier<String[]>(rows -> classify(rows, index), classifier);
+    String[] row;
+    while ((row = scanner.next()) != null) {
+      if (scanner.fieldCount() < columns) {
+        return Either.left("Unexpected number of columns: " + scanner.fieldCount());
+      }
+      var added = batches.add(row.clone()); // the scanner reuses its row
+      if (added.isLeft()) {
+        return Either.left(added.getLeft());
+      }
+    }
+    return batches.finish();
+  }
+
+  private static Either<String, List<LogEntry>> classify(
+      java.util.List<String[]> rows, Map<String, Integer> index) {
+    var entries = new ArrayList<LogEntry>(rows.size());
+    for (var row : rows) {
+      var entry = toLogEntry(row, index);
+      if (entry.isLeft()) {
+        return Either.left(entry.getLeft());
+      }
+      entry.get().classification();
+      entries.add(entry.get());
+    }
+    return Either.right(List.ofAll(entries));
+  }
+
+  /**
+   * Gets the columns which need to be decoded for creating log entries.
+   *
+   * @param columns number of columns in the header
+   * @param index column name-index mapping (key: column name, value: column index)
+   * @return for each column index, whether the column is decoded
+   */
+  static boolean[] toProjection(int columns, Map<String, Integer> index) {
+    var projection = new boolean[columns];
+    for (var col : REQUIRED_COLUMNS) {
+      projection[index.get(col).get()] = true;
     }
+    index.get(COL_STATUS).forEach(i -> projection[i] = true);
+    return projection;
   }
 
   /**
@@ -121,7 +218,7 @@ public class CsvImporter {
    * @param index column name-index mapping (key: column name, value: column index)
    * @return either a LogEntry or a failure
    */
-  private static Either<String, LogEntry> toLogEntry(String[] columns, Map<String, Integer> index) {
+  static Either<String, LogEntry> toLogEntry(String[] columns, Map<String, Integer> index) {
     var dateStr = columns[index.get(COL_DATE).get()];
     var service = columns[index.get(COL_SERVICE).get()];
     var message = columns[index.get(COL_MESSAGE).get()];
@@ -136,7 +233,7 @@ public class CsvImporter {
       status = "error";
     }
     try {
-      d = ZonedDateTime.parse(dateStr).withZoneSameLocal(ZoneId.of("UTC"));
+      d = Timestamps.parse(dateStr);
     } catch (DateTimeParseException e) {
       return Either.left("Unable to parse date: " + dateStr);
     }
@@ -169,72 +266,16 @@ public class CsvImporter {
   /**
    * Parses CSV content into a list of rows.
    *
-   * <p>This method assumes that the header is present in the first line of the content.
-   *
    * @param content the CSV content to parse
    * @return either a list of rows or a failure
+   * @see CsvReader
    */
   static Either<String, List<String[]>> internalParseCsv(String content) {
-    char sep = ',';
-    char qualifier = '"';
-    char newline1 = '\n';
-    char newline2 = '\r';
-
     var rows = new ArrayList<String[]>();
-    var arr = content.toCharArray();
-    int cols = 1;
-
-    // Header
-    for (int i = 0; arr[i] != newline1 && arr[i] != newline2; i++) {
-      if (arr[i] == sep) {
-        cols++;
-      }
-    }
-
-    var row = new String[cols];
-    int columnIdx = 0;
-    int i = 0;
-    while (i < arr.length) {
-      if (arr[i] == sep || arr[i] == newline1 || arr[i] == newline2) {
-        i++;
-      } else if (arr[i] == qualifier) {
-        // column with qualifier
-        i++;
-        int left = i;
-        while (i < arr.length) {
-          if (arr[i] == qualifier) {
-            boolean escaped = i + 1 < arr.length && arr[i + 1] == qualifier;
-            if (escaped) {
-              i += 2;
-            } else {
-              break;
-            }
-          } else {
-            i++;
-          }
-        }
-        row[columnIdx] = new String(arr, left, i - left).replaceAll("\"\"", "\"");
-        columnIdx++;
-        i++; // skip qualifier
-        if (columnIdx == cols) {
-          rows.add(row);
-          row = new String[cols];
-          columnIdx = 0;
-        }
-      } else {
-        // column without qualifier
-        int left = i;
-        while (i < arr.length && arr[i] != sep && arr[i] != newline1 && arr[i] != newline2) {
-          i++;
-        }
-        row[columnIdx] = new String(arr, left, i - left);
-        columnIdx++;
-        if (columnIdx == cols) {
-          rows.add(row);
-          row = new String[cols];
-          columnIdx = 0;
-        }
-      }
+    try (var reader = new CsvReader(new StringReader(content))) {
+      reader.forEachRow(rows::add);
+    } catch (IOException e) {
+      return Either.left("Failed to parse CSV content: " + e.getMessage());
     }
     return Either.right(List.ofAll(rows));
   }
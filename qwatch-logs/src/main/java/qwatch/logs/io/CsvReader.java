@@ -0,0 +1,176 @@
+package qwatch.logs.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * CSV Reader reads rows one by one from a character stream.
+ *
+ * <p>Fields are separated by commas and rows by {@code \n}, {@code \r\n} or {@code \r}. A field
+ * enclosed in double quotes may contain commas and line breaks, and a double quote inside it is
+ * escaped by another double quote. Blank lines are skipped.
+ *
+ * <p>Only the current row is buffered, so memory does not depend on the size of the input. This
+ * class is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class CsvReader implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final char SEP = ',';
+  private static final char QUALIFIER = '"';
+  private static final char LF = '\n';
+  private static final char CR = '\r';
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+
+  private final StringBuilder field = new StringBuilder();
+  private final ArrayList<String> fields = new ArrayList<>();
+
+  public CsvReader(Reader reader) {
+    this.reader = reader;
+  }
+
+  /**
+   * Creates a CSV reader decoding the channel in UTF-8.
+   *
+   * @param channel the channel to read
+   */
+  public CsvReader(ReadableByteChannel channel) {
+    this(Channels.newReader(channel, UTF_8.newDecoder(), -1));
+  }
+
+  /**
+   * Reads the next row.
+   *
+   * @return the next row, or {@code null} if the end of the stream is reached
+   * @throws IOException if an I/O error occurs
+   */
+  public String[] readRow() throws IOException {
+    while (true) {
+      int c = peek();
+      if (c < 0) {
+        return null;
+      }
+      if (c == LF || c == CR) {
+        // blank line
+        position++;
+        continue;
+      }
+      fields.clear();
+      while (readField()) {
+        // read until the end of the row
+      }
+      return fields.toArray(new String[0]);
+    }
+  }
+
+  /**
+   * Reads all the remaining rows and passes them to the consumer.
+   *
+   * @param consumer the row consumer
+   * @throws IOException if an I/O error occurs
+   */
+  public void forEachRow(Consumer<String[]> consumer) throws IOException {
+    String[] row;
+    while ((row = readRow()) != null) {
+      consumer.accept(row);
+    }
+  }
+
+  /**
+   * Reads a field and adds it to the current row.
+   *
+   * @return {@code true} if another field follows in the same row
+   */
+  private boolean readField() throws IOException {
+    field.setLength(0);
+    if (peek() == QUALIFIER) {
+      position++;
+      readQuoted();
+    }
+    // Unquoted field, or characters following the closing qualifier
+    while (true) {
+      if (position == limit && !fill()) {
+        fields.add(field.toString());
+        return false;
+      }
+      int start = position;
+      while (position < limit) {
+        char c = buffer[position];
+        if (c == SEP || c == LF || c == CR) {
+          field.append(buffer, start, position - start);
+          fields.add(field.toString());
+          position++;
+          if (c == CR && peek() == LF) {
+            position++;
+          }
+          return c == SEP;
+        }
+        position++;
+      }
+      field.append(buffer, start, position - start);
+    }
+  }
+
+  private void readQuoted() throws IOException {
+    while (true) {
+      if (position == limit && !fill()) {
+        // unterminated field, keep what has been read
+        return;
+      }
+      int start = position;
+      while (position < limit && buffer[position] != QUALIFIER) {
+        position++;
+      }
+      field.append(buffer, start, position - start);
+      if (position < limit) {
+        position++; // skip qualifier
+        if (peek() == QUALIFIER) {
+          field.append(QUALIFIER);
+          position++;
+        } else {
+          return;
+        }
+      }
+    }
+  }
+
+  private int peek() throws IOException {
+    if (position == limit && !fill()) {
+      return -1;
+    }
+    return buffer[position];
+  }
+
+  private boolean fill() throws IOException {
+    int n;
+    do {
+      n = reader.read(buffer, 0, buffer.length);
+    } while (n == 0);
+    if (n < 0) {
+      return false;
+    }
+    position = 0;
+    limit = n;
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
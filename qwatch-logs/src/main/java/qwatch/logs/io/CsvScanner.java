@@ -0,0 +1,263 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * CSV Scanner scans rows of UTF-8 bytes and decodes only the projected columns.
+ *
+ * <p>Separators, qualifiers and line breaks are ASCII bytes, which never appear inside multi-byte
+ * UTF-8 sequences, so rows and fields are delimited without decoding. Only the projected fields
+ * are turned into strings, the others are skipped. The CSV syntax is the same as {@link
+ * CsvReader}.
+ *
+ * <p>The scanner reuses the same row array for every row, so the caller must copy the fields it
+ * wants to keep before scanning the next row. This class is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+final class CsvScanner {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte SEP = ',';
+  private static final byte QUALIFIER = '"';
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  /** Scan status: no more rows. */
+  private static final int END_OF_INPUT = -1;
+
+  /** Scan status: the row is incomplete and has to be scanned again once more bytes are loaded. */
+  private static final int NEED_MORE_BYTES = -2;
+
+  /** Source of the bytes, {@code null} if the buffer contains the whole input. */
+  private final ReadableByteChannel channel;
+
+  private boolean endOfChannel;
+
+  /** Unread bytes are between the position and the limit of the buffer. */
+  private ByteBuffer buffer;
+
+  private final boolean[] projection;
+  private final String[] row;
+  private int fieldCount;
+  private byte[] scratch = new byte[256];
+
+  /**
+   * Creates a scanner over bytes already in memory, e.g. a mapped file region.
+   *
+   * @param buffer bytes to scan, from its position to its limit
+   * @param projection for each column index, whether the column is decoded
+   */
+  CsvScanner(ByteBuffer buffer, boolean[] projection) {
+    this.channel = null;
+    this.buffer = buffer;
+    this.projection = projection;
+    this.row = new String[projection.length];
+  }
+
+  /**
+   * Creates a scanner reading bytes from a channel.
+   *
+   * @param channel channel to read
+   * @param projection for each column index, whether the column is decoded
+   */
+  CsvScanner(ReadableByteChannel channel, boolean[] projection) {
+    this.channel = channel;
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    this.projection = projection;
+    this.row = new String[projection.length];
+  }
+
+  /**
+   * Scans the next row.
+   *
+   * @return the row, where columns which are not projected or missing are {@code null}; or {@code
+   *     null} if the end of the input is reached. The array is reused for the next rows.
+   * @throws IOException if an I/O error occurs
+   */
+  String[] next() throws IOException {
+    while (true) {
+      int end = scanRow();
+      if (end >= 0) {
+        buffer.position(end);
+        return row;
+      }
+      if (end == END_OF_INPUT) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of fields of the last row, which may differ from the number of columns.
+   *
+   * @return number of fields
+   */
+  int fieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Scans a row starting at the buffer position.
+   *
+   * @return the position after the row, or a negative status
+   */
+  private int scanRow() throws IOException {
+    int limit = buffer.limit();
+    int i = buffer.position();
+
+    // Skip blank lines
+    while (i < limit && (buffer.get(i) == LF || buffer.get(i) == CR)) {
+      i++;
+    }
+    buffer.position(i);
+    if (i == limit) {
+      return isEndOfInput() ? END_OF_INPUT : load();
+    }
+
+    Arrays.fill(row, null);
+    fieldCount = 0;
+    while (true) {
+      int start = i;
+      boolean quoted = false;
+      boolean escaped = false;
+      int contentEnd;
+      if (buffer.get(i) == QUALIFIER) {
+        quoted = true;
+        i++;
+        while (true) {
+          while (i < limit && buffer.get(i) != QUALIFIER) {
+            i++;
+          }
+          if (i + 1 >= limit && !isEndOfInput()) {
+            // The qualifier may be followed by another one in the next bytes
+            return load();
+          }
+          if (i + 1 < limit && buffer.get(i + 1) == QUALIFIER) {
+            escaped = true;
+            i += 2;
+          } else {
+            break;
+          }
+        }
+        contentEnd = Math.min(i, limit);
+        i = Math.min(i + 1, limit);
+      } else {
+        contentEnd = -1;
+      }
+      // Unquoted field, or bytes following the closing qualifier
+      while (i < limit && !isDelimiter(buffer.get(i))) {
+        i++;
+      }
+      if (i == limit && !isEndOfInput()) {
+        return load();
+      }
+      if (fieldCount < row.length && projection[fieldCount]) {
+        row[fieldCount] =
+            quoted ? decodeQuoted(start + 1, contentEnd, escaped, i) : decode(start, i);
+      }
+      fieldCount++;
+      if (i == limit) {
+        return i;
+      }
+      byte b = buffer.get(i++);
+      if (b == LF) {
+        return i;
+      }
+      if (b == CR) {
+        if (i == limit && !isEndOfInput()) {
+          return load();
+        }
+        return i < limit && buffer.get(i) == LF ? i + 1 : i;
+      }
+      // separator: next field
+      if (i == limit) {
+        if (!isEndOfInput()) {
+          return load();
+        }
+        if (fieldCount < row.length && projection[fieldCount]) {
+          row[fieldCount] = "";
+        }
+        fieldCount++;
+        return i;
+      }
+    }
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return b == SEP || b == LF || b == CR;
+  }
+
+  private String decode(int start, int end) {
+    int length = end - start;
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, length, UTF_8);
+    }
+    var bytes = scratch(length);
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, 0, length, UTF_8);
+  }
+
+  /** Decodes a quoted field and the bytes following its closing qualifier, if any. */
+  private String decodeQuoted(int start, int contentEnd, boolean escaped, int end) {
+    if (!escaped && contentEnd + 1 >= end) {
+      return decode(start, contentEnd);
+    }
+    var bytes = scratch(end - start);
+    int n = 0;
+    for (int i = start; i < contentEnd; i++) {
+      byte b = buffer.get(i);
+      bytes[n++] = b;
+      if (b == QUALIFIER) {
+        i++; // skip the second qualifier of the escape sequence
+      }
+    }
+    for (int i = contentEnd + 1; i < end; i++) {
+      bytes[n++] = buffer.get(i);
+    }
+    return new String(bytes, 0, n, UTF_8);
+  }
+
+  private byte[] scratch(int length) {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    return scratch;
+  }
+
+  private boolean isEndOfInput() {
+    return channel == null || endOfChannel;
+  }
+
+  /**
+   * Loads more bytes, keeping the unread ones. The buffer grows if it is full, and is filled
+   * completely so that a row is scanned again only a few times.
+   *
+   * @return {@link #NEED_MORE_BYTES}, as the current row needs to be scanned again
+   */
+  private int load() throws IOException {
+    buffer.compact();
+    if (!buffer.hasRemaining()) {
+      var larger = ByteBuffer.allocate(buffer.capacity() * 2);
+      buffer.flip();
+      larger.put(buffer);
+      buffer = larger;
+    }
+    int n = 0;
+    while (buffer.hasRemaining() && n >= 0) {
+      n = channel.read(buffer);
+    }
+    buffer.flip();
+    endOfChannel = n < 0;
+    return NEED_MORE_BYTES;
+  }
+}
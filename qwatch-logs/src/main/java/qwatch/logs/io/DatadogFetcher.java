@@ -0,0 +1,445 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.control.Either;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Datadog Fetcher downloads logs using the search endpoint of the Datadog Logs API v2.
+ *
+ * <p>The requested period is split into time slices, which are fetched concurrently. Each slice is
+ * fetched page by page, following the cursor of the previous page. Responses are parsed as they
+ * are received, and their entries are sent to the sink without keeping the page in memory.
+ *
+ * <p>Requests failing because of rate limiting (429), a server error (5xx) or an I/O error are
+ * retried with an exponential backoff and jitter, waiting at least until the rate limit is reset
+ * when the server tells so. A page is fetched again from its cursor, so the sink may receive the
+ * same entries twice if a response fails in the middle; {@link DayWriters} drops such duplicates.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class DatadogFetcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(DatadogFetcher.class);
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final JsonFactory jsonFactory = mapper.getFactory();
+
+  public static final URI DEFAULT_SITE = URI.create("https://api.datadoghq.com");
+  static final String SEARCH_PATH = "/api/v2/logs/events/search";
+  static final String HEADER_API_KEY = "DD-API-KEY";
+  static final String HEADER_APPLICATION_KEY = "DD-APPLICATION-KEY";
+  static final String HEADER_RATE_LIMIT_RESET = "X-RateLimit-Reset";
+
+  /** Maximum page size accepted by the API. */
+  public static final int MAX_PAGE_SIZE = 1_000;
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private URI site = DEFAULT_SITE;
+    private String apiKey;
+    private String applicationKey;
+    private String query = "status:error";
+    private int pageSize = MAX_PAGE_SIZE;
+    private Duration sliceDuration = Duration.ofHours(1);
+    private int concurrency = 4;
+    private int maxRetries = 5;
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    private Duration maxBackoff = Duration.ofMinutes(1);
+    private Duration requestTimeout = Duration.ofMinutes(1);
+
+    private Builder() {}
+
+    /**
+     * Sets the Datadog site to query, e.g. {@code https://api.datadoghq.eu}.
+     *
+     * <p>By default, {@code https://api.datadoghq.com}.
+     *
+     * @param site base URI of the API
+     * @return this
+     */
+    public Builder site(URI site) {
+      this.site = site;
+      return this;
+    }
+
+    /**
+     * Sets the API key, sent in header {@value #HEADER_API_KEY}.
+     *
+     * @param apiKey API key
+     * @return this
+     */
+    public Builder apiKey(String apiKey) {
+      this.apiKey = apiKey;
+      return this;
+    }
+
+    /**
+     * Sets the application key, sent in header {@value #HEADER_APPLICATION_KEY}.
+     *
+     * @param applicationKey application key
+     * @return this
+     */
+    public Builder applicationKey(String applicationKey) {
+      this.applicationKey = applicationKey;
+      return this;
+    }
+
+    /**
+     * Sets the search query, using the Datadog log search syntax.
+     *
+     * <p>By default, {@code status:error}.
+     *
+     * @param query search query
+     * @return this
+     */
+    public Builder query(String query) {
+      this.query = query;
+      return this;
+    }
+
+    /**
+     * Sets the number of logs per page, at most {@value #MAX_PAGE_SIZE}.
+     *
+     * <p>By default, {@value #MAX_PAGE_SIZE}.
+     *
+     * @param pageSize number of logs
+     * @return this
+     */
+    public Builder pageSize(int pageSize) {
+      this.pageSize = pageSize;
+      return this;
+    }
+
+    /**
+     * Sets the duration of the time slices fetched concurrently.
+     *
+     * <p>By default, 1 hour.
+     *
+     * @param sliceDuration duration of a slice
+     * @return this
+     */
+    public Builder sliceDuration(Duration sliceDuration) {
+      this.sliceDuration = sliceDuration;
+      return this;
+    }
+
+    /**
+     * Sets the number of slices fetched concurrently.
+     *
+     * <p>By default, 4.
+     *
+     * @param concurrency number of slices
+     * @return this
+     */
+    public Builder concurrency(int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    /**
+     * Sets the number of retries of a request, before failing.
+     *
+     * <p>By default, 5.
+     *
+     * @param maxRetries number of retries
+     * @return this
+     */
+    public Builder maxRetries(int maxRetries) {
+      this.maxRetries = maxRetries;
+      return this;
+    }
+
+    /**
+     * Sets the backoff before the first retry, doubled for each next retry up to the maximum.
+     *
+     * <p>By default, 1 second, up to 1 minute.
+     *
+     * @param initialBackoff backoff before the first retry
+     * @param maxBackoff maximum backoff
+     * @return this
+     */
+    public Builder backoff(Duration initialBackoff, Duration maxBackoff) {
+      this.initialBackoff = initialBackoff;
+      this.maxBackoff = maxBackoff;
+      return this;
+    }
+
+    /**
+     * Sets the timeout of a request, until the response headers are received.
+     *
+     * <p>By default, 1 minute.
+     *
+     * @param requestTimeout timeout
+     * @return this
+     */
+    public Builder requestTimeout(Duration requestTimeout) {
+      this.requestTimeout = requestTimeout;
+      return this;
+    }
+
+    public DatadogFetcher build() {
+      Objects.requireNonNull(apiKey, "apiKey");
+      Objects.requireNonNull(applicationKey, "applicationKey");
+      if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+        throw new IllegalArgumentException("Invalid page size: " + pageSize);
+      }
+      if (concurrency <= 0) {
+        throw new IllegalArgumentException("Concurrency should be positive: " + concurrency);
+      }
+      if (sliceDuration.isNegative() || sliceDuration.isZero()) {
+        throw new IllegalArgumentException("Slice duration should be positive: " + sliceDuration);
+      }
+      return new DatadogFetcher(this);
+    }
+  }
+
+  private final URI searchUri;
+  private final String apiKey;
+  private final String applicationKey;
+  private final String query;
+  private final int pageSize;
+  private final Duration sliceDuration;
+  private final int concurrency;
+  private final int maxRetries;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final Duration requestTimeout;
+  private final HttpClient client;
+
+  private DatadogFetcher(Builder builder) {
+    this.searchUri = builder.site.resolve(SEARCH_PATH);
+    this.apiKey = builder.apiKey;
+    this.applicationKey = builder.applicationKey;
+    this.query = builder.query;
+    this.pageSize = builder.pageSize;
+    this.sliceDuration = builder.sliceDuration;
+    this.concurrency = builder.concurrency;
+    this.maxRetries = builder.maxRetries;
+    this.initialBackoff = builder.initialBackoff;
+    this.maxBackoff = builder.maxBackoff;
+    this.requestTimeout = builder.requestTimeout;
+    this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+  }
+
+  /**
+   * Fetches the logs of a period.
+   *
+   * @param from start of the period, inclusive
+   * @param to end of the period, exclusive
+   * @param sink sink of the entries, called concurrently by the slices
+   * @return the number of entries fetched, or the first failure. The other slices are then
+   *     cancelled.
+   */
+  public Try<Long> fetch(ZonedDateTime from, ZonedDateTime to, LogEntrySink sink) {
+    var slices = slices(from, to);
+    var count = new AtomicLong();
+    var threadCount = new AtomicInteger();
+    var executor =
+        Executors.newFixedThreadPool(
+            Math.min(concurrency, Math.max(1, slices.size())),
+            r -> {
+              var thread = new Thread(r, "qwatch-datadog-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    var completionService = new ExecutorCompletionService<Long>(executor);
+    try {
+      for (var s : slices) {
+        completionService.submit(() -> count.addAndGet(fetchSlice(s._1, s._2, sink)));
+      }
+      // Wait for the slices as they complete, so that the first failure is not hidden behind
+      // slices still being fetched
+      for (int i = 0; i < slices.size(); i++) {
+        completionService.take().get();
+      }
+      return Try.success(count.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Try.failure(e);
+    } catch (ExecutionException e) {
+      return Try.failure(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  List<Tuple2<ZonedDateTime, ZonedDateTime>> slices(ZonedDateTime from, ZonedDateTime to) {
+    var slices = List.<Tuple2<ZonedDateTime, ZonedDateTime>>empty();
+    for (var start = from; start.isBefore(to); start = start.plus(sliceDuration)) {
+      var end = start.plus(sliceDuration);
+      slices = slices.append(Tuple.of(start, end.isBefore(to) ? end : to));
+    }
+    return slices;
+  }
+
+  /** Fetches all the pages of a slice. */
+  private long fetchSlice(ZonedDateTime from, ZonedDateTime to, LogEntrySink sink)
+      throws IOException, InterruptedException {
+    var count = new AtomicLong();
+    LogEntrySink counting =
+        entry -> {
+          sink.accept(entry);
+          count.incrementAndGet();
+        };
+    String cursor = null;
+    int pages = 0;
+    do {
+      cursor = fetchPage(from, to, cursor, counting);
+      pages++;
+    } while (cursor != null);
+    logger.info(
+        "[{}, {}): {} entries in {} pages", from, to, String.format("%,d", count.get()), pages);
+    return count.get();
+  }
+
+  /** Fetches a page, with retries, and returns the cursor of the next page. */
+  private String fetchPage(ZonedDateTime from, ZonedDateTime to, String cursor, LogEntrySink sink)
+      throws IOException, InterruptedException {
+    var request = newRequest(from, to, cursor);
+    for (int attempt = 0; ; attempt++) {
+      var result = tryPage(request, sink);
+      if (result.isRight()) {
+        return result.get();
+      }
+      var retry = result.getLeft();
+      if (attempt >= maxRetries) {
+        throw new IOException("Failed after " + (attempt + 1) + " attempts", retry.cause);
+      }
+      long sleepMillis = Math.max(backoffMillis(attempt), retry.afterMillis);
+      logger.warn(
+          "Attempt {} failed, retrying in {} ms: {}",
+          attempt + 1,
+          sleepMillis,
+          retry.cause.getMessage());
+      Thread.sleep(sleepMillis);
+    }
+  }
+
+  /**
+   * Fetches a page once.
+   *
+   * @return either a retryable failure or the cursor of the next page, possibly {@code null}
+   * @throws IOException if the failure is not retryable, e.g. a client error or a sink failure
+   */
+  private Either<Retry, String> tryPage(HttpRequest request, LogEntrySink sink)
+      throws IOException, InterruptedException {
+    LogEntrySink guarded =
+        entry -> {
+          try {
+            sink.accept(entry);
+          } catch (IOException e) {
+            throw new SinkException(e);
+          }
+        };
+    try {
+      var response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      try (InputStream body = response.body()) {
+        int status = response.statusCode();
+        if (status == 200) {
+          try (var parser = jsonFactory.createParser(body)) {
+            return Either.right(DatadogJson.readSearchPage(parser, guarded));
+          }
+        }
+        var failure = new IOException("Unexpected status " + status + " from " + searchUri);
+        if (status != 429 && status < 500) {
+          throw new ClientException(failure);
+        }
+        long afterMillis =
+            response
+                .headers()
+                .firstValue(HEADER_RATE_LIMIT_RESET)
+                .map(v -> Try.of(() -> Long.parseLong(v.trim()) * 1_000).getOrElse(0L))
+                .orElse(0L);
+        return Either.left(new Retry(failure, afterMillis));
+      }
+    } catch (SinkException | ClientException e) {
+      throw (IOException) e.getCause();
+    } catch (IOException e) {
+      // Connection failure, timeout, or response interrupted
+      return Either.left(new Retry(e, 0));
+    }
+  }
+
+  /** Exponential backoff with full jitter, between half and all of the computed delay. */
+  private long backoffMillis(int attempt) {
+    long max = maxBackoff.toMillis();
+    long delay = Math.min(max, initialBackoff.toMillis() << Math.min(attempt, 30));
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  private HttpRequest newRequest(ZonedDateTime from, ZonedDateTime to, String cursor) {
+    var body = mapper.createObjectNode();
+    var filter = body.putObject("filter");
+    filter.put("query", query);
+    filter.put("from", DateTimeFormatter.ISO_INSTANT.format(from));
+    filter.put("to", DateTimeFormatter.ISO_INSTANT.format(to));
+    body.put("sort", "timestamp");
+    var page = body.putObject("page");
+    page.put("limit", pageSize);
+    if (cursor != null) {
+      page.put("cursor", cursor);
+    }
+    return HttpRequest.newBuilder(searchUri)
+        .timeout(requestTimeout)
+        .header("Content-Type", "application/json")
+        .header(HEADER_API_KEY, apiKey)
+        .header(HEADER_APPLICATION_KEY, applicationKey)
+        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+        .build();
+  }
+
+  private static final class Retry {
+    private final IOException cause;
+    private final long afterMillis;
+
+    private Retry(IOException cause, long afterMillis) {
+      this.cause = cause;
+      this.afterMillis = afterMillis;
+    }
+  }
+
+  /** Failure of the sink, which is not retried. */
+  private static final class SinkException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private SinkException(IOException cause) {
+      super(cause);
+    }
+  }
+
+  /** Client error, which is not retried. */
+  private static final class ClientException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private ClientException(IOException cause) {
+      super(cause);
+    }
+  }
+}
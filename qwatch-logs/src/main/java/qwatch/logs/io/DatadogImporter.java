@@ -0,0 +1,120 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import io.vavr.control.Either;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Datadog Importer imports the JSON and NDJSON exports of Datadog, named {@code extract-*.json}
+ * or {@code extract-*.ndjson}.
+ *
+ * <p>Exports are parsed token by token, decoding only the fields of {@link LogEntry}, see {@link
+ * DatadogJson}. Files are imported in parallel, as CSV files.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DatadogImporter {
+  private static final Logger logger = LoggerFactory.getLogger(DatadogImporter.class);
+
+  static final String GLOB = "extract-*.{json,ndjson}";
+
+  private static final JsonFactory jsonFactory = new JsonFactory();
+
+  static Try<Set<Path>> listExportPaths(Path dir) {
+    Set<Path> paths = HashSet.empty();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, GLOB)) {
+      for (Path export : stream) {
+        paths = paths.add(export);
+      }
+      return Try.success(paths);
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+  }
+
+  static boolean isExport(Path path) {
+    var name = path.getFileName().toString();
+    return name.startsWith("extract-") && (name.endsWith(".json") || name.endsWith(".ndjson"));
+  }
+
+  /**
+   * Imports the JSON and NDJSON exports of a directory onto the heap.
+   *
+   * @param dir the directory containing the exports
+   * @return either the log entries imported or a failure
+   * @deprecated exports are collected by {@link CollectPipeline}, which streams them into the day
+   *     files
+   */
+  @Deprecated
+  public static Either<String, Set<LogEntry>> importLogEntries(Path dir) {
+    // Find paths
+    var tryListing = listExportPaths(dir);
+    if (tryListing.isFailure()) {
+      return Either.left(tryListing.getCause().getMessage());
+    }
+
+    // Import files in parallel, merging results as they complete
+    Set<LogEntry> entries = HashSet.empty();
+    try {
+      entries =
+          IngestionExecutor.shared()
+              .foldCompleted(tryListing.get(), ImportDatadogTask::new, entries, Set::addAll);
+    } catch (InterruptedException e) {
+      logger.error("Interrupted", e);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      return Either.left("Failed to get result from future");
+    }
+    return Either.right(entries);
+  }
+
+  public static Either<String, List<LogEntry>> importLogEntriesFromFile(Path path) {
+    // Entries are classified in batches while the parser keeps reading, as CSV rows
+    var batches = BatchClassifier.ofEntries(IngestionExecutor.shared().fileTaskExecutor());
+    var result =
+        readLogEntries(
+            path,
+            entry -> {
+              var added = batches.add(entry);
+              if (added.isLeft()) {
+                throw new IOException(added.getLeft());
+              }
+            });
+    if (result.isFailure()) {
+      logger.debug(path + ": failed", result.getCause());
+      return Either.left("Unable to parse Datadog export: " + path);
+    }
+    return batches.finish();
+  }
+
+  /**
+   * Reads the entries of an export, sending them to the sink as soon as they are read.
+   *
+   * @param path path of the export
+   * @param sink sink of the entries
+   * @return the number of entries read, or a failure
+   */
+  static Try<Long> readLogEntries(Path path, LogEntrySink sink) {
+    try (var parser = jsonFactory.createParser(Files.newInputStream(path))) {
+      return Try.success(DatadogJson.readExport(parser, sink));
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+  }
+
+  private DatadogImporter() {
+    // Utility class, do not instantiate
+  }
+}
@@ -0,0 +1,264 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+/**
+ * Streaming reader of Datadog log events, token by token, without building a JSON tree.
+ *
+ * <p>Only the fields needed by {@link LogEntry} are decoded: "timestamp", "host", "service",
+ * "status" and "message". They are searched at the top level of the event and in its "attributes"
+ * or "content" objects, up to two levels deep, the shallowest occurrence winning. This covers the
+ * events of the Logs API v2 ({@code {"id", "attributes": {...}}}), of the Logs API v1 ({@code
+ * {"id", "content": {...}}}) and flat exports. Other values are skipped.
+ *
+ * <p>Exports are read by {@link #readExport(JsonParser, LogEntrySink)}, whatever their layout: a
+ * JSON array of events, newline-delimited events (NDJSON), or response objects wrapping their
+ * events in a "data" or "logs" array.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+final class DatadogJson {
+
+  private static final int MAX_DEPTH = 2;
+
+  /**
+   * Reads a page of the Logs API v2 search response, sending its events to the sink as soon as
+   * they are read.
+   *
+   * @param parser parser, before the root object
+   * @param sink sink of the entries
+   * @return the cursor of the next page, or {@code null} if this is the last page
+   * @throws IOException if the response cannot be read, or the sink fails
+   */
+  static String readSearchPage(JsonParser parser, LogEntrySink sink) throws IOException {
+    String cursor = null;
+    expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.getCurrentName();
+      var token = parser.nextToken();
+      if ("data".equals(name) && token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          var entry = readEvent(parser);
+          if (entry != null) {
+            sink.accept(entry);
+          }
+        }
+      } else if ("meta".equals(name) && token == JsonToken.START_OBJECT) {
+        cursor = readCursor(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return cursor;
+  }
+
+  /**
+   * Reads an export, sending its events to the sink as soon as they are read.
+   *
+   * @param parser parser, before the first root value
+   * @param sink sink of the entries
+   * @return the number of entries read
+   * @throws IOException if the export cannot be read, or the sink fails
+   */
+  static long readExport(JsonParser parser, LogEntrySink sink) throws IOException {
+    long count = 0;
+    // Root values may follow each other, as in NDJSON
+    JsonToken token;
+    while ((token = parser.nextToken()) != null) {
+      if (token == JsonToken.START_ARRAY) {
+        count += readEvents(parser, sink);
+      } else if (token == JsonToken.START_OBJECT) {
+        count += readEventOrWrapper(parser, sink);
+      } else {
+        throw new IOException("Unexpected " + token + " at " + parser.getCurrentLocation());
+      }
+    }
+    return count;
+  }
+
+  /** Reads the events of an array, the parser being at its start. */
+  private static long readEvents(JsonParser parser, LogEntrySink sink) throws IOException {
+    long count = 0;
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token == JsonToken.START_OBJECT) {
+        var entry = readEvent(parser);
+        if (entry != null) {
+          sink.accept(entry);
+          count++;
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Reads a root object, which is either an event, or a response wrapping events in a "data" or
+   * "logs" array.
+   */
+  private static long readEventOrWrapper(JsonParser parser, LogEntrySink sink) throws IOException {
+    var fields = new Fields();
+    long count = readFields(parser, fields, 0, sink);
+    var entry = toEntry(fields);
+    if (entry != null) {
+      sink.accept(entry);
+      count++;
+    }
+    return count;
+  }
+
+  /** Reads {@code meta.page.after}, the parser being at the start of "meta". */
+  private static String readCursor(JsonParser parser) throws IOException {
+    String cursor = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.getCurrentName();
+      var token = parser.nextToken();
+      if ("page".equals(name) && token == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          var field = parser.getCurrentName();
+          if (parser.nextToken() == JsonToken.VALUE_STRING && "after".equals(field)) {
+            cursor = parser.getText();
+          } else {
+            parser.skipChildren();
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return cursor;
+  }
+
+  /**
+   * Reads a log event.
+   *
+   * @param parser parser, at the start of the event object. It is left at the end of the object.
+   * @return the entry, or {@code null} if the event has no timestamp or no message
+   * @throws IOException if the event cannot be read, or its timestamp cannot be parsed
+   */
+  static LogEntry readEvent(JsonParser parser) throws IOException {
+    var fields = new Fields();
+    readFields(parser, fields, 0, null);
+    return toEntry(fields);
+  }
+
+  private static LogEntry toEntry(Fields fields) throws IOException {
+    if (fields.values[Fields.TIMESTAMP] == null || fields.values[Fields.MESSAGE] == null) {
+      return null;
+    }
+    ZonedDateTime dateTime;
+    var timestamp = fields.values[Fields.TIMESTAMP];
+    try {
+      dateTime =
+          fields.numericTimestamp
+              ? Instant.ofEpochMilli(Long.parseLong(timestamp)).atZone(Timestamps.UTC)
+              : Timestamps.parse(timestamp);
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IOException("Unable to parse date: " + timestamp, e);
+    }
+    return LogEntry.newBuilder()
+        .dateTime(dateTime)
+        .host(orEmpty(fields.values[Fields.HOST]))
+        .service(orEmpty(fields.values[Fields.SERVICE]))
+        .status(fields.values[Fields.STATUS] != null ? fields.values[Fields.STATUS] : "error")
+        .message(fields.values[Fields.MESSAGE])
+        .build();
+  }
+
+  /**
+   * Reads the fields of an object into the given fields.
+   *
+   * @param wrapped sink of the events wrapped in a "data" or "logs" array of a root object, or
+   *     {@code null} if the object is an event
+   * @return the number of wrapped events
+   */
+  private static long readFields(JsonParser parser, Fields fields, int depth, LogEntrySink wrapped)
+      throws IOException {
+    long count = 0;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.getCurrentName();
+      var token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY
+          && wrapped != null
+          && ("data".equals(name) || "logs".equals(name))) {
+        count += readEvents(parser, wrapped);
+      } else if (token == JsonToken.START_OBJECT) {
+        if (depth < MAX_DEPTH && ("attributes".equals(name) || "content".equals(name))) {
+          readFields(parser, fields, depth + 1, null);
+        } else {
+          parser.skipChildren();
+        }
+      } else if (token.isScalarValue()) {
+        int index = Fields.indexOf(name);
+        if (index >= 0 && depth < fields.depths[index] && token != JsonToken.VALUE_NULL) {
+          fields.values[index] = parser.getText();
+          fields.depths[index] = depth;
+          if (index == Fields.TIMESTAMP) {
+            fields.numericTimestamp = token == JsonToken.VALUE_NUMBER_INT;
+          }
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return count;
+  }
+
+  private static String orEmpty(String value) {
+    return value != null ? value : "";
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected, JsonParser parser)
+      throws IOException {
+    if (actual != expected) {
+      throw new IOException(
+          "Expected " + expected + " but was " + actual + " at " + parser.getCurrentLocation());
+    }
+  }
+
+  /** Values of the decoded fields, with the depth where they were found. */
+  private static final class Fields {
+    private static final int TIMESTAMP = 0;
+    private static final int HOST = 1;
+    private static final int SERVICE = 2;
+    private static final int STATUS = 3;
+    private static final int MESSAGE = 4;
+
+    private final String[] values = new String[5];
+    private final int[] depths = {
+      Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE
+    };
+    private boolean numericTimestamp;
+
+    private static int indexOf(String name) {
+      switch (name) {
+        case "timestamp":
+          return TIMESTAMP;
+        case "host":
+          return HOST;
+        case "service":
+          return SERVICE;
+        case "status":
+          return STATUS;
+        case "message":
+          return MESSAGE;
+        default:
+          return -1;
+      }
+    }
+  }
+
+  private DatadogJson() {
+    // Utility class, do not instantiate
+  }
+}
@@ -0,0 +1,294 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.vavr.collection.HashSet;
+import io.vavr.collection.List;
+import io.vavr.collection.Set;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.ObjectMapperFactory;
+
+/**
+ * Format of the day files, storing the log entries of one day.
+ *
+ * <p>Day files are named {@code log.yyyy-MM-dd} followed by the suffix of their format. Whatever
+ * the format used for writing, day files of all formats can be read, so that a directory can hold
+ * day files written before switching format.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public enum DayFileFormat {
+
+  /** Pretty-printed JSON array, the original format. */
+  JSON(".json"),
+
+  /** Newline-delimited JSON: one compact JSON object per line. */
+  NDJSON(".ndjson"),
+
+  /** Newline-delimited JSON, compressed with GZIP. */
+  NDJSON_GZIP(".ndjson.gz"),
+
+  /** Binary columnar segment, see {@link SegmentWriter}. */
+  SEGMENT(".seg");
+
+  static final String GLOB = "log*.{json,ndjson,ndjson.gz,seg}";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final ObjectMapper mapper = ObjectMapperFactory.newObjectMapper();
+  private static final ObjectReader reader = mapper.readerFor(LogEntry.class);
+  // Streams are flushed when closed, not after each entry
+  private static final ObjectWriter prettyWriter =
+      mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  private static final ObjectWriter compactWriter =
+      mapper
+          .writerFor(LogEntry.class)
+          .without(SerializationFeature.INDENT_OUTPUT)
+          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+  private final String suffix;
+
+  DayFileFormat(String suffix) {
+    this.suffix = suffix;
+  }
+
+  public String suffix() {
+    return suffix;
+  }
+
+  public String filename(LocalDate day) {
+    return "log." + DateTimeFormatter.ISO_DATE.format(day) + suffix;
+  }
+
+  /**
+   * Opens a writer of a new day file.
+   *
+   * @param path path of the day file, which is created or truncated
+   * @return a writer, to be closed once all the entries are written
+   * @throws IOException if the file cannot be opened
+   */
+  public Writer newWriter(Path path) throws IOException {
+    if (this == SEGMENT) {
+      return new SegmentWriter(path);
+    }
+    var out = Files.newOutputStream(path);
+    try {
+      if (this == JSON) {
+        var seq = prettyWriter.writeValuesAsArray(new BufferedOutputStream(out, BUFFER_SIZE));
+        return new ArrayWriter(seq);
+      }
+      var buffered =
+          this == NDJSON_GZIP
+              ? new FastGzipOutputStream(out)
+              : new BufferedOutputStream(out, BUFFER_SIZE);
+      return new LineWriter(mapper.getFactory().createGenerator(buffered));
+    } catch (IOException e) {
+      out.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Lists the day files of a directory, in any format.
+   *
+   * @param dir directory of the day files
+   * @return the paths of the day files, or a failure
+   */
+  public static Try<Set<Path>> listDayFiles(Path dir) {
+    Set<Path> paths = HashSet.empty();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, GLOB)) {
+      for (Path path : stream) {
+        paths = paths.add(path);
+      }
+      return Try.success(paths);
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+  }
+
+  /**
+   * Gets the existing day files of a day, in any format.
+   *
+   * @param dir directory of the day files
+   * @param day the day
+   * @return the paths of the existing day files, usually at most one
+   */
+  public static List<Path> existingDayFiles(Path dir, LocalDate day) {
+    return List.of(values()).map(f -> dir.resolve(f.filename(day))).filter(Files::exists);
+  }
+
+  /**
+   * Gets the day of a day file, from its name.
+   *
+   * @param path path of the day file
+   * @return the day, or none if the name does not contain a valid date
+   */
+  public static Option<LocalDate> dayOf(Path path) {
+    var filename = path.getFileName().toString();
+    int start = "log.".length();
+    int end = start + "yyyy-MM-dd".length();
+    if (!filename.startsWith("log.") || filename.length() < end) {
+      return Option.none();
+    }
+    return Try.of(() -> LocalDate.parse(filename.substring(start, end))).toOption();
+  }
+
+  /**
+   * Opens a day file, in any format, for reading its entries lazily.
+   *
+   * @param path path of the day file
+   * @return a reader of the entries, to be closed once read
+   * @throws IOException if the file cannot be opened
+   */
+  public static Reader openEntries(Path path) throws IOException {
+    if (path.getFileName().toString().endsWith(SEGMENT.suffix)) {
+      return new SegmentReader(Segment.map(path));
+    }
+    InputStream in = Files.newInputStream(path);
+    try {
+      in =
+          path.getFileName().toString().endsWith(".gz")
+              ? new GZIPInputStream(in, BUFFER_SIZE)
+              : new BufferedInputStream(in, BUFFER_SIZE);
+      // Both a JSON array and root values following each other are read as a sequence
+      return new JsonReader(reader.readValues(in));
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /** Writer of the entries of a day file. */
+  public interface Writer extends LogEntrySink, Closeable {}
+
+  /**
+   * Reader of the entries of a day file. Entries of JSON day files are read lazily, so {@link
+   * #hasNext()} and {@link #next()} may throw a {@link
+   * com.fasterxml.jackson.databind.RuntimeJsonMappingException} if the file is invalid.
+   */
+  public interface Reader extends Iterator<LogEntry>, Closeable {}
+
+  private static final class JsonReader implements Reader {
+    private final MappingIterator<LogEntry> iterator;
+
+    private JsonReader(MappingIterator<LogEntry> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return iterator.hasNext();
+    }
+
+    @Override
+    public LogEntry next() {
+      return iterator.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+      iterator.close();
+    }
+  }
+
+  private static final class SegmentReader implements Reader {
+    private final SegmentCursor cursor;
+    private int remaining;
+
+    private SegmentReader(Segment segment) throws IOException {
+      this.cursor = segment.cursor(SegmentColumn.all());
+      this.remaining = segment.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public LogEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      cursor.next();
+      remaining--;
+      return cursor.entry();
+    }
+
+    @Override
+    public void close() {
+      // The mapping is released once the segment is garbage collected
+    }
+  }
+
+  private static final class ArrayWriter implements Writer {
+    private final SequenceWriter seq;
+
+    private ArrayWriter(SequenceWriter seq) {
+      this.seq = seq;
+    }
+
+    @Override
+    public void accept(LogEntry entry) throws IOException {
+      seq.write(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+      seq.close();
+    }
+  }
+
+  /** GZIP stream favouring speed over ratio, as day files are rewritten by each collect. */
+  private static final class FastGzipOutputStream extends GZIPOutputStream {
+    private FastGzipOutputStream(OutputStream out) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(Deflater.BEST_SPEED);
+    }
+  }
+
+  private static final class LineWriter implements Writer {
+    private final JsonGenerator generator;
+
+    private LineWriter(JsonGenerator generator) {
+      this.generator = generator;
+      // Lines are terminated explicitly, rather than separated
+      generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void accept(LogEntry entry) throws IOException {
+      compactWriter.writeValue(generator, entry);
+      generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.collection.TreeMap;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Day Writers write log entries into one file per day, with bounded memory.
+ *
+ * <p>Entries are buffered per day. When the total number of buffered entries exceeds the limit,
+ * the largest buffer is sorted and spilled into a temporary run file. When finishing, the runs and
+ * the remaining buffer of each day are merged, without duplicates and sorted by {@link
+ * LogEntry#BY_DATE}, into a temporary file next to the day file. Once the temporary files of all
+ * the days are written, each of them replaces its day file atomically, so that a failure while
+ * writing leaves all the day files unchanged. Day files of the same day in another {@link
+ * DayFileFormat} are then deleted, their entries being expected to be among the entries written.
+ * The summary of each day file written is returned, to be recorded in the {@link Manifest}.
+ *
+ * <p>Entries can be added concurrently. Other methods should not be called concurrently.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DayWriters {
+
+  private static final Logger logger = LoggerFactory.getLogger(DayWriters.class);
+
+  private final Path destDir;
+  private final Path spillDir;
+  private final long maxBufferedEntries;
+  private final DayFileFormat format;
+  private final ConcurrentHashMap<LocalDate, DayWriter> writers = new ConcurrentHashMap<>();
+  private final AtomicLong bufferedEntries = new AtomicLong();
+  private final Object spillLock = new Object();
+
+  /**
+   * Creates day writers.
+   *
+   * @param destDir directory of the day files
+   * @param spillDir directory of the temporary run files
+   * @param maxBufferedEntries maximum number of entries buffered in memory, for all the days
+   */
+  public DayWriters(Path destDir, Path spillDir, long maxBufferedEntries) {
+    this(destDir, spillDir, maxBufferedEntries, DayFileFormat.JSON);
+  }
+
+  /**
+   * Creates day writers.
+   *
+   * @param destDir directory of the day files
+   * @param spillDir directory of the temporary run files
+   * @param maxBufferedEntries maximum number of entries buffered in memory, for all the days
+   * @param format format of the day files written
+   */
+  public DayWriters(Path destDir, Path spillDir, long maxBufferedEntries, DayFileFormat format) {
+    this.destDir = destDir;
+    this.spillDir = spillDir;
+    this.maxBufferedEntries = maxBufferedEntries;
+    this.format = format;
+  }
+
+  /**
+   * Adds an entry to the writer of its day.
+   *
+   * @param entry the entry to add
+   * @throws IOException if spilling entries failed
+   */
+  public void add(LogEntry entry) throws IOException {
+    var day = entry.dateTime().toLocalDate();
+    var writer = writers.computeIfAbsent(day, DayWriter::new);
+    synchronized (writer) {
+      writer.buffer.add(entry);
+    }
+    if (bufferedEntries.incrementAndGet() > maxBufferedEntries) {
+      spillLargest();
+    }
+  }
+
+  private void spillLargest() throws IOException {
+    synchronized (spillLock) {
+      if (bufferedEntries.get() <= maxBufferedEntries) {
+        return; // spilled by another thread
+      }
+      DayWriter largest = null;
+      for (var writer : writers.values()) {
+        if (largest == null || writer.buffer.size() > largest.buffer.size()) {
+          largest = writer;
+        }
+      }
+      if (largest != null) {
+        synchronized (largest) {
+          bufferedEntries.addAndGet(-largest.spill());
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the days having entries.
+   *
+   * @return days, in any order
+   */
+  public List<LocalDate> days() {
+    return List.ofAll(writers.keySet());
+  }
+
+  /**
+   * Discards the days whose entries are all in their day file already, according to the manifest.
+   * The entries of the other days are sorted and deduplicated, in memory or into a single run file.
+   *
+   * @param manifest manifest of the day files
+   * @return the days discarded, or a failure
+   */
+  public Try<List<LocalDate>> discardUnchanged(Manifest manifest) {
+    var discarded = List.<LocalDate>empty();
+    for (var writer : List.ofAll(writers.values())) {
+      var summary = manifest.get(writer.day);
+      if (summary.isEmpty() || DayFileFormat.existingDayFiles(destDir, writer.day).isEmpty()) {
+        continue;
+      }
+      try {
+        if (writer.compact().equals(summary.get())) {
+          writer.discard();
+          discarded = discarded.prepend(writer.day);
+        }
+      } catch (IOException e) {
+        return Try.failure(e);
+      }
+    }
+    return Try.success(discarded);
+  }
+
+  /**
+   * Writes the day files and deletes the run files. Entries should not be added anymore.
+   *
+   * <p>All the day files are written into temporary files first, then moved. If writing fails, the
+   * temporary files are deleted and the day files are unchanged. Only a failure while moving, once
+   * everything is written, may leave some days replaced and others not.
+   *
+   * @return the summary of each day file written, or the first failure
+   */
+  public Try<Map<LocalDate, Manifest.Day>> finish() {
+    var all = List.ofAll(writers.values());
+    Map<LocalDate, Manifest.Day> summaries = TreeMap.empty();
+    try {
+      for (var writer : all) {
+        summaries = summaries.put(writer.day, writer.write());
+      }
+      for (var writer : all) {
+        writer.commit();
+      }
+      return Try.success(summaries);
+    } catch (IOException e) {
+      return Try.failure(e);
+    } finally {
+      all.forEach(DayWriter::deleteTmp);
+    }
+  }
+
+  private class DayWriter {
+    private final LocalDate day;
+    private final ArrayList<LogEntry> buffer = new ArrayList<>();
+    private final ArrayList<Path> runs = new ArrayList<>();
+    /** Temporary file written, until it replaces the day file. */
+    private Path tmp;
+
+    private DayWriter(LocalDate day) {
+      this.day = day;
+    }
+
+    /**
+     * Spills the buffer into a new run file.
+     *
+     * @return the number of entries removed from the buffer
+     */
+    private int spill() throws IOException {
+      int size = buffer.size();
+      var run = Files.createTempFile(spillDir, "run-" + day + "-", ".ndjson");
+      try (var w = DayFileFormat.NDJSON.newWriter(run)) {
+        writeSortedDistinct(buffer, w);
+      }
+      runs.add(run);
+      buffer.clear();
+      buffer.trimToSize();
+      return size;
+    }
+
+    /**
+     * Sorts and deduplicates the entries, in place or into a single run file.
+     *
+     * @return the summary of the entries
+     */
+    private Manifest.Day compact() throws IOException {
+      var digest = new Manifest.Digest();
+      if (runs.isEmpty()) {
+        int size = buffer.size();
+        buffer.sort(LogEntry.BY_DATE);
+        int distinct = 0;
+        for (var entry : buffer) {
+          if (distinct == 0 || LogEntry.BY_DATE.compare(buffer.get(distinct - 1), entry) != 0) {
+            buffer.set(distinct++, entry);
+            digest.add(entry);
+          }
+        }
+        buffer.subList(distinct, size).clear();
+        bufferedEntries.addAndGet(distinct - size);
+      } else {
+        bufferedEntries.addAndGet(-spill());
+        var merged = Files.createTempFile(spillDir, "run-" + day + "-", ".ndjson");
+        try (var w = DayFileFormat.NDJSON.newWriter(merged)) {
+          mergeRuns(
+              entry -> {
+                w.accept(entry);
+                digest.add(entry);
+              });
+        }
+        deleteRuns();
+        runs.add(merged);
+      }
+      return digest.toDay();
+    }
+
+    /** Drops the entries, leaving the day file untouched. */
+    private void discard() throws IOException {
+      writers.remove(day);
+      bufferedEntries.addAndGet(-buffer.size());
+      buffer.clear();
+      deleteRuns();
+    }
+
+    /**
+     * Writes the entries into a temporary file, see {@link #commit()}.
+     *
+     * @return the summary of the entries written
+     */
+    private Manifest.Day write() throws IOException {
+      int size = buffer.size();
+      var digest = new Manifest.Digest();
+      // Same directory as the day file, so that it can be moved atomically
+      tmp = Files.createTempFile(destDir, ".log." + day + "-", ".tmp");
+      try (var w = format.newWriter(tmp)) {
+        LogEntrySink out =
+            entry -> {
+              w.accept(entry);
+              digest.add(entry);
+            };
+        if (runs.isEmpty()) {
+          writeSortedDistinct(buffer, out);
+        } else {
+          spill();
+          mergeRuns(out);
+        }
+      }
+      deleteRuns();
+      bufferedEntries.addAndGet(-size);
+      buffer.clear();
+      return digest.toDay();
+    }
+
+    /** Replaces the day file, and the day files of other formats, by the temporary file. */
+    private void commit() throws IOException {
+      var path = destDir.resolve(format.filename(day));
+      Files.move(
+          tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      tmp = null;
+      for (var other : DayFileFormat.existingDayFiles(destDir, day)) {
+        if (!other.equals(path)) {
+          Files.delete(other);
+        }
+      }
+    }
+
+    private void deleteTmp() {
+      if (tmp == null) {
+        return;
+      }
+      try {
+        Files.deleteIfExists(tmp);
+      } catch (IOException e) {
+        logger.warn("Failed to delete " + tmp, e);
+      }
+      tmp = null;
+    }
+
+    private void deleteRuns() throws IOException {
+      for (var run : runs) {
+        Files.deleteIfExists(run);
+      }
+      runs.clear();
+    }
+
+    /** K-way merge of the sorted runs, skipping duplicates. */
+    private void mergeRuns(LogEntrySink out) throws IOException {
+      var iterators = new ArrayList<DayFileFormat.Reader>();
+      try {
+        var heap = new PriorityQueue<Head>(Comparator.comparing(h -> h.entry, LogEntry.BY_DATE));
+        for (var run : runs) {
+          var it = DayFileFormat.openEntries(run);
+          iterators.add(it);
+          if (it.hasNext()) {
+            heap.add(new Head(it.next(), it));
+          }
+        }
+        LogEntry previous = null;
+        while (!heap.isEmpty()) {
+          var head = heap.poll();
+          if (previous == null || LogEntry.BY_DATE.compare(previous, head.entry) != 0) {
+            out.accept(head.entry);
+            previous = head.entry;
+          }
+          if (head.iterator.hasNext()) {
+            heap.add(new Head(head.iterator.next(), head.iterator));
+          }
+        }
+      } finally {
+        for (var it : iterators) {
+          it.close();
+        }
+      }
+    }
+  }
+
+  private static class Head {
+    private final LogEntry entry;
+    private final DayFileFormat.Reader iterator;
+
+    private Head(LogEntry entry, DayFileFormat.Reader iterator) {
+      this.entry = entry;
+      this.iterator = iterator;
+    }
+  }
+
+  /** Sorts the entries in place and writes them, skipping duplicates. */
+  private static void writeSortedDistinct(ArrayList<LogEntry> entries, LogEntrySink out)
+      throws IOException {
+    entries.sort(LogEntry.BY_DATE);
+    LogEntry previous = null;
+    for (var entry : entries) {
+      if (previous == null || LogEntry.BY_DATE.compare(previous, entry) != 0) {
+        out.accept(entry);
+        previous = entry;
+      }
+    }
+  }
+}
@@ -0,0 +1,326 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extract Watcher collects the extracts of a directory as soon as they are written.
+ *
+ * <p>The directory is watched using a {@link WatchService}. When an extract is created or
+ * modified, it becomes pending. A pending extract is collected once its size and modification time
+ * have not changed during the quiet period, i.e. once it is likely to be fully written. Ready
+ * extracts are collected together using {@link CollectPipeline#runIncremental(Iterable, Path)},
+ * so only their days are rewritten. Extracts which fail to be collected are retried after another
+ * quiet period. Extracts already in the directory when the watcher starts are not collected,
+ * unless they are modified later.
+ *
+ * <p>If a pattern catalog is given, it is reloaded before collecting whenever the catalog file has
+ * been modified, so that new extracts are classified with its latest version.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class ExtractWatcher implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExtractWatcher.class);
+
+  private static final String GLOB = "extract-*.{csv,json,ndjson}";
+
+  public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofSeconds(2);
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+
+    private Path csvDir;
+    private Path destDir;
+    private CollectPipeline pipeline;
+    private Path catalog;
+    private Duration quietPeriod = DEFAULT_QUIET_PERIOD;
+
+    private Builder() {}
+
+    /**
+     * Sets the directory where extracts are downloaded.
+     *
+     * @param csvDir directory to watch
+     * @return this
+     */
+    public Builder csvDir(Path csvDir) {
+      this.csvDir = csvDir;
+      return this;
+    }
+
+    /**
+     * Sets the directory of the JSON day files.
+     *
+     * @param destDir destination directory
+     * @return this
+     */
+    public Builder destDir(Path destDir) {
+      this.destDir = destDir;
+      return this;
+    }
+
+    /**
+     * Sets the pipeline collecting the extracts.
+     *
+     * <p>By default, a pipeline with the default settings of {@link CollectPipeline.Builder}.
+     *
+     * @param pipeline collect pipeline
+     * @return this
+     */
+    public Builder pipeline(CollectPipeline pipeline) {
+      this.pipeline = pipeline;
+      return this;
+    }
+
+    /**
+     * Sets the pattern catalog used for classification, instead of the builtin patterns. The
+     * catalog is installed when the watcher starts, and installed again before collecting extracts
+     * if it was modified meanwhile.
+     *
+     * @param catalog path of the catalog file
+     * @return this
+     * @see CatalogReloader
+     */
+    public Builder catalog(Path catalog) {
+      this.catalog = catalog;
+      return this;
+    }
+
+    /**
+     * Sets how long an extract must remain unchanged before being collected.
+     *
+     * <p>By default, 2 seconds.
+     *
+     * @param quietPeriod quiet period
+     * @return this
+     */
+    public Builder quietPeriod(Duration quietPeriod) {
+      this.quietPeriod = quietPeriod;
+      return this;
+    }
+
+    /**
+     * Builds the watcher and starts watching the directory.
+     *
+     * @return the watcher
+     * @throws IOException if the directory cannot be watched, or the catalog cannot be imported
+     */
+    public ExtractWatcher start() throws IOException {
+      Objects.requireNonNull(csvDir, "csvDir");
+      Objects.requireNonNull(destDir, "destDir");
+      return new ExtractWatcher(this);
+    }
+  }
+
+  private final Path csvDir;
+  private final Path destDir;
+  private final CollectPipeline pipeline;
+  private final CatalogReloader catalog;
+  private final long quietNanos;
+  private final PathMatcher matcher;
+  private final WatchService watchService;
+
+  /** Last known state of each extract, collected or existing at start. */
+  private final HashMap<Path, FileState> known = new HashMap<>();
+
+  /** Extracts waiting to be unchanged during the quiet period. */
+  private final HashMap<Path, Observation> pending = new HashMap<>();
+
+  private ExtractWatcher(Builder builder) throws IOException {
+    this.csvDir = builder.csvDir;
+    this.destDir = builder.destDir;
+    this.pipeline =
+        builder.pipeline != null ? builder.pipeline : CollectPipeline.newBuilder().build();
+    this.catalog = builder.catalog != null ? new CatalogReloader(builder.catalog) : null;
+    if (catalog != null) {
+      var tryCatalog = catalog.reloadIfModified();
+      if (tryCatalog.isFailure()) {
+        throw new IOException("Failed to import catalog " + catalog.path(), tryCatalog.getCause());
+      }
+    }
+    this.quietNanos = builder.quietPeriod.toNanos();
+    this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + GLOB);
+    this.watchService = csvDir.getFileSystem().newWatchService();
+    csvDir.register(
+        watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(csvDir, GLOB)) {
+      for (var path : stream) {
+        known.put(path, FileState.of(path));
+      }
+    }
+    logger.info("Watching {}, {} existing extracts ignored", csvDir, known.size());
+  }
+
+  /**
+   * Waits for changes in the directory, then collects the extracts which became ready.
+   *
+   * @param timeout maximum time to wait for a change
+   * @return the extracts collected, possibly empty
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public List<Path> poll(Duration timeout) throws InterruptedException {
+    // Wake up in time for pending extracts to be checked
+    long waitNanos = timeout.toNanos();
+    if (!pending.isEmpty()) {
+      waitNanos = Math.min(waitNanos, quietNanos);
+    }
+    var key = watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+    if (key != null) {
+      for (var event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          rescan();
+        } else {
+          var path = csvDir.resolve((Path) event.context());
+          if (!matcher.matches(path.getFileName())) {
+            continue;
+          }
+          if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            known.remove(path);
+            pending.remove(path);
+          } else {
+            observe(path);
+          }
+        }
+      }
+      key.reset();
+    }
+    return collectReady();
+  }
+
+  private void rescan() {
+    logger.warn("Events lost for {}, rescanning", csvDir);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(csvDir, GLOB)) {
+      stream.forEach(this::observe);
+    } catch (IOException e) {
+      logger.error("Failed to rescan " + csvDir, e);
+    }
+  }
+
+  private void observe(Path path) {
+    var state = FileState.of(path);
+    if (state.equals(known.get(path))) {
+      return; // e.g. a modification event received after the extract was collected
+    }
+    var previous = pending.get(path);
+    if (previous == null || !previous.state.equals(state)) {
+      pending.put(path, new Observation(state, System.nanoTime()));
+    }
+  }
+
+  private List<Path> collectReady() {
+    long now = System.nanoTime();
+    var ready = new ArrayList<Path>();
+    var states = new HashMap<Path, FileState>();
+    for (var it = pending.entrySet().iterator(); it.hasNext(); ) {
+      var e = it.next();
+      var path = e.getKey();
+      var state = FileState.of(path);
+      if (state.size < 0) {
+        it.remove(); // deleted
+      } else if (!state.equals(e.getValue().state)) {
+        e.setValue(new Observation(state, now)); // still being written
+      } else if (now - e.getValue().sinceNanos >= quietNanos && state.size > 0) {
+        it.remove();
+        ready.add(path);
+        states.put(path, state);
+      }
+    }
+    if (ready.isEmpty()) {
+      return List.empty();
+    }
+    if (catalog != null) {
+      catalog
+          .reloadIfModified()
+          .onFailure(e -> logger.error("Failed to reload catalog " + catalog.path(), e));
+    }
+    var result = pipeline.runIncremental(ready, destDir);
+    if (result.isFailure()) {
+      logger.error("Failed to collect " + ready, result.getCause());
+      // Day files are unchanged, so the extracts are collected again after the quiet period
+      states.forEach((path, state) -> pending.put(path, new Observation(state, now)));
+      return List.empty();
+    }
+    // Once collected, the extracts are known: they are collected again only if modified
+    known.putAll(states);
+    logger.info("Collected {}", ready);
+    result.get().forEach(s -> logger.debug("Stage {}", s));
+    return List.ofAll(ready);
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  /** Size and modification time of a file. */
+  private static final class FileState {
+    private static final FileState MISSING = new FileState(-1, -1);
+
+    private final long size;
+    private final long modifiedMillis;
+
+    private FileState(long size, long modifiedMillis) {
+      this.size = size;
+      this.modifiedMillis = modifiedMillis;
+    }
+
+    private static FileState of(Path path) {
+      try {
+        return new FileState(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+      } catch (IOException e) {
+        return MISSING;
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof FileState)) {
+        return false;
+      }
+      var that = (FileState) o;
+      return size == that.size && modifiedMillis == that.modifiedMillis;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(size, modifiedMillis);
+    }
+  }
+
+  private static final class Observation {
+    private final FileState state;
+    private final long sinceNanos;
+
+    private Observation(FileState state, long sinceNanos) {
+      this.state = state;
+      this.sinceNanos = sinceNanos;
+    }
+  }
+}
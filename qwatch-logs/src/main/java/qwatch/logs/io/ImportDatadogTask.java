@@ -0,0 +1,36 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.HashSet;
+import io.vavr.collection.Set;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class ImportDatadogTask implements Callable<Set<LogEntry>> {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImportDatadogTask.class);
+  private final Path export;
+
+  public ImportDatadogTask(Path export) {
+    this.export = export;
+  }
+
+  @Override
+  public Set<LogEntry> call() {
+    var result = DatadogImporter.importLogEntriesFromFile(export);
+    if (result.isRight()) {
+      String size = String.format("%,d", result.get().size());
+      logger.info("{}: {} entries", export, size);
+      return result.get().toSet();
+    } else {
+      logger.warn("{}: failed\n{}", export, result.getLeft());
+      return HashSet.empty();
+    }
+  }
+}
@@ -16,14 +16,23 @@ public class ImportJsonTask implements Callable<Set<LogEntry>> {
 
   private static final Logger logger = LoggerFactory.getLogger(ImportJsonTask.class);
   private final Path jsonPath;
+  private final boolean classify;
 
   public ImportJsonTask(Path jsonPath) {
+    this(jsonPath, true);
+  }
+
+  public ImportJsonTask(Path jsonPath, boolean classify) {
     this.jsonPath = jsonPath;
+    this.classify = classify;
   }
 
   @Override
   public Set<LogEntry> call() {
     var tryImport = JsonImporter.importLogEntriesFromFile(jsonPath);
+    if (classify) {
+      tryImport.forEach(entries -> entries.forEach(LogEntry::classification));
+    }
     return tryImport
         .onSuccess(s -> logger.info("{}: {} entries", jsonPath, String.format("%,d", s.size())))
         .onFailure(e -> logger.error(jsonPath + ": failed to import", e))
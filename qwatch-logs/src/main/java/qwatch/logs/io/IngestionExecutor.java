@@ -0,0 +1,263 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Ingestion Executor imports files in parallel, with a bound on the files being imported.
+ *
+ * <p>A file is in flight from its submission until its result is consumed. New files are
+ * submitted only while the number of files and the total size of the files in flight are under
+ * the limits, so the results held in memory at the same time are bounded, whatever the number of
+ * files. Results are consumed by the calling thread as soon as they complete, not in submission
+ * order.
+ *
+ * <p>A {@link #shared()} executor is used by the importers. Its settings come from the system
+ * properties {@value #PROP_THREADS}, {@value #PROP_MAX_FILES} and {@value #PROP_MAX_BYTES}, and
+ * it can be replaced using {@link #install(IngestionExecutor)}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class IngestionExecutor implements AutoCloseable {
+
+  public static final String PROP_THREADS = "qwatch.ingestion.threads";
+  public static final String PROP_MAX_FILES = "qwatch.ingestion.maxInFlightFiles";
+  public static final String PROP_MAX_BYTES = "qwatch.ingestion.maxInFlightBytes";
+
+  public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 512L << 20;
+
+  private static volatile IngestionExecutor shared;
+
+  /** Executor owning the current thread, if it is one of the threads of an executor. */
+  private static final ThreadLocal<IngestionExecutor> owner = new ThreadLocal<>();
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Gets the executor shared by the importers, creating it from the system properties if needed.
+   *
+   * @return the shared executor
+   */
+  public static IngestionExecutor shared() {
+    var executor = shared;
+    if (executor == null) {
+      synchronized (IngestionExecutor.class) {
+        executor = shared;
+        if (executor == null) {
+          var builder = newBuilder();
+          var threads = Integer.getInteger(PROP_THREADS);
+          var maxFiles = Integer.getInteger(PROP_MAX_FILES);
+          var maxBytes = Long.getLong(PROP_MAX_BYTES);
+          if (threads != null) {
+            builder.threads(threads);
+          }
+          if (maxFiles != null) {
+            builder.maxInFlightFiles(maxFiles);
+          }
+          if (maxBytes != null) {
+            builder.maxInFlightBytes(maxBytes);
+          }
+          shared = executor = builder.build();
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Replaces the shared executor. The previous one is returned without being closed, since imports
+   * may still be running on it.
+   *
+   * @param executor the new shared executor
+   * @return the previous shared executor, possibly {@code null}
+   */
+  public static synchronized IngestionExecutor install(IngestionExecutor executor) {
+    var previous = shared;
+    shared = executor;
+    return previous;
+  }
+
+  public static class Builder {
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxInFlightFiles = -1;
+    private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+
+    /**
+     * Sets the number of importing threads.
+     *
+     * <p>By default, one thread per available processor.
+     *
+     * @param threads number of threads
+     * @return this
+     */
+    public Builder threads(int threads) {
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of files in flight per import.
+     *
+     * <p>By default, twice the number of threads.
+     *
+     * @param maxInFlightFiles maximum number of files
+     * @return this
+     */
+    public Builder maxInFlightFiles(int maxInFlightFiles) {
+      this.maxInFlightFiles = maxInFlightFiles;
+      return this;
+    }
+
+    /**
+     * Sets the maximum total size of the files in flight per import. A file larger than this limit
+     * is still imported, alone.
+     *
+     * <p>By default, {@value #DEFAULT_MAX_IN_FLIGHT_BYTES} bytes.
+     *
+     * @param maxInFlightBytes maximum size in bytes
+     * @return this
+     */
+    public Builder maxInFlightBytes(long maxInFlightBytes) {
+      this.maxInFlightBytes = maxInFlightBytes;
+      return this;
+    }
+
+    public IngestionExecutor build() {
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Threads should be positive, but was " + threads);
+      }
+      return new IngestionExecutor(this);
+    }
+  }
+
+  private final ThreadPoolExecutor pool;
+  private final int maxInFlightFiles;
+  private final long maxInFlightBytes;
+
+  private IngestionExecutor(Builder builder) {
+    var count = new AtomicInteger();
+    this.pool =
+        new ThreadPoolExecutor(
+            builder.threads,
+            builder.threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+              Runnable owned =
+                  () -> {
+                    owner.set(this);
+                    r.run();
+                  };
+              var thread = new Thread(owned, "qwatch-ingestion-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.maxInFlightFiles =
+        builder.maxInFlightFiles > 0 ? builder.maxInFlightFiles : 2 * builder.threads;
+    this.maxInFlightBytes = builder.maxInFlightBytes;
+  }
+
+  /**
+   * Imports the files and merges each result into the accumulated value, in the calling thread, as
+   * soon as it is available.
+   *
+   * @param paths files to import
+   * @param taskFactory creates the import task of a file
+   * @param zero initial value
+   * @param merger merges a result into the accumulated value
+   * @param <T> type of the result of an import task
+   * @param <R> type of the accumulated value
+   * @return the accumulated value
+   * @throws InterruptedException if interrupted while waiting for a result
+   * @throws ExecutionException if an import task failed. Remaining results are not merged.
+   */
+  public <T, R> R foldCompleted(
+      Iterable<Path> paths,
+      Function<Path, ? extends Callable<T>> taskFactory,
+      R zero,
+      BiFunction<R, ? super T, R> merger)
+      throws InterruptedException, ExecutionException {
+    var value = zero;
+    var completionService = new ExecutorCompletionService<T>(pool);
+    var sizes = new HashMap<Future<T>, Long>();
+    long bytesInFlight = 0;
+    var iterator = paths.iterator();
+    Path next = iterator.hasNext() ? iterator.next() : null;
+    try {
+      while (next != null || !sizes.isEmpty()) {
+        // Submit as many files as the limits allow, and at least one
+        while (next != null && sizes.size() < maxInFlightFiles) {
+          long size = sizeOf(next);
+          if (!sizes.isEmpty() && bytesInFlight + size > maxInFlightBytes) {
+            break;
+          }
+          sizes.put(completionService.submit(taskFactory.apply(next)), size);
+          bytesInFlight += size;
+          next = iterator.hasNext() ? iterator.next() : null;
+        }
+        var future = completionService.take();
+        bytesInFlight -= sizes.remove(future);
+        value = merger.apply(value, future.get());
+      }
+    } finally {
+      sizes.keySet().forEach(f -> f.cancel(true));
+    }
+    return value;
+  }
+
+  /**
+   * Gets an executor for the tasks of a single file, such as its classification batches. Tasks run
+   * on this executor, unless they are submitted by one of its threads: they then run in the
+   * submitting thread, which would otherwise wait for tasks queued behind the files occupying all
+   * the threads. Files are then still imported in parallel, one per thread.
+   *
+   * @return an executor for splitting a file into tasks
+   */
+  public Executor fileTaskExecutor() {
+    return task -> {
+      if (owner.get() == this) {
+        task.run();
+      } else {
+        pool.execute(task);
+      }
+    };
+  }
+
+  /** Gets the underlying executor service, for code splitting a single file into tasks. */
+  ExecutorService executorService() {
+    return pool;
+  }
+
+  private static long sizeOf(Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException e) {
+      // the import task reports it
+      return 0;
+    }
+  }
+
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+}
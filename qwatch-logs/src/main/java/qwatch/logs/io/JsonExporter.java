@@ -1,42 +1,48 @@
 package qwatch.logs.io;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.vavr.collection.Map;
 import io.vavr.collection.SortedSet;
 import io.vavr.control.Try;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import qwatch.logs.model.LogEntry;
-import qwatch.logs.util.ObjectMapperFactory;
 
 /**
+ * Exporter of log entries into day files, streaming each entry into the file of its day.
+ *
  * @author Mincong Huang
  * @since 1.0
  */
 public class JsonExporter {
 
   private final Path logDir;
-  private static final ObjectMapper mapper = ObjectMapperFactory.newObjectMapper();
+  private final DayFileFormat format;
 
   public JsonExporter(Path logDir) {
+    this(logDir, DayFileFormat.JSON);
+  }
+
+  public JsonExporter(Path logDir, DayFileFormat format) {
     this.logDir = logDir;
+    this.format = format;
   }
 
   public Try<Void> export(Map<LocalDate, SortedSet<LogEntry>> entriesByDay) {
     for (var tuple : entriesByDay) {
-      String filename = "log." + DateTimeFormatter.ISO_DATE.format(tuple._1) + ".json";
-      Path path = logDir.resolve(filename);
+      Path path = logDir.resolve(format.filename(tuple._1));
       try {
-        Files.deleteIfExists(path);
+        for (var existing : DayFileFormat.existingDayFiles(logDir, tuple._1)) {
+          Files.delete(existing);
+        }
       } catch (IOException e) {
         return Try.failure(e);
       }
-      try (FileWriter w = new FileWriter(path.toFile())) {
-        mapper.writeValue(w, tuple._2.toJavaList());
+      try (var w = format.newWriter(path)) {
+        for (var entry : tuple._2) {
+          w.accept(entry);
+        }
       } catch (IOException e) {
         return Try.failure(e);
       }
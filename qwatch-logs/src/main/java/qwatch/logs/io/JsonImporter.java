@@ -1,45 +1,53 @@
 package qwatch.logs.io;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import io.vavr.collection.HashSet;
 import io.vavr.collection.Set;
 import io.vavr.control.Try;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import qwatch.logs.model.LogEntry;
-import qwatch.logs.util.ObjectMapperFactory;
 
 /**
- * Utility class for JSON export.
+ * Utility class for importing the day files, in any {@link DayFileFormat}.
  *
  * @author Mincong Huang
  * @since 1.0
  */
 public class JsonImporter {
 
-  private static final ObjectMapper mapper = ObjectMapperFactory.newObjectMapper();
   private static final Logger logger = LoggerFactory.getLogger(JsonImporter.class);
 
   static Try<Set<Path>> listLogPaths(Path dir) {
-    Set<Path> paths = HashSet.empty();
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "log*.json")) {
-      for (Path csv : stream) {
-        paths = paths.add(csv);
-      }
-      return Try.success(paths);
-    } catch (IOException e) {
-      return Try.failure(e);
-    }
+    return DayFileFormat.listDayFiles(dir);
   }
 
+  /**
+   * Imports log entries from the day files of the given directory, classifying them.
+   *
+   * @param dir the directory containing the day files
+   * @return the log entries imported
+   * @deprecated day files are scanned by {@link SegmentStore} without loading them onto the heap
+   */
+  @Deprecated
   public static Try<Set<LogEntry>> importLogEntries(Path dir) {
+    return importLogEntries(dir, true);
+  }
+
+  /**
+   * Imports log entries from the day files of the given directory.
+   *
+   * @param dir the directory containing the day files
+   * @param classify whether log entries are classified during the import, by the importing
+   *     threads. Otherwise, classification is resolved lazily, when first needed.
+   * @return the log entries imported
+   * @deprecated day files are scanned by {@link SegmentStore} without loading them onto the heap
+   */
+  @Deprecated
+  public static Try<Set<LogEntry>> importLogEntries(Path dir, boolean classify) {
     // Find paths
     var tryListing = listLogPaths(dir);
     if (tryListing.isFailure()) {
@@ -47,38 +55,37 @@ public class JsonImporter {
     }
     var paths = tryListing.get();
 
-    // Import log entries
+    // Import log entries, merging results as they complete
     Set<LogEntry> entries = HashSet.empty();
-    var pool = Executors.newWorkStealingPool();
-    var tasks = paths.map(ImportJsonTask::new).toSet();
     try {
-      for (var future : pool.invokeAll(tasks.toJavaSet())) {
-        if (!future.isCancelled()) {
-          entries = entries.addAll(future.get());
-        }
-      }
+      entries =
+          IngestionExecutor.shared()
+              .foldCompleted(paths, p -> new ImportJsonTask(p, classify), entries, Set::addAll);
     } catch (InterruptedException e) {
       logger.error("Interrupted", e);
       Thread.currentThread().interrupt();
     } catch (ExecutionException e) {
       logger.error("Failed to get result from future", e);
       return Try.failure(e);
-    } finally {
-      pool.shutdownNow();
     }
     return Try.success(entries);
   }
 
+  /**
+   * Imports log entries from a day file, in any {@link DayFileFormat}. Entries are decoded one at a
+   * time, as the file is read.
+   *
+   * @param path path of the day file
+   * @return the log entries imported, or a failure
+   */
   public static Try<Set<LogEntry>> importLogEntriesFromFile(Path path) {
     Set<LogEntry> values = HashSet.empty();
-    var reader = mapper.readerFor(LogEntry.class);
-    try {
-      Iterator<LogEntry> iterator = reader.readValues(path.toFile());
+    try (var iterator = DayFileFormat.openEntries(path)) {
       while (iterator.hasNext()) {
         values = values.add(iterator.next());
       }
       return Try.success(values);
-    } catch (IOException e) {
+    } catch (IOException | RuntimeJsonMappingException e) {
       return Try.failure(e);
     }
   }
@@ -0,0 +1,48 @@
+package qwatch.logs.io;
+
+import io.vavr.control.Option;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+
+/**
+ * Log Cursor is a view of the log entry a cursor is positioned on.
+ *
+ * <p>Cursors are flyweights: the same cursor is moved from one entry to the next one, decoding the
+ * values of each entry on demand, so that iterating entries does not allocate them. Values must
+ * not be kept once the cursor has moved, except those returned by {@link #entry()}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ * @see SegmentStore#scan(java.time.LocalDate, java.util.Set, java.util.function.Consumer)
+ */
+public interface LogCursor {
+
+  /**
+   * Gets the date of the entry, as nanoseconds since the epoch.
+   *
+   * @return the epoch nanoseconds
+   */
+  long epochNanos();
+
+  /**
+   * Gets the log pattern matching the entry. The persisted classification is reused when it was
+   * made by the current catalog version, otherwise the head is classified.
+   *
+   * @return the log pattern, if any
+   */
+  Option<LogPattern> logPattern();
+
+  /**
+   * Gets the head of the message of the entry, see {@link qwatch.logs.util.LogPatterns#head}.
+   *
+   * @return the head
+   */
+  String head();
+
+  /**
+   * Materializes the entry. Values which are not available to the cursor are left empty.
+   *
+   * @return a new log entry
+   */
+  LogEntry entry();
+}
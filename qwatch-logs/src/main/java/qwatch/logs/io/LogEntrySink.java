@@ -0,0 +1,22 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Log Entry Sink receives log entries as soon as they are read, e.g. {@link DayWriters#add}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface LogEntrySink {
+
+  /**
+   * Accepts an entry.
+   *
+   * @param entry the entry
+   * @throws IOException if the entry cannot be stored
+   */
+  void accept(LogEntry entry) throws IOException;
+}
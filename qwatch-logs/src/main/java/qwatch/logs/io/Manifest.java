@@ -0,0 +1,193 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.auto.value.AutoValue;
+import io.vavr.collection.Map;
+import io.vavr.collection.TreeMap;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.ObjectMapperFactory;
+
+/**
+ * Manifest of the day files of a directory, recording the number of entries and the checksum of
+ * each day file, as written by {@link DayWriters}. It is stored next to the day files, in {@value
+ * #FILENAME}.
+ *
+ * <p>Collecting only merges new entries into the day files, so a day file keeps all the entries it
+ * ever had. When the distinct new entries of a day have the summary of that day in the manifest,
+ * they are already in the day file, and the day can be skipped without opening it.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class Manifest {
+
+  public static final String FILENAME = "manifest.json";
+
+  private static final ObjectMapper mapper = ObjectMapperFactory.newObjectMapper();
+
+  private final Map<LocalDate, Day> days;
+
+  private Manifest(Map<LocalDate, Day> days) {
+    this.days = days;
+  }
+
+  public static Manifest empty() {
+    return new Manifest(TreeMap.empty());
+  }
+
+  /**
+   * Reads the manifest of a directory.
+   *
+   * @param dir directory of the day files
+   * @return the manifest, empty if the directory has none, or a failure
+   */
+  public static Try<Manifest> read(Path dir) {
+    JsonNode root;
+    try (var in = Files.newInputStream(dir.resolve(FILENAME))) {
+      root = mapper.readTree(in);
+    } catch (NoSuchFileException e) {
+      return Try.success(empty());
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+    if (root == null) {
+      return Try.failure(new IOException("Empty manifest in " + dir));
+    }
+    Map<LocalDate, Day> days = TreeMap.empty();
+    var fields = root.path("days").fields();
+    while (fields.hasNext()) {
+      var field = fields.next();
+      var count = field.getValue().path("entries");
+      var checksum = field.getValue().path("checksum");
+      if (!count.isIntegralNumber() || !checksum.isTextual()) {
+        return Try.failure(new IOException("Invalid manifest entry: " + field.getKey()));
+      }
+      try {
+        days =
+            days.put(
+                LocalDate.parse(field.getKey()),
+                Day.of(count.asLong(), Long.parseUnsignedLong(checksum.asText(), 16)));
+      } catch (DateTimeParseException | NumberFormatException e) {
+        return Try.failure(new IOException("Invalid manifest entry: " + field.getKey(), e));
+      }
+    }
+    return Try.success(new Manifest(days));
+  }
+
+  /**
+   * Writes the manifest into a directory, replacing the existing one atomically.
+   *
+   * @param dir directory of the day files
+   * @return success or failure
+   */
+  public Try<Void> write(Path dir) {
+    var root = mapper.createObjectNode();
+    var daysNode = root.putObject("days");
+    for (var day : days) {
+      daysNode
+          .putObject(day._1.toString())
+          .put("entries", day._2.count())
+          .put("checksum", Long.toHexString(day._2.checksum()));
+    }
+    try {
+      var tmp = Files.createTempFile(dir, ".manifest-", ".tmp");
+      mapper.writeValue(tmp.toFile(), root);
+      Files.move(
+          tmp,
+          dir.resolve(FILENAME),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      return Try.success(null);
+    } catch (IOException e) {
+      return Try.failure(e);
+    }
+  }
+
+  public Option<Day> get(LocalDate day) {
+    return days.get(day);
+  }
+
+  /**
+   * Gets a manifest having the given days, in addition to or instead of the existing ones.
+   *
+   * @param newDays summaries of the days written
+   * @return a new manifest
+   */
+  public Manifest withDays(Map<LocalDate, Day> newDays) {
+    return new Manifest(days.merge(newDays, (oldDay, newDay) -> newDay));
+  }
+
+  /** Summary of the entries of a day file. */
+  @AutoValue
+  public abstract static class Day {
+
+    public static Day of(long count, long checksum) {
+      return new AutoValue_Manifest_Day(count, checksum);
+    }
+
+    /** Number of distinct entries. */
+    public abstract long count();
+
+    /** Checksum of the distinct entries, sorted by {@link LogEntry#BY_DATE}. */
+    public abstract long checksum();
+  }
+
+  /**
+   * Digest computing the summary of distinct entries added in {@link LogEntry#BY_DATE} order, with
+   * the 64-bit FNV-1a hash of their fields. This class is not thread-safe.
+   */
+  static final class Digest {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long count;
+    private long hash = FNV_OFFSET_BASIS;
+
+    void add(LogEntry entry) {
+      var instant = entry.dateTime().toInstant();
+      update(instant.getEpochSecond());
+      update(instant.getNano());
+      update(entry.host());
+      update(entry.service());
+      update(entry.status());
+      update(entry.message());
+      count++;
+    }
+
+    Day toDay() {
+      return Day.of(count, hash);
+    }
+
+    private void update(String value) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        updateByte(c & 0xff);
+        updateByte(c >>> 8);
+      }
+      // Separator, so that ("ab", "c") and ("a", "bc") differ
+      updateByte(0xff);
+      updateByte(0xff);
+    }
+
+    private void update(long value) {
+      for (int i = 0; i < Long.BYTES; i++) {
+        updateByte((int) (value >>> (8 * i)) & 0xff);
+      }
+    }
+
+    private void updateByte(int b) {
+      hash ^= b;
+      hash *= FNV_PRIME;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Either;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Mapped CSV Importer imports a single large CSV file with Datadog format using all the cores.
+ *
+ * <p>The file is memory-mapped and split into byte ranges. A first parallel pass counts the double
+ * quotes of each split: since a double quote is never part of a multi-byte UTF-8 sequence and an
+ * escaped double quote is written twice, the parity of the quotes before a position tells whether
+ * it is inside a quoted field. Each split is then realigned to the first line break outside quotes,
+ * which is a record boundary even when messages span multiple lines. A second parallel pass parses
+ * and classifies the chunks, and their entries are merged in file order.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class MappedCsvImporter {
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedCsvImporter.class);
+
+  /** Files from this size are worth being imported in parallel chunks. */
+  public static final long THRESHOLD = 64L << 20;
+
+  static final long MIN_SPLIT_SIZE = 1L << 20;
+  static final long MAX_SPLIT_SIZE = 256L << 20;
+
+  /**
+   * Imports a large CSV file onto the heap, in parallel chunks.
+   *
+   * @param logPath path of the CSV file
+   * @return either the log entries imported, in file order, or a failure
+   * @deprecated extracts are collected by {@link CollectPipeline}, which splits large CSV extracts
+   *     into chunks using {@link #split(FileChannel, long, ChunkConsumer)}
+   */
+  @Deprecated
+  public static Either<String, List<LogEntry>> importLogEntriesFromFile(Path logPath) {
+    long size;
+    try {
+      size = Files.size(logPath);
+    } catch (IOException e) {
+      return Either.left("Failed to read logs from filepath: " + logPath);
+    }
+    // Several splits per core, so that cores working on faster splits do not stay idle
+    long splitSize = size / (Runtime.getRuntime().availableProcessors() * 4L) + 1;
+    return importLogEntriesFromFile(
+        logPath, Math.min(MAX_SPLIT_SIZE, Math.max(MIN_SPLIT_SIZE, splitSize)));
+  }
+
+  static Either<String, List<LogEntry>> importLogEntriesFromFile(Path logPath, long splitSize) {
+    var pool = IngestionExecutor.shared().executorService();
+    try (var channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+      return importLogEntries(logPath, channel, splitSize, pool);
+    } catch (IOException e) {
+      return Either.left("Failed to read logs from filepath: " + logPath);
+    } catch (InterruptedException e) {
+      logger.error("Interrupted", e);
+      Thread.currentThread().interrupt();
+      return Either.left("Interrupted while importing: " + logPath);
+    } catch (ExecutionException e) {
+      return Either.left("Failed to get result from future");
+    }
+  }
+
+  private static Either<String, List<LogEntry>> importLogEntries(
+      Path logPath, FileChannel channel, long splitSize, ExecutorService pool)
+      throws IOException, InterruptedException, ExecutionException {
+    long size = channel.size();
+
+    // Header
+    var h = CsvImporter.readHeader(logPath);
+    if (h.isLeft()) {
+      return Either.left(h.getLeft());
+    }
+    var header = h.get();
+    var m = CsvImporter.toHeaderMapping(header);
+    if (m.isLeft()) {
+      return Either.left(m.getLeft());
+    }
+    var columnMapping = m.get();
+
+    // Scan splits
+    var scanTasks = new ArrayList<Callable<SplitScan>>();
+    for (long start = 0; start < size; start += splitSize) {
+      long s = start;
+      long e = Math.min(size, start + splitSize);
+      scanTasks.add(() -> scan(channel, s, e));
+    }
+    var boundaries = new ArrayList<Long>();
+    boundaries.add(0L);
+    int parity = 0;
+    for (var future : pool.invokeAll(scanTasks)) {
+      var scan = future.get();
+      if (scan.start > 0) {
+        long boundary = parity == 0 ? scan.firstLineEndIfEven : scan.firstLineEndIfOdd;
+        // No record starts in this split: it belongs to the previous chunk
+        if (boundary >= 0) {
+          boundaries.add(boundary);
+        }
+      }
+      parity ^= scan.quotes & 1;
+    }
+    boundaries.add(size);
+
+    // Parse chunks
+    var parseTasks = new ArrayList<Callable<Either<String, List<LogEntry>>>>();
+    for (int i = 0; i + 1 < boundaries.size(); i++) {
+      long s = boundaries.get(i);
+      long e = boundaries.get(i + 1);
+      if (s < e) {
+        parseTasks.add(() -> parse(channel, s, e, header.length, columnMapping));
+      }
+    }
+    var entries = new ArrayList<LogEntry>();
+    for (var future : pool.invokeAll(parseTasks)) {
+      var chunk = future.get();
+      if (chunk.isLeft()) {
+        logger.debug("{}: {}", logPath, chunk.getLeft());
+        return Either.left("Unable to parse CSV file: " + logPath);
+      }
+      entries.addAll(chunk.get().asJava());
+    }
+    return Either.right(List.ofAll(entries));
+  }
+
+  /** Receives the chunks of a file, see {@link #split(FileChannel, long, ChunkConsumer)}. */
+  @FunctionalInterface
+  interface ChunkConsumer {
+
+    /**
+     * Receives a chunk.
+     *
+     * @param start position of the first byte of the chunk, 0 for the chunk holding the header
+     * @param end position after the last byte of the chunk
+     * @throws IOException if the chunk cannot be handled
+     */
+    void accept(long start, long end) throws IOException;
+  }
+
+  /**
+   * Splits a file into chunks of whole records, of about the given size, scanning one split after
+   * the other in the calling thread. Chunks are not parsed: each chunk is handed to the consumer as
+   * soon as its end is found, so that it can be parsed by other threads while the next splits are
+   * scanned.
+   *
+   * @param channel the file
+   * @param splitSize size of the splits, in bytes
+   * @param consumer receives the chunks, in file order
+   * @throws IOException if the file cannot be read, or the consumer fails
+   */
+  static void split(FileChannel channel, long splitSize, ChunkConsumer consumer)
+      throws IOException {
+    long size = channel.size();
+    long chunkStart = 0;
+    int parity = 0;
+    for (long start = 0; start < size; start += splitSize) {
+      var scan = scan(channel, start, Math.min(size, start + splitSize));
+      if (start > 0) {
+        long boundary = parity == 0 ? scan.firstLineEndIfEven : scan.firstLineEndIfOdd;
+        // No record starts in this split: it belongs to the current chunk
+        if (boundary >= 0) {
+          consumer.accept(chunkStart, boundary);
+          chunkStart = boundary;
+        }
+      }
+      parity ^= scan.quotes & 1;
+    }
+    if (chunkStart < size) {
+      consumer.accept(chunkStart, size);
+    }
+  }
+
+  private static SplitScan scan(FileChannel channel, long start, long end) throws IOException {
+    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    var scan = new SplitScan(start);
+    int limit = buffer.limit();
+    int quotes = 0;
+    for (int i = 0; i < limit; i++) {
+      byte b = buffer.get(i);
+      if (b == '"') {
+        quotes++;
+      } else if (b == '\n') {
+        if ((quotes & 1) == 0) {
+          if (scan.firstLineEndIfEven < 0) {
+            scan.firstLineEndIfEven = start + i + 1;
+          }
+        } else if (scan.firstLineEndIfOdd < 0) {
+          scan.firstLineEndIfOdd = start + i + 1;
+        }
+      }
+    }
+    scan.quotes = quotes;
+    return scan;
+  }
+
+  private static Either<String, List<LogEntry>> parse(
+      FileChannel channel, long start, long end, int columns, Map<String, Integer> columnMapping)
+      throws IOException {
+    var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    var scanner = new CsvScanner(buffer, CsvImporter.toProjection(columns, columnMapping));
+    if (start == 0) {
+      scanner.next(); // header
+    }
+    // Chunks are already parsed in parallel: classify in the same thread
+    return CsvImporter.scanLogEntries(scanner, columns, columnMapping, Runnable::run);
+  }
+
+  /** Result of the first pass over a split. Line ends are absolute positions, -1 if missing. */
+  private static class SplitScan {
+    private final long start;
+    private int quotes;
+    private long firstLineEndIfEven = -1;
+    private long firstLineEndIfOdd = -1;
+
+    private SplitScan(long start) {
+      this.start = start;
+    }
+  }
+
+  private MappedCsvImporter() {
+    // Utility class, do not instantiate
+  }
+}
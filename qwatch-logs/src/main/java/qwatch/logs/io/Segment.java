@@ -0,0 +1,158 @@
+package qwatch.logs.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Segment is a segment file, the binary columnar day file format written by {@link
+ * SegmentWriter}, memory-mapped.
+ *
+ * <p>Segment files are immutable once written, so they are mapped read-only and their columns are
+ * decoded from the mapping by {@link SegmentCursor cursors}, without copying them onto the heap.
+ * Only the columns requested are decoded, the others are not even paged in. For instance,
+ * summarizing entries only needs {@link SegmentColumn#summary()}, leaving out the message bodies
+ * which make up most of a day file.
+ *
+ * <p>A segment is not closed: the mapping is released when the segment is garbage collected.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class Segment {
+
+  private final Path path;
+  private final int size;
+  private final String catalogVersion;
+  private final ByteBuffer[] columns = new ByteBuffer[SegmentColumn.values().length + 1];
+
+  private Segment(Path path, ByteBuffer buffer) throws IOException {
+    this.path = path;
+    try {
+      if (buffer.getInt() != SegmentWriter.MAGIC) {
+        throw new IOException("Not a segment: " + path);
+      }
+      int version = Short.toUnsignedInt(buffer.getShort());
+      if (version != SegmentWriter.VERSION) {
+        throw new IOException("Unsupported segment version " + version + ": " + path);
+      }
+      this.size = buffer.getInt();
+      if (size < 0) {
+        throw new IOException("Invalid size " + size + " in segment " + path);
+      }
+      this.catalogVersion = readUtf(buffer);
+      int count = Byte.toUnsignedInt(buffer.get());
+      for (int i = 0; i < count; i++) {
+        var column = SegmentColumn.ofId(Byte.toUnsignedInt(buffer.get()));
+        long offset = buffer.getLong();
+        long length = buffer.getLong();
+        if (offset < 0 || length < 0 || Math.addExact(offset, length) > buffer.limit()) {
+          throw new IOException("Invalid column " + column + " in segment " + path);
+        }
+        // Columns of newer versions are ignored
+        if (column != null) {
+          columns[column.id()] =
+              buffer.duplicate().position((int) offset).limit((int) (offset + length)).slice();
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated segment " + path, e);
+    } catch (UTFDataFormatException | ArithmeticException e) {
+      throw new IOException("Corrupted segment " + path, e);
+    }
+  }
+
+  /**
+   * Maps a segment file, reading its header only.
+   *
+   * @param path path of the segment file
+   * @return the segment
+   * @throws IOException if the file cannot be mapped, or is not a valid segment
+   */
+  public static Segment map(Path path) throws IOException {
+    try (var channel = FileChannel.open(path)) {
+      long length = channel.size();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("Segment too large to be mapped: " + path);
+      }
+      // The mapping remains valid once the channel is closed
+      return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+    }
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Version of the pattern catalog used for the pattern column. */
+  public String catalogVersion() {
+    return catalogVersion;
+  }
+
+  /**
+   * Opens a cursor over the entries of this segment, before the first entry.
+   *
+   * @param columns columns to decode, such as {@link SegmentColumn#summary()}
+   * @return a new cursor
+   * @throws IOException if a column is missing or corrupted
+   */
+  public SegmentCursor cursor(Set<SegmentColumn> columns) throws IOException {
+    return new SegmentCursor(this, columns);
+  }
+
+  /** Gets a new buffer over a column, or fails if the segment does not have it. */
+  ByteBuffer column(SegmentColumn column) throws IOException {
+    var buffer = columns[column.id()];
+    if (buffer == null) {
+      throw new IOException("Missing column " + column + " in segment " + path);
+    }
+    return buffer.duplicate();
+  }
+
+  /**
+   * Reads a length, written as a varint.
+   *
+   * @throws IllegalArgumentException if the length is negative, or beyond the buffer
+   */
+  static int readLength(ByteBuffer buffer) {
+    long length = readVarLong(buffer);
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid length " + length);
+    }
+    return (int) length;
+  }
+
+  static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /** Reads a string written by {@link java.io.DataOutput#writeUTF(String)}. */
+  private static String readUtf(ByteBuffer buffer) throws IOException {
+    short length = buffer.getShort();
+    if (Short.toUnsignedInt(length) > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    var bytes = new byte[Short.BYTES + Short.toUnsignedInt(length)];
+    ByteBuffer.wrap(bytes).putShort(length);
+    buffer.get(bytes, Short.BYTES, bytes.length - Short.BYTES);
+    return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+  }
+}
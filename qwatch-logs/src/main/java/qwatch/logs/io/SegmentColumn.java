@@ -0,0 +1,74 @@
+package qwatch.logs.io;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Column of a segment, the binary columnar day file format.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ * @see SegmentWriter
+ * @see Segment
+ */
+public enum SegmentColumn {
+
+  /** Date of the entries, as epoch nanoseconds, delta-encoded. */
+  TIMESTAMP(1),
+
+  /** Host of the entries, dictionary-encoded. */
+  HOST(2),
+
+  /** Service of the entries, dictionary-encoded. */
+  SERVICE(3),
+
+  /** Status of the entries, dictionary-encoded. */
+  STATUS(4),
+
+  /** Identifier of the log pattern matching the entries, for the catalog version of the segment. */
+  PATTERN(5),
+
+  /** First line of the messages, see {@link qwatch.logs.util.LogPatterns#head(String)}. */
+  HEAD(6),
+
+  /** Remaining part of the messages, after their head, such as stack traces. */
+  BODY(7);
+
+  private final int id;
+
+  SegmentColumn(int id) {
+    this.id = id;
+  }
+
+  int id() {
+    return id;
+  }
+
+  static SegmentColumn ofId(int id) {
+    for (var column : values()) {
+      if (column.id == id) {
+        return column;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets all the columns, needed for reading complete log entries.
+   *
+   * @return a new set of columns
+   */
+  public static Set<SegmentColumn> all() {
+    return EnumSet.allOf(SegmentColumn.class);
+  }
+
+  /**
+   * Gets the columns needed for summarizing log entries: their date, their classification and the
+   * head of their message, but neither their message body nor their origin.
+   *
+   * @return a new set of columns
+   */
+  public static Set<SegmentColumn> summary() {
+    return EnumSet.of(TIMESTAMP, PATTERN, HEAD);
+  }
+}
@@ -0,0 +1,243 @@
+package qwatch.logs.io;
+
+import io.vavr.control.Option;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Set;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.util.FieldDictionary;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Segment Cursor iterates the entries of a {@link Segment}, decoding the loaded columns from the
+ * mapped file as it moves. Codes are decoded eagerly, as they are small, while message heads and
+ * bodies are only turned into strings when asked for.
+ *
+ * <p>A cursor is not thread-safe. Corrupted columns are reported by {@link #next()} as an {@link
+ * UncheckedIOException}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class SegmentCursor implements LogCursor {
+
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final Segment segment;
+  private final ByteBuffer timestamps;
+  private final ByteBuffer hosts;
+  private final ByteBuffer services;
+  private final ByteBuffer statuses;
+  private final ByteBuffer patterns;
+  private final ByteBuffer heads;
+  private final ByteBuffer bodies;
+  private final String[] hostValues;
+  private final String[] serviceValues;
+  private final String[] statusValues;
+
+  private int index = -1;
+  private long epochNanos;
+  private int host;
+  private int service;
+  private int status;
+  private int pattern = SegmentWriter.PATTERN_UNKNOWN;
+  private int headPosition;
+  private int headLength;
+  private int bodyPosition;
+  private int bodyLength;
+  private String head;
+  private byte[] scratch = new byte[256];
+
+  SegmentCursor(Segment segment, Set<SegmentColumn> columns) throws IOException {
+    this.segment = segment;
+    this.timestamps = load(columns, SegmentColumn.TIMESTAMP);
+    this.hosts = load(columns, SegmentColumn.HOST);
+    this.services = load(columns, SegmentColumn.SERVICE);
+    this.statuses = load(columns, SegmentColumn.STATUS);
+    this.patterns = load(columns, SegmentColumn.PATTERN);
+    this.heads = load(columns, SegmentColumn.HEAD);
+    this.bodies = load(columns, SegmentColumn.BODY);
+    try {
+      this.hostValues = readDictionary(hosts, FieldDictionary.hosts());
+      this.serviceValues = readDictionary(services, FieldDictionary.services());
+      this.statusValues = readDictionary(statuses, FieldDictionary.statuses());
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Corrupted segment " + segment.path(), e);
+    }
+  }
+
+  /**
+   * Moves to the next entry.
+   *
+   * @return {@code true} if the cursor is positioned on an entry, {@code false} if all the entries
+   *     have been visited
+   */
+  public boolean next() {
+    if (index + 1 >= segment.size()) {
+      return false;
+    }
+    index++;
+    head = null;
+    try {
+      if (timestamps != null) {
+        long zigzag = Segment.readVarLong(timestamps);
+        epochNanos += (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+      host = readCode(hosts, hostValues);
+      service = readCode(services, serviceValues);
+      status = readCode(statuses, statusValues);
+      if (patterns != null) {
+        pattern = Math.toIntExact(Segment.readVarLong(patterns));
+      }
+      if (heads != null) {
+        headLength = skipString(heads);
+        headPosition = heads.position() - headLength;
+      }
+      if (bodies != null) {
+        bodyLength = skipString(bodies);
+        bodyPosition = bodies.position() - bodyLength;
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException e) {
+      throw new UncheckedIOException(new IOException("Corrupted segment " + segment.path(), e));
+    }
+    return true;
+  }
+
+  @Override
+  public long epochNanos() {
+    loaded(timestamps, SegmentColumn.TIMESTAMP);
+    return epochNanos;
+  }
+
+  public String host() {
+    return loaded(hostValues, SegmentColumn.HOST)[host];
+  }
+
+  public String service() {
+    return loaded(serviceValues, SegmentColumn.SERVICE)[service];
+  }
+
+  public String status() {
+    return loaded(statusValues, SegmentColumn.STATUS)[status];
+  }
+
+  @Override
+  public Option<LogPattern> logPattern() {
+    if (pattern != SegmentWriter.PATTERN_UNKNOWN) {
+      var registry = LogPatterns.registry();
+      if (registry.version().equals(segment.catalogVersion())) {
+        if (pattern == SegmentWriter.PATTERN_NONE) {
+          return Option.none();
+        }
+        var found = registry.findById(pattern - SegmentWriter.PATTERN_OFFSET);
+        if (found.isDefined()) {
+          return found;
+        }
+      }
+    }
+    return LogPatterns.classify(head()).optLogPattern();
+  }
+
+  @Override
+  public String head() {
+    if (head == null) {
+      head = decode(loaded(heads, SegmentColumn.HEAD), headPosition, headLength);
+    }
+    return head;
+  }
+
+  /** Message of the entry, or its head only if the body column is not loaded. */
+  public String message() {
+    return bodies == null ? head() : head() + decode(bodies, bodyPosition, bodyLength);
+  }
+
+  /**
+   * Materializes the entry. Columns which are not loaded are left empty, except for the timestamp
+   * and the head columns, which are required. The classification of the pattern column is reused
+   * when the catalog version is still the current one.
+   *
+   * @return a new log entry
+   * @throws IllegalStateException if the timestamp or the head column is not loaded
+   */
+  @Override
+  public LogEntry entry() {
+    long nanos = epochNanos();
+    var dateTime =
+        Instant.ofEpochSecond(
+                Math.floorDiv(nanos, NANOS_PER_SECOND), Math.floorMod(nanos, NANOS_PER_SECOND))
+            .atZone(Timestamps.UTC);
+    var builder =
+        LogEntry.newBuilder()
+            .dateTime(dateTime)
+            .host(hostValues != null ? host() : "")
+            .service(serviceValues != null ? service() : "")
+            .status(statusValues != null ? status() : "")
+            .message(message());
+    if (patterns != null && pattern != SegmentWriter.PATTERN_UNKNOWN) {
+      Integer patternId =
+          pattern == SegmentWriter.PATTERN_NONE ? null : pattern - SegmentWriter.PATTERN_OFFSET;
+      builder.persistedPatternId(patternId).persistedCatalogVersion(segment.catalogVersion());
+    }
+    return builder.build();
+  }
+
+  private ByteBuffer load(Set<SegmentColumn> columns, SegmentColumn column) throws IOException {
+    return columns.contains(column) ? segment.column(column) : null;
+  }
+
+  private static <T> T loaded(T values, SegmentColumn column) {
+    if (values == null) {
+      throw new IllegalStateException("Column not loaded: " + column);
+    }
+    return values;
+  }
+
+  private String decode(ByteBuffer buffer, int position, int length) {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    buffer.duplicate().position(position).get(scratch, 0, length);
+    return new String(scratch, 0, length, UTF_8);
+  }
+
+  /**
+   * Reads the dictionary preceding the codes of a column, leaving the buffer on the first code.
+   * Values are canonicalized, so that the entries of all the segments share them.
+   */
+  private String[] readDictionary(ByteBuffer buffer, FieldDictionary field) {
+    if (buffer == null) {
+      return null;
+    }
+    var values = new String[Segment.readLength(buffer)];
+    for (int i = 0; i < values.length; i++) {
+      int length = skipString(buffer);
+      values[i] = field.intern(decode(buffer, buffer.position() - length, length));
+    }
+    return values;
+  }
+
+  private static int readCode(ByteBuffer buffer, String[] values) {
+    if (buffer == null) {
+      return 0;
+    }
+    long code = Segment.readVarLong(buffer);
+    if (code < 0 || code >= values.length) {
+      throw new IllegalArgumentException("Unknown dictionary code " + code);
+    }
+    return (int) code;
+  }
+
+  /** Skips a varint-prefixed string, returning its length in bytes. */
+  private static int skipString(ByteBuffer buffer) {
+    int length = Segment.readLength(buffer);
+    buffer.position(buffer.position() + length);
+    return length;
+  }
+}
@@ -0,0 +1,176 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.Timestamps;
+
+/**
+ * Segment Store gives access to the history of log entries stored as day files in a directory,
+ * without loading it onto the heap.
+ *
+ * <p>Segment files are memory-mapped, see {@link Segment}, and their entries are visited through
+ * a single flyweight {@link SegmentCursor} per file, so aggregations iterate the entries without
+ * materializing them. Heap usage is then independent of the size of the history, the operating
+ * system paging the mapped columns in and out as needed. Day files in other formats are read one
+ * entry at a time, each entry being dropped once visited.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class SegmentStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+
+  private final Path dir;
+
+  public SegmentStore(Path dir) {
+    this.dir = dir;
+  }
+
+  public Path dir() {
+    return dir;
+  }
+
+  /**
+   * Visits the entries of the day files since the given day, one day file after the other in
+   * chronological order. A day file which cannot be read is skipped, and logged.
+   *
+   * <p>The visitor gets the same cursor for all the entries of a day file, see {@link LogCursor}.
+   *
+   * @param since the first day to visit, inclusive
+   * @param columns the columns to decode from segments, such as {@link SegmentColumn#summary()}.
+   *     The timestamp column is always decoded.
+   * @param visitor the visitor of the entries
+   * @return the number of entries visited, or a failure if the day files cannot be listed
+   */
+  public Try<Long> scan(
+      LocalDate since, Set<SegmentColumn> columns, Consumer<? super LogCursor> visitor) {
+    var tryListing = DayFileFormat.listDayFiles(dir);
+    if (tryListing.isFailure()) {
+      return Try.failure(tryListing.getCause());
+    }
+    var loaded = EnumSet.of(SegmentColumn.TIMESTAMP);
+    loaded.addAll(columns);
+    long sinceNanos = since.atStartOfDay(Timestamps.UTC).toEpochSecond() * 1_000_000_000L;
+
+    long total = 0;
+    var paths =
+        oneFilePerDay(tryListing.get().toList())
+            .filter(p -> DayFileFormat.dayOf(p).forAll(d -> !d.isBefore(since)))
+            .toSortedSet();
+    for (var path : paths) {
+      try {
+        long count =
+            isSegment(path)
+                ? scanSegment(path, loaded, sinceNanos, visitor)
+                : scanEntries(path, sinceNanos, visitor);
+        logger.info("{}: {} entries", path, String.format("%,d", count));
+        total += count;
+      } catch (IOException | UncheckedIOException | RuntimeJsonMappingException e) {
+        logger.error(path + ": failed to scan", e);
+      }
+    }
+    return Try.success(total);
+  }
+
+  /**
+   * Keeps a single day file per day, as a day can be left in several formats, for instance when
+   * the output format changed. The segment is preferred, otherwise the last modified file. Files
+   * whose names have no day are all kept.
+   */
+  static List<Path> oneFilePerDay(List<Path> paths) {
+    return paths
+        .groupBy(DayFileFormat::dayOf)
+        .flatMap(
+            t -> {
+              if (t._1.isEmpty() || t._2.size() == 1) {
+                return t._2;
+              }
+              var kept = t._2.find(SegmentStore::isSegment).getOrElse(() -> lastModified(t._2));
+              logger.warn("{}: several day files, only {} is scanned", t._1.get(), kept);
+              return List.of(kept);
+            })
+        .toList();
+  }
+
+  private static boolean isSegment(Path path) {
+    return path.getFileName().toString().endsWith(DayFileFormat.SEGMENT.suffix());
+  }
+
+  private static Path lastModified(List<Path> paths) {
+    return paths
+        .maxBy(p -> Try.of(() -> Files.getLastModifiedTime(p).toMillis()).getOrElse(0L))
+        .get();
+  }
+
+  private static long scanSegment(
+      Path path, Set<SegmentColumn> columns, long sinceNanos, Consumer<? super LogCursor> visitor)
+      throws IOException {
+    var cursor = Segment.map(path).cursor(columns);
+    long count = 0;
+    while (cursor.next()) {
+      if (cursor.epochNanos() >= sinceNanos) {
+        visitor.accept(cursor);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long scanEntries(
+      Path path, long sinceNanos, Consumer<? super LogCursor> visitor) throws IOException {
+    var cursor = new EntryCursor();
+    long count = 0;
+    try (var reader = DayFileFormat.openEntries(path)) {
+      while (reader.hasNext()) {
+        cursor.entry = reader.next();
+        if (cursor.epochNanos() >= sinceNanos) {
+          visitor.accept(cursor);
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Cursor over entries already materialized, read from JSON day files. */
+  private static final class EntryCursor implements LogCursor {
+    private LogEntry entry;
+
+    @Override
+    public long epochNanos() {
+      var instant = entry.dateTime().toInstant();
+      return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    @Override
+    public Option<LogPattern> logPattern() {
+      return entry.optLogPattern();
+    }
+
+    @Override
+    public String head() {
+      return LogPatterns.head(entry.message());
+    }
+
+    @Override
+    public LogEntry entry() {
+      return entry;
+    }
+  }
+}
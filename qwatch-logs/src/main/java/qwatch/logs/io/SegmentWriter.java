@@ -0,0 +1,267 @@
+package qwatch.logs.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.FieldDictionary;
+import qwatch.logs.util.LogPatterns;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Segment Writer writes log entries into a segment, the binary columnar day file format.
+ *
+ * <p>A segment starts with a header: the magic number {@value #MAGIC}, the format version, the
+ * number of entries, the catalog version of the pattern column and the directory of the columns,
+ * giving the offset and the length of each column. Columns follow, one after the other, so that a
+ * reader can load only the columns it needs, see {@link Segment#map(Path)} and {@link
+ * SegmentCursor}:
+ *
+ * <ul>
+ *   <li>{@link SegmentColumn#TIMESTAMP}: epoch nanoseconds, each one as the zigzag varint of its
+ *       difference with the previous one;
+ *   <li>{@link SegmentColumn#HOST}, {@link SegmentColumn#SERVICE} and {@link SegmentColumn#STATUS}:
+ *       the dictionary of the distinct values, then the varint code of each entry;
+ *   <li>{@link SegmentColumn#PATTERN}: the varint pattern code of each entry, {@value
+ *       #PATTERN_UNKNOWN} if the entry was not classified with the catalog version of the segment,
+ *       {@value #PATTERN_NONE} if no pattern matched, otherwise the pattern identifier plus {@value
+ *       #PATTERN_OFFSET};
+ *   <li>{@link SegmentColumn#HEAD} and {@link SegmentColumn#BODY}: the head and the rest of each
+ *       message, as varint-prefixed UTF-8 strings.
+ * </ul>
+ *
+ * <p>Columns are written into temporary files next to the segment until the writer is closed, so
+ * that memory usage does not depend on the number of entries. The segment is created on close.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class SegmentWriter implements DayFileFormat.Writer {
+
+  static final int MAGIC = 0x51575347; // "QWSG"
+  static final int VERSION = 1;
+
+  static final int PATTERN_UNKNOWN = 0;
+  static final int PATTERN_NONE = 1;
+  static final int PATTERN_OFFSET = 2;
+
+  private final Path path;
+  private final String catalogVersion = LogPatterns.registry().version();
+  private final EnumMap<SegmentColumn, ColumnFile> columns = new EnumMap<>(SegmentColumn.class);
+  private final EnumMap<SegmentColumn, ColumnDictionary> dictionaries =
+      new EnumMap<>(SegmentColumn.class);
+  private int count;
+  private long previousNanos;
+
+  /**
+   * Creates a segment writer.
+   *
+   * @param path path of the segment, which is created or truncated on close
+   * @throws IOException if the temporary column files cannot be created
+   */
+  public SegmentWriter(Path path) throws IOException {
+    this.path = path;
+    try {
+      for (var column : SegmentColumn.values()) {
+        columns.put(column, new ColumnFile(path));
+      }
+    } catch (IOException e) {
+      deleteColumnFiles();
+      throw e;
+    }
+    dictionaries.put(SegmentColumn.HOST, new ColumnDictionary(FieldDictionary.hosts()));
+    dictionaries.put(SegmentColumn.SERVICE, new ColumnDictionary(FieldDictionary.services()));
+    dictionaries.put(SegmentColumn.STATUS, new ColumnDictionary(FieldDictionary.statuses()));
+  }
+
+  @Override
+  public void accept(LogEntry entry) throws IOException {
+    var instant = entry.dateTime().toInstant();
+    long nanos = instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    writeVarLong(columns.get(SegmentColumn.TIMESTAMP).out, zigzag(nanos - previousNanos));
+    previousNanos = nanos;
+
+    writeCode(SegmentColumn.HOST, entry.host());
+    writeCode(SegmentColumn.SERVICE, entry.service());
+    writeCode(SegmentColumn.STATUS, entry.status());
+
+    int pattern;
+    if (!catalogVersion.equals(entry.catalogVersion())) {
+      pattern = PATTERN_UNKNOWN;
+    } else {
+      var id = entry.patternId();
+      pattern = id == null ? PATTERN_NONE : id + PATTERN_OFFSET;
+    }
+    writeVarLong(columns.get(SegmentColumn.PATTERN).out, pattern);
+
+    var message = entry.message();
+    var head = LogPatterns.head(message);
+    writeString(columns.get(SegmentColumn.HEAD).out, head);
+    writeString(columns.get(SegmentColumn.BODY).out, message.substring(head.length()));
+    count++;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // Dictionaries precede the codes of their column
+      var prefixes = new EnumMap<SegmentColumn, byte[]>(SegmentColumn.class);
+      for (var dictionary : dictionaries.entrySet()) {
+        prefixes.put(dictionary.getKey(), encodeDictionary(dictionary.getValue().values));
+      }
+      for (var column : columns.values()) {
+        column.out.close();
+      }
+
+      var header = new ByteArrayOutputStream();
+      var data = new DataOutputStream(header);
+      data.writeInt(MAGIC);
+      data.writeShort(VERSION);
+      data.writeInt(count);
+      data.writeUTF(catalogVersion);
+      data.writeByte(columns.size());
+      long offset = header.size() + columns.size() * (1 + 2 * Long.BYTES);
+      for (var column : columns.entrySet()) {
+        var prefix = prefixes.get(column.getKey());
+        long length = (prefix != null ? prefix.length : 0) + Files.size(column.getValue().file);
+        data.writeByte(column.getKey().id());
+        data.writeLong(offset);
+        data.writeLong(length);
+        offset += length;
+      }
+      data.flush();
+
+      try (var out =
+          FileChannel.open(
+              path,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        writeFully(out, header.toByteArray());
+        for (var column : columns.entrySet()) {
+          var prefix = prefixes.get(column.getKey());
+          if (prefix != null) {
+            writeFully(out, prefix);
+          }
+          try (var in = FileChannel.open(column.getValue().file)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+              position += in.transferTo(position, size - position, out);
+            }
+          }
+        }
+      }
+    } finally {
+      deleteColumnFiles();
+    }
+  }
+
+  private void writeCode(SegmentColumn column, String value) throws IOException {
+    writeVarLong(columns.get(column).out, dictionaries.get(column).code(value));
+  }
+
+  private static byte[] encodeDictionary(List<String> values) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    writeVarLong(bytes, values.size());
+    for (var value : values) {
+      writeString(bytes, value);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void deleteColumnFiles() throws IOException {
+    for (var column : columns.values()) {
+      column.out.close();
+      Files.deleteIfExists(column.file);
+    }
+  }
+
+  private static void writeFully(FileChannel out, byte[] bytes) throws IOException {
+    var buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      out.write(buffer);
+    }
+  }
+
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  static void writeVarLong(OutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static void writeString(OutputStream out, String value) throws IOException {
+    var bytes = value.getBytes(UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Dictionary of a column of the segment. Local codes are looked up by the code of the value in
+   * the {@link FieldDictionary} shared by the ingestion, rather than by hashing the value again.
+   */
+  private static final class ColumnDictionary {
+    private final FieldDictionary field;
+    private final List<String> values = new ArrayList<>();
+    // Local code plus one by field code, 0 if the value is not in the segment yet
+    private int[] localCodes = new int[16];
+    // Values without field code, once the field dictionary is full
+    private final Map<String, Integer> others = new HashMap<>();
+
+    private ColumnDictionary(FieldDictionary field) {
+      this.field = field;
+    }
+
+    private int code(String value) {
+      int fieldCode = field.code(value);
+      if (fieldCode == FieldDictionary.NO_CODE) {
+        return others.computeIfAbsent(value, this::add);
+      }
+      if (fieldCode >= localCodes.length) {
+        localCodes = Arrays.copyOf(localCodes, Math.max(fieldCode + 1, localCodes.length * 2));
+      }
+      int local = localCodes[fieldCode] - 1;
+      if (local < 0) {
+        local = add(value);
+        localCodes[fieldCode] = local + 1;
+      }
+      return local;
+    }
+
+    private int add(String value) {
+      values.add(value);
+      return values.size() - 1;
+    }
+  }
+
+  /** Temporary file of a column, next to the segment. */
+  private static final class ColumnFile {
+    private final Path file;
+    private final OutputStream out;
+
+    private ColumnFile(Path segment) throws IOException {
+      this.file = Files.createTempFile(segment.toAbsolutePath().getParent(), ".seg-", ".col");
+      this.out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+    }
+  }
+}
@@ -20,7 +20,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Project (.*) not found.$");
     }
   },
@@ -38,7 +38,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^(.*)Cannot call sendError\\(\\) after the response has been committed$");
     }
@@ -57,7 +57,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Could not verify if early access is enabled for project (.*)$");
     }
   },
@@ -74,7 +74,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Failed to parse registry from (.*)$");
     }
   },
@@ -91,7 +91,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^java.io.IOException: On requestURL:(.*)$");
     }
   },
@@ -108,7 +108,7 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^No such project (.*)$");
     }
   },
@@ -126,14 +126,14 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^The version file should be created for the branch (.*)$");
     }
   },
 
   SSO_AUTH_FAILED(8) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Authentication has failed. Credentials may be incorrect (.*)");
     }
 
@@ -160,14 +160,14 @@ public enum BuiltinLogPattern implements LogPattern {
     }
 
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^(.*)Unhandled error was caught by the Filter$");
     }
   },
 
   FEATURE_VALIDATION_FAILED(10) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Validation failed for feature '(.*)'$");
     }
 
@@ -184,7 +184,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   ERR_CREATING_MANAGED_CONNECTION(11) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Error occurred creating ManagedConnection for handle: (.*)$");
     }
 
@@ -201,7 +201,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   SERVICE_TICKET_MISMATCHED(12) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^Service ticket \\[(.*)] with service \\[(.*)] does not match supplied service \\[(.*)]$");
     }
@@ -219,7 +219,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   STUDIO_PROJECT_NOT_FOUND_FOR_CONNECT(13) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Couldn't find StudioProject for ConnectProject with id (.*)$");
     }
 
@@ -236,7 +236,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   INVALID_REF_NAME(14) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^(.*)Invalid ref name(.*)$");
     }
 
@@ -253,7 +253,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   INTERNAL_ERR_RECEIVE_PACK(15) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Internal error during receive-pack to (.*)$");
     }
 
@@ -270,7 +270,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   INTERNAL_ERR_UPLOAD_PACK(16) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Internal error during upload-pack from (.*)$");
     }
 
@@ -287,7 +287,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   JGIT_PACK_FILE(17) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^(.*)Exception caught while accessing pack file (.*)$");
     }
 
@@ -304,7 +304,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   FAILED_TO_CLONE_REPO(18) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Failed to clone remote repository for project: (.*)$");
     }
 
@@ -321,7 +321,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   LOGIN_SERVICE_NOT_FOUND(19) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Service @login not found for object: (.*) of type pkg$");
     }
 
@@ -338,7 +338,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   RESET_ON_HEAD_FAILED(20) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Failed to resetOnHead: (.*)$");
     }
 
@@ -355,7 +355,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   FAILED_INIT_PROJECT(21) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       // Sometime we have the project id, sometime we don't.
       return Pattern.compile("^Failed to initialize project(.*)$");
     }
@@ -373,7 +373,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   UNABLE_GET_REGISTRY(22) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Unable to get registries for (.*)$");
     }
 
@@ -390,7 +390,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   CANNOT_FORWARD_TO_ERR_PAGE(23) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "Cannot forward to error page for request (.*) as the response has already been committed.(.*)");
     }
@@ -413,7 +413,7 @@ public enum BuiltinLogPattern implements LogPattern {
    */
   ERROR_EXECUTING_FREEMARKER(24) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Error executing FreeMarker template$");
     }
 
@@ -436,7 +436,7 @@ public enum BuiltinLogPattern implements LogPattern {
    */
   ERROR_400_JIRA(25) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Bad status when performing REST request to Jira: 400$");
     }
 
@@ -458,7 +458,7 @@ public enum BuiltinLogPattern implements LogPattern {
    */
   ERROR_FETCHING_STATUS(26) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Error while fetching status$");
     }
 
@@ -475,7 +475,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   CANNOT_PULL_WIP_BRANCH(27) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^(.*): Could not pull WIP branch (.) because it has WIP commit$");
     }
 
@@ -492,7 +492,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   WORKSPACE_STREAM_CLOSED(28) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^(.*): (.*): Stream closed\\.$");
     }
 
@@ -509,7 +509,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   UNCAUGHT_ERROR_ON_THREAD(29) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Uncaught error on thread (.*)$");
     }
 
@@ -526,7 +526,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   BRANCH_NOT_FOUND(30) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^No studio current snapshot The branch (.*) was not found for the current project$");
     }
@@ -544,7 +544,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   UNLOCKING_LOCKFILE_FAILED(31) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Unlocking LockFile '(.*/gc\\.log\\.lock)' failed$");
     }
 
@@ -561,7 +561,7 @@ public enum BuiltinLogPattern implements LogPattern {
 
   KILLED_HANDLE_JDBC(32) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^Killed handle: org.tranql.connector.jdbc.ConnectionHandle@(.*)ManagedConnectionInfo(.*)$");
     }
@@ -578,7 +578,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   ERR_COMMITTING_LOCAL_XA_RESOURCE(33) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^Unexpected exception committing org\\.apache\\.geronimo\\.connector\\.outbound\\.LocalXAResource@(.*); continuing to commit other RMs$");
     }
@@ -595,7 +595,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   FAILED_TO_CREATE_REPOSITORY(34) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Failed to create repository for request=GitRepositoryCreate(.*)$");
     }
 
@@ -611,7 +611,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   FAILED_TO_DELETE_REPOSITORY(35) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Failed to delete repository (.*)$");
     }
 
@@ -627,7 +627,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   UNABLE_TO_REPLACE_OWNER_ID(36) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Unable to replace the owner id by its name \\[(.*)]$");
     }
 
@@ -643,7 +643,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   INCOMPATIBLE_REMOTE_SERVICE_EXCEPTION(37) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^studioRpc: An IncompatibleRemoteServiceException was thrown while processing this call\\.$");
     }
@@ -660,7 +660,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   ERROR_WHILE_FETCHING_DOWNLOAD(38) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Error while fetching download$");
     }
 
@@ -676,7 +676,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   CANNOT_FORWARD_TO_ERROR_PAGE(39) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Cannot forward to error page: response is already committed$");
     }
 
@@ -692,7 +692,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   REQUEST_PROCESSING_ERROR(40) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Request Processing Error$");
     }
 
@@ -708,7 +708,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   SEGMENT_EVENT_EXEC_FAILED(41) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^Failed to execute async event null on listener segmentIOEventListener$");
     }
@@ -725,7 +725,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   SEGMENT_EXCEPTION_DURING_WORK(42) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^Exception during work: ListenerWork\\(Listener segmentIOEventListener.*$");
     }
@@ -742,7 +742,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   REQUEST_ATTRIBUTE_RESPONSE_COMMITTED(43) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Request Attributes.*$", Pattern.MULTILINE);
     }
 
@@ -758,12 +758,17 @@ public enum BuiltinLogPattern implements LogPattern {
 
     @Override
     public boolean matches(String s) {
-      return pattern().matcher(s).find();
+      return matcher(s).find();
+    }
+
+    @Override
+    public boolean linearMatchable() {
+      return false;
     }
   },
   PROJECT_REMOVAL_LISTENER_FAILED(44) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Exception during projectRemovalListener sync listener execution.*");
     }
 
@@ -779,7 +784,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   UNKNOWN_DB_CONNECTION(45) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile(
           "^java.lang.IllegalStateException: unknown connection org.nuxeo.ecm.core.storage.sql.ra.ConnectionImpl.*$");
     }
@@ -796,7 +801,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   KILL_HANDLE_DB_CONNECTION(46) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Killed handle: org.nuxeo.ecm.core.storage.sql.ra.ConnectionImpl.*$");
     }
 
@@ -812,7 +817,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   UNABLE_TO_COMMIT_OR_ROLLBACK(47) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^.*Unable to commit/rollback.*$");
     }
 
@@ -828,7 +833,7 @@ public enum BuiltinLogPattern implements LogPattern {
   },
   ERROR_WHILE_CHECKING_PROJECT_ACCESS(48) {
     @Override
-    public Pattern pattern() {
+    Pattern compile() {
       return Pattern.compile("^Error while checking project access$");
     }
 
@@ -845,9 +850,11 @@ public enum BuiltinLogPattern implements LogPattern {
 
   private static final String NOT_IMPLEMENTED = "Should be implemented by enum element";
   private final int id;
+  private final Pattern pattern;
 
   BuiltinLogPattern(int id) {
     this.id = id;
+    this.pattern = compile();
   }
 
   @Override
@@ -857,6 +864,16 @@ public enum BuiltinLogPattern implements LogPattern {
 
   @Override
   public Pattern pattern() {
+    return pattern;
+  }
+
+  /**
+   * Compiles the regular expression of this pattern. It is called exactly once, when the enum
+   * element is created, and the result is kept for the lifetime of the JVM.
+   *
+   * @return the compiled pattern
+   */
+  Pattern compile() {
     throw new UnsupportedOperationException(NOT_IMPLEMENTED);
   }
 
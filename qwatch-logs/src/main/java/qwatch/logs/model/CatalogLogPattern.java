@@ -0,0 +1,47 @@
+package qwatch.logs.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.util.regex.Pattern;
+
+/**
+ * Log pattern defined in an external pattern catalog, rather than in {@link BuiltinLogPattern}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@AutoValue
+public abstract class CatalogLogPattern implements LogPattern {
+
+  /**
+   * Creates a new log pattern. The regular expression is compiled immediately.
+   *
+   * @param id pattern identifier
+   * @param regex regular expression matching the message head
+   * @param shortMsg short message
+   * @param longMsg long message
+   * @return a new log pattern
+   * @throws java.util.regex.PatternSyntaxException if the regular expression is invalid
+   */
+  @JsonCreator
+  public static CatalogLogPattern of(
+      @JsonProperty("id") int id,
+      @JsonProperty("regex") String regex,
+      @JsonProperty("shortMsg") String shortMsg,
+      @JsonProperty("longMsg") String longMsg) {
+    return new AutoValue_CatalogLogPattern(id, Pattern.compile(regex), longMsg, shortMsg);
+  }
+
+  @Override
+  public abstract int id();
+
+  @Override
+  public abstract Pattern pattern();
+
+  @Override
+  public abstract String longMsg();
+
+  @Override
+  public abstract String shortMsg();
+}
@@ -0,0 +1,48 @@
+package qwatch.logs.model;
+
+import com.google.auto.value.AutoValue;
+import io.vavr.control.Option;
+
+/**
+ * Classification is the result of matching the head of a log message against the log patterns.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@AutoValue
+public abstract class Classification {
+
+  /**
+   * Creates a classification for a message head.
+   *
+   * @param logPattern the log pattern matching the head, if any
+   * @param head the first line of the log message
+   * @param catalogVersion the version of the pattern catalog used for the classification
+   * @return a new classification
+   */
+  public static Classification of(
+      Option<LogPattern> logPattern, String head, String catalogVersion) {
+    return new AutoValue_Classification(logPattern, describe(logPattern, head), catalogVersion);
+  }
+
+  /**
+   * Describes a message head in a single line, by its log pattern if any.
+   *
+   * @param logPattern the log pattern matching the head, if any
+   * @param head the first line of the log message
+   * @return the summary of the classification
+   */
+  public static String describe(Option<LogPattern> logPattern, String head) {
+    if (logPattern.isDefined()) {
+      var p = logPattern.get();
+      return String.format("[P%02d] %s", p.id(), p.longMsg());
+    }
+    return String.format("[   ] %s", head);
+  }
+
+  public abstract Option<LogPattern> optLogPattern();
+
+  public abstract String summary();
+
+  public abstract String catalogVersion();
+}
@@ -1,12 +1,16 @@
 package qwatch.logs.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.auto.value.AutoValue;
 import io.vavr.control.Option;
 import java.time.ZonedDateTime;
 import java.util.Comparator;
+import java.util.Optional;
+import qwatch.logs.util.FieldDictionary;
 import qwatch.logs.util.LogPatterns;
 
 /**
@@ -17,6 +21,7 @@ import qwatch.logs.util.LogPatterns;
  */
 @AutoValue
 @JsonDeserialize(builder = AutoValue_LogEntry.Builder.class)
+@JsonPropertyOrder({"date", "host", "service", "status", "message", "pattern", "catalog"})
 public abstract class LogEntry { // NOSONAR: AutoValue
 
   public static final Comparator<LogEntry> BY_DATE =
@@ -50,6 +55,31 @@ public abstract class LogEntry { // NOSONAR: AutoValue
   @JsonProperty("message")
   public abstract String message();
 
+  public abstract Builder toBuilder();
+
+  /*
+   * Classification is resolved lazily, on first read, and it is not part of equals() and
+   * hashCode(). So entries can be merged, deduplicated and exported without matching any pattern.
+   */
+  private volatile Classification classification;
+  private Integer persistedPatternId;
+  private String persistedCatalogVersion;
+
+  /**
+   * Gets the classification of this entry. It is resolved on first call, reusing the persisted
+   * classification if it was made by the current catalog version, and then kept.
+   *
+   * @return the classification
+   */
+  public Classification classification() {
+    var c = classification;
+    if (c == null) {
+      c = LogPatterns.classify(message(), persistedPatternId, persistedCatalogVersion);
+      classification = c;
+    }
+    return c;
+  }
+
   /**
    * Gets summary of the log entry.
    *
@@ -58,12 +88,49 @@ public abstract class LogEntry { // NOSONAR: AutoValue
    *
    * @return a single line summary
    */
-  public abstract String summary();
-
-  public abstract Builder toBuilder();
+  public String summary() {
+    return classification().summary();
+  }
 
   @JsonIgnore
-  public abstract Option<LogPattern> optLogPattern();
+  public Option<LogPattern> optLogPattern() {
+    return classification().optLogPattern();
+  }
+
+  /**
+   * Gets the identifier of the log pattern matching this entry.
+   *
+   * @return the pattern identifier, or {@code null} if no pattern matches
+   */
+  public Integer patternId() {
+    return optLogPattern().map(LogPattern::id).getOrNull();
+  }
+
+  /**
+   * Gets the version of the pattern catalog used for classifying this entry. Persisting it allows
+   * reusing the classification when reloading the entry with the same catalog version.
+   *
+   * @return the catalog version
+   */
+  public String catalogVersion() {
+    return classification().catalogVersion();
+  }
+
+  /** Pattern identifier to persist, without resolving the classification. */
+  @JsonProperty("pattern")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  Integer persistablePatternId() {
+    var c = classification;
+    return c != null ? c.optLogPattern().map(LogPattern::id).getOrNull() : persistedPatternId;
+  }
+
+  /** Catalog version to persist, without resolving the classification. */
+  @JsonProperty("catalog")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  String persistableCatalogVersion() {
+    var c = classification;
+    return c != null ? c.catalogVersion() : persistedCatalogVersion;
+  }
 
   @AutoValue.Builder
   public abstract static class Builder { // NOSONAR: AutoValue
@@ -82,29 +149,51 @@ public abstract class LogEntry { // NOSONAR: AutoValue
     @JsonProperty("message")
     public abstract Builder message(String message);
 
-    abstract Builder summary(String summary);
+    abstract Optional<String> host();
 
-    abstract Builder optLogPattern(Option<LogPattern> logPattern);
+    abstract Optional<String> service();
 
-    abstract String message();
+    abstract Optional<String> status();
 
     abstract LogEntry autoBuild();
 
+    private Integer persistedPatternId;
+    private String persistedCatalogVersion;
+
+    /**
+     * Sets the pattern identifier of a persisted classification.
+     *
+     * @param patternId pattern identifier, {@code null} if no pattern matched
+     * @return this
+     */
+    @JsonProperty("pattern")
+    public Builder persistedPatternId(Integer patternId) {
+      this.persistedPatternId = patternId;
+      return this;
+    }
+
+    /**
+     * Sets the catalog version of a persisted classification. If it is the current version, the
+     * persisted pattern identifier is used instead of matching the message again.
+     *
+     * @param catalogVersion catalog version
+     * @return this
+     */
+    @JsonProperty("catalog")
+    public Builder persistedCatalogVersion(String catalogVersion) {
+      this.persistedCatalogVersion = catalogVersion;
+      return this;
+    }
+
     public LogEntry build() {
-      // optLogPattern
-      var pattern = LogPatterns.findPattern(message());
-      optLogPattern(pattern);
-
-      // summary
-      if (pattern.isDefined()) {
-        var p = pattern.get();
-        summary(String.format("[P%02d] %s", p.id(), p.longMsg()));
-      } else {
-        var head = LogPatterns.head(message());
-        summary(String.format("[   ] %s", head));
-      }
-
-      return autoBuild();
+      // Canonicalized whatever the source of the entry, so that the history shares the instances
+      host().ifPresent(v -> host(FieldDictionary.hosts().intern(v)));
+      service().ifPresent(v -> service(FieldDictionary.services().intern(v)));
+      status().ifPresent(v -> status(FieldDictionary.statuses().intern(v)));
+      var entry = autoBuild();
+      entry.persistedPatternId = persistedPatternId;
+      entry.persistedCatalogVersion = persistedCatalogVersion;
+      return entry;
     }
   }
 }
@@ -1,5 +1,6 @@
 package qwatch.logs.model;
 
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -10,13 +11,51 @@ public interface LogPattern {
 
   int id();
 
+  /**
+   * Gets the compiled pattern.
+   *
+   * <p>Implementations must compile the pattern once and return the same instance on every call,
+   * since this method is used on the hot path of log classification.
+   *
+   * @return the compiled pattern
+   */
   Pattern pattern();
 
   String longMsg();
 
   String shortMsg();
 
+  /**
+   * Creates a matcher for the given input, based on the cached pattern.
+   *
+   * @param s the input to match
+   * @return a new matcher
+   */
+  default Matcher matcher(CharSequence s) {
+    return pattern().matcher(s);
+  }
+
+  /**
+   * Checks whether the given message head matches this pattern. Implementations overriding this
+   * method must only accept inputs where {@link #pattern()} can find a match, since the literals
+   * of the pattern are used for pre-filtering. They must also override {@link #linearMatchable()},
+   * otherwise this method may be bypassed.
+   *
+   * @param s the message head
+   * @return true if the input matches
+   */
   default boolean matches(String s) {
-    return pattern().matcher(s).matches();
+    return matcher(s).matches();
+  }
+
+  /**
+   * Checks whether this pattern may be evaluated by an equivalent linear matcher instead of {@link
+   * #matches(String)}, matching the whole head. Patterns overriding {@link #matches(String)} should
+   * return false.
+   *
+   * @return true if the pattern may be evaluated linearly
+   */
+  default boolean linearMatchable() {
+    return true;
   }
 }
@@ -0,0 +1,25 @@
+package qwatch.logs.model;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Statistics about the evaluation of a log pattern during classification.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@AutoValue
+public abstract class LogPatternStats {
+
+  public static LogPatternStats of(LogPattern logPattern, long attempts, long hits) {
+    return new AutoValue_LogPatternStats(logPattern, attempts, hits);
+  }
+
+  public abstract LogPattern logPattern();
+
+  /** Number of times the pattern has been evaluated against a message head. */
+  public abstract long attempts();
+
+  /** Number of message heads classified by the pattern. */
+  public abstract long hits();
+}
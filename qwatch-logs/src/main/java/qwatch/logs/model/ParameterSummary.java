@@ -0,0 +1,39 @@
+package qwatch.logs.model;
+
+import com.google.auto.value.AutoValue;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+
+/**
+ * Summary of the values captured by a group of a log pattern.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@AutoValue
+public abstract class ParameterSummary {
+
+  public static ParameterSummary of(
+      LogPattern logPattern,
+      int group,
+      long occurrences,
+      long distinctValues,
+      List<Tuple2<String, Long>> topValues) {
+    return new AutoValue_ParameterSummary(
+        logPattern, group, occurrences, distinctValues, topValues);
+  }
+
+  public abstract LogPattern logPattern();
+
+  /** Index of the capture group in the pattern, starting from 1. */
+  public abstract int group();
+
+  /** Number of entries matching the pattern. */
+  public abstract long occurrences();
+
+  /** Estimated number of distinct values captured by the group. */
+  public abstract long distinctValues();
+
+  /** Most frequent values captured by the group, with their estimated counts. */
+  public abstract List<Tuple2<String, Long>> topValues();
+}
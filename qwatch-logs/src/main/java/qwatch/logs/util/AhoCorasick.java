@@ -0,0 +1,162 @@
+package qwatch.logs.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Aho-Corasick automaton for finding several keywords in a text within a single pass.
+ *
+ * <p>The automaton is compiled into a dense transition table over the alphabet of the keywords,
+ * so scanning a text costs one table lookup per character, regardless of the number of keywords.
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+final class AhoCorasick {
+
+  private static final int ASCII = 128;
+
+  /** Class of each ASCII character, 0 means that the character is not part of any keyword. */
+  private final int[] asciiClasses;
+
+  /** Class of each non-ASCII character used by keywords. */
+  private final HashMap<Character, Integer> otherClasses;
+
+  private final int alphabetSize;
+
+  /** Transition table: {@code transitions[state * alphabetSize + class]}. */
+  private final int[] transitions;
+
+  /** Keywords ending at each state, including the ones reachable through failure links. */
+  private final int[][] outputs;
+
+  private AhoCorasick(
+      int[] asciiClasses,
+      HashMap<Character, Integer> otherClasses,
+      int alphabetSize,
+      int[] transitions,
+      int[][] outputs) {
+    this.asciiClasses = asciiClasses;
+    this.otherClasses = otherClasses;
+    this.alphabetSize = alphabetSize;
+    this.transitions = transitions;
+    this.outputs = outputs;
+  }
+
+  /**
+   * Compiles an automaton for the given keywords.
+   *
+   * @param keywords keywords indexed by their identifier, {@code null} or empty entries are
+   *     ignored
+   * @return a new automaton
+   */
+  static AhoCorasick of(String[] keywords) {
+    // alphabet
+    var asciiClasses = new int[ASCII];
+    var otherClasses = new HashMap<Character, Integer>();
+    int alphabetSize = 1;
+    for (var k : keywords) {
+      if (k == null) {
+        continue;
+      }
+      for (int i = 0; i < k.length(); i++) {
+        char c = k.charAt(i);
+        if (c < ASCII) {
+          if (asciiClasses[c] == 0) {
+            asciiClasses[c] = alphabetSize++;
+          }
+        } else if (!otherClasses.containsKey(c)) {
+          otherClasses.put(c, alphabetSize++);
+        }
+      }
+    }
+
+    // trie
+    var trie = new ArrayList<int[]>();
+    var trieOutputs = new ArrayList<BitSet>();
+    trie.add(new int[alphabetSize]);
+    trieOutputs.add(new BitSet());
+    for (int id = 0; id < keywords.length; id++) {
+      var k = keywords[id];
+      if (k == null || k.isEmpty()) {
+        continue;
+      }
+      int state = 0;
+      for (int i = 0; i < k.length(); i++) {
+        int cls = classOf(asciiClasses, otherClasses, k.charAt(i));
+        if (trie.get(state)[cls] == 0) {
+          trie.get(state)[cls] = trie.size();
+          trie.add(new int[alphabetSize]);
+          trieOutputs.add(new BitSet());
+        }
+        state = trie.get(state)[cls];
+      }
+      trieOutputs.get(state).set(id);
+    }
+
+    // failure links, resolved into a dense transition table (breadth-first)
+    int stateCount = trie.size();
+    var transitions = new int[stateCount * alphabetSize];
+    var failures = new int[stateCount];
+    var queue = new ArrayDeque<Integer>();
+    for (int cls = 1; cls < alphabetSize; cls++) {
+      int next = trie.get(0)[cls];
+      transitions[cls] = next;
+      if (next != 0) {
+        queue.add(next);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      trieOutputs.get(state).or(trieOutputs.get(failures[state]));
+      for (int cls = 1; cls < alphabetSize; cls++) {
+        int next = trie.get(state)[cls];
+        int fallback = transitions[failures[state] * alphabetSize + cls];
+        if (next != 0) {
+          failures[next] = fallback;
+          transitions[state * alphabetSize + cls] = next;
+          queue.add(next);
+        } else {
+          transitions[state * alphabetSize + cls] = fallback;
+        }
+      }
+    }
+
+    var outputs = new int[stateCount][];
+    for (int state = 0; state < stateCount; state++) {
+      var bits = trieOutputs.get(state);
+      outputs[state] = bits.isEmpty() ? null : bits.stream().toArray();
+    }
+    return new AhoCorasick(asciiClasses, otherClasses, alphabetSize, transitions, outputs);
+  }
+
+  private static int classOf(int[] asciiClasses, HashMap<Character, Integer> others, char c) {
+    if (c < ASCII) {
+      return asciiClasses[c];
+    }
+    return others.getOrDefault(c, 0);
+  }
+
+  /**
+   * Scans the text and marks the identifiers of all keywords found in it.
+   *
+   * @param text the text to scan
+   * @param found the bit set where the identifiers of the keywords found are set
+   */
+  void scan(CharSequence text, BitSet found) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      int cls = classOf(asciiClasses, otherClasses, text.charAt(i));
+      state = transitions[state * alphabetSize + cls];
+      var out = outputs[state];
+      if (out != null) {
+        for (int id : out) {
+          found.set(id);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package qwatch.logs.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import qwatch.logs.model.Classification;
+
+/**
+ * Classification Cache is a bounded, thread-safe cache of classifications, keyed by message head.
+ *
+ * <p>The cache is split into segments, each of them guarded by its own lock and evicting its
+ * least recently used entries once full. Loading a missing classification happens outside of the
+ * lock, so a slow classification never blocks other threads.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class ClassificationCache {
+
+  public static final int DEFAULT_CAPACITY = 16_384;
+
+  private static final int SEGMENTS = 16;
+
+  private final Segment[] segments;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param capacity the maximum number of classifications kept in the cache
+   */
+  public ClassificationCache(int capacity) {
+    if (capacity < SEGMENTS) {
+      throw new IllegalArgumentException("Capacity should be at least " + SEGMENTS);
+    }
+    segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(capacity / SEGMENTS);
+    }
+  }
+
+  /**
+   * Gets the classification of the given head, or loads it if absent.
+   *
+   * @param head the message head
+   * @param loader the function to classify the head on cache miss
+   * @return the classification
+   */
+  public Classification get(String head, Function<String, Classification> loader) {
+    var segment = segmentOf(head);
+    Classification c;
+    synchronized (segment) {
+      c = segment.get(head);
+    }
+    if (c != null) {
+      hits.increment();
+      return c;
+    }
+    misses.increment();
+    c = loader.apply(head);
+    synchronized (segment) {
+      segment.putIfAbsent(head, c);
+    }
+    return c;
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    int size = 0;
+    for (var segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  private Segment segmentOf(String head) {
+    int h = head.hashCode();
+    h ^= h >>> 16;
+    return segments[h & (SEGMENTS - 1)];
+  }
+
+  private static class Segment extends LinkedHashMap<String, Classification> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+
+    private Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Classification> eldest) {
+      return size() > capacity;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package qwatch.logs.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Field Dictionary canonicalizes the values of a low-cardinality field of the log entries, such as
+ * their host, and gives each distinct value an int code.
+ *
+ * <p>Dictionaries are shared by all the ingestion threads, so that the entries of the whole
+ * history share a handful of string instances per field, instead of one per entry. Equal values
+ * being the same instance, comparing them is an identity check. Codes are assigned in order of
+ * first occurrence and are stable for the lifetime of the process only, so they are not meant to
+ * be persisted as is.
+ *
+ * <p>A dictionary stops growing at {@link #MAX_SIZE} values, in case a field turns out not to be
+ * low-cardinality: other values are then returned as is, without code.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class FieldDictionary {
+
+  public static final int MAX_SIZE = 1 << 16;
+
+  /** Code of the values which are not in the dictionary, once it is full. */
+  public static final int NO_CODE = -1;
+
+  private static final FieldDictionary HOSTS = new FieldDictionary(MAX_SIZE);
+  private static final FieldDictionary SERVICES = new FieldDictionary(MAX_SIZE);
+  private static final FieldDictionary STATUSES = new FieldDictionary(MAX_SIZE);
+
+  /** Gets the dictionary of the hosts of the log entries. */
+  public static FieldDictionary hosts() {
+    return HOSTS;
+  }
+
+  /** Gets the dictionary of the services of the log entries. */
+  public static FieldDictionary services() {
+    return SERVICES;
+  }
+
+  /** Gets the dictionary of the statuses of the log entries. */
+  public static FieldDictionary statuses() {
+    return STATUSES;
+  }
+
+  private final int maxSize;
+  private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+  // Written under lock before the code is published, read without lock
+  private volatile String[] values = new String[16];
+  private int size;
+
+  public FieldDictionary(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the canonical instance of a value, adding it to the dictionary if needed.
+   *
+   * @param value the value, may be {@code null}
+   * @return the canonical instance, or the value itself if the dictionary is full
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    int code = code(value);
+    return code == NO_CODE ? value : values[code];
+  }
+
+  /**
+   * Gets the code of a value, adding it to the dictionary if needed.
+   *
+   * @param value the value
+   * @return the code, or {@link #NO_CODE} if the value is not in the dictionary and the dictionary
+   *     is full
+   */
+  public int code(String value) {
+    var code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = codes.get(value);
+      if (code != null) {
+        return code;
+      }
+      if (size == maxSize) {
+        return NO_CODE;
+      }
+      var current = values;
+      if (size == current.length) {
+        current = Arrays.copyOf(current, Math.min(maxSize, size * 2));
+      }
+      current[size] = value;
+      values = current;
+      codes.put(value, size);
+      return size++;
+    }
+  }
+
+  /**
+   * Gets the value of a code.
+   *
+   * @param code a code returned by {@link #code(String)}
+   * @return the canonical instance of the value
+   */
+  public String value(int code) {
+    return values[code];
+  }
+
+  /** Gets the number of values in the dictionary. */
+  public synchronized int size() {
+    return size;
+  }
+}
@@ -0,0 +1,104 @@
+package qwatch.logs.util;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct values added to it, using a fixed amount of
+ * memory: one byte per register, {@code 2^precision} registers. The standard error is about {@code
+ * 1.04 / sqrt(2^precision)}, e.g. 1.6% for the default precision.
+ *
+ * <p>Two sketches having the same precision can be merged, which gives the sketch of the union of
+ * their values. This class is not thread-safe: use one sketch per thread and merge them.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class HyperLogLog {
+
+  public static final int DEFAULT_PRECISION = 12;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this(DEFAULT_PRECISION);
+  }
+
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException("Precision should be in [4, 18], but was " + precision);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  public void add(CharSequence value) {
+    long hash = hash(value);
+    int index = (int) (hash >>> (64 - precision));
+    // Rank of the first 1-bit in the remaining bits, bounded by a sentinel bit
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  /**
+   * Merges another sketch into this one.
+   *
+   * @param other sketch to merge, having the same precision
+   * @return this
+   */
+  public HyperLogLog merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      var msg = String.format("Precision mismatch: %d != %d", precision, other.precision);
+      throw new IllegalArgumentException(msg);
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Estimates the number of distinct values added to this sketch.
+   *
+   * @return estimated cardinality
+   */
+  public long cardinality() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte r : registers) {
+      sum += 1.0 / (1L << r);
+      if (r == 0) {
+        zeros++;
+      }
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // Small range correction: linear counting
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  public int precision() {
+    return precision;
+  }
+
+  /** 64-bit FNV-1a hash of the chars, followed by the MurmurHash3 finalizer. */
+  static long hash(CharSequence value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
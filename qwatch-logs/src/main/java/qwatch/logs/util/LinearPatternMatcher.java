@@ -0,0 +1,202 @@
+package qwatch.logs.util;
+
+import io.vavr.control.Option;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Linear Pattern Matcher matches inputs against the simple shapes used by log patterns, in a time
+ * linear to the input length and without backtracking.
+ *
+ * <p>Supported regular expressions are made of literal characters, any-character wildcards
+ * {@code .}, unbounded wildcards {@code .*}, capturing groups without quantifier, and the anchors
+ * {@code ^} and {@code $} at the boundaries. They are compiled into a sequence of fixed-length
+ * segments separated by unbounded wildcards, the first segment being checked as a prefix, the last
+ * one as a suffix, and the ones in between as the leftmost occurrence after the previous segment.
+ * The input is matched entirely, like {@link java.util.regex.Matcher#matches()}.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class LinearPatternMatcher {
+
+  /** Marker of the any-character wildcard in a segment. */
+  private static final char ANY = '\uFFFF';
+
+  private final char[][] segments;
+  private final boolean leadingStar;
+  private final boolean trailingStar;
+  private final boolean hasWildcard;
+
+  private LinearPatternMatcher(char[][] segments, boolean leadingStar, boolean trailingStar) {
+    this.segments = segments;
+    this.leadingStar = leadingStar;
+    this.trailingStar = trailingStar;
+    boolean anyWildcard = leadingStar || trailingStar || segments.length > 1;
+    for (var segment : segments) {
+      for (char c : segment) {
+        anyWildcard |= c == ANY;
+      }
+    }
+    this.hasWildcard = anyWildcard;
+  }
+
+  /**
+   * Compiles the given pattern into a linear matcher.
+   *
+   * @param pattern the pattern to compile
+   * @return a linear matcher, or none if the shape of the pattern is not supported
+   */
+  public static Option<LinearPatternMatcher> compile(Pattern pattern) {
+    if (pattern.flags() != 0) {
+      return Option.none();
+    }
+    var regex = pattern.pattern();
+    int start = regex.startsWith("^") ? 1 : 0;
+    int end = regex.length();
+    if (end > start && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+      end--;
+    }
+
+    var segments = new ArrayList<char[]>();
+    var current = new StringBuilder();
+    boolean leadingStar = false;
+    boolean trailingStar = false;
+    int i = start;
+    while (i < end) {
+      char c = regex.charAt(i);
+      char next = i + 1 < end ? regex.charAt(i + 1) : 0;
+      if (c == '\\') {
+        if (next == 0 || Character.isLetterOrDigit(next) || next == ANY) {
+          return Option.none();
+        }
+        if (i + 2 < end && "*+?{".indexOf(regex.charAt(i + 2)) >= 0) {
+          return Option.none();
+        }
+        current.append(next);
+        i += 2;
+      } else if (c == '.' && next == '*') {
+        if (segments.isEmpty() && current.length() == 0) {
+          leadingStar = true;
+        } else if (current.length() > 0) {
+          segments.add(current.toString().toCharArray());
+          current.setLength(0);
+        }
+        trailingStar = true;
+        i += 2;
+      } else if (c == '.') {
+        current.append(ANY);
+        i++;
+      } else if (c == '(') {
+        if (next == '?') {
+          return Option.none();
+        }
+        i++;
+      } else if (c == ')') {
+        if (next == '*' || next == '+' || next == '?' || next == '{') {
+          return Option.none();
+        }
+        i++;
+      } else if ("[|*+?{^$".indexOf(c) >= 0 || next == '*' || next == '+' || next == '?'
+          || next == '{') {
+        return Option.none();
+      } else {
+        current.append(c);
+        i++;
+      }
+      if (current.length() > 0) {
+        trailingStar = false;
+      }
+    }
+    if (current.length() > 0 || segments.isEmpty()) {
+      segments.add(current.toString().toCharArray());
+    }
+    return Option.some(
+        new LinearPatternMatcher(segments.toArray(new char[0][]), leadingStar, trailingStar));
+  }
+
+  private static boolean isEscaped(String regex, int index) {
+    int backslashes = 0;
+    for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Checks whether the entire input matches.
+   *
+   * <p>Wildcards do not match line terminators. Inputs containing line terminators are therefore
+   * rejected by any pattern using wildcards.
+   *
+   * @param s the input
+   * @return true if the input matches
+   */
+  public boolean matches(CharSequence s) {
+    if (hasWildcard && hasLineTerminator(s)) {
+      return false;
+    }
+    int n = s.length();
+    if (segments.length == 1 && !leadingStar && !trailingStar) {
+      return n == segments[0].length && regionMatches(s, 0, segments[0]);
+    }
+    int from = 0;
+    int first = 0;
+    int last = segments.length - 1;
+    if (!leadingStar) {
+      if (!regionMatches(s, 0, segments[0])) {
+        return false;
+      }
+      from = segments[0].length;
+      first = 1;
+    }
+    int to = n;
+    if (!trailingStar && last >= first) {
+      int suffixStart = n - segments[last].length;
+      if (suffixStart < from || !regionMatches(s, suffixStart, segments[last])) {
+        return false;
+      }
+      to = suffixStart;
+      last--;
+    }
+    for (int k = first; k <= last; k++) {
+      int found = indexOf(s, segments[k], from, to);
+      if (found < 0) {
+        return false;
+      }
+      from = found + segments[k].length;
+    }
+    return from <= to;
+  }
+
+  private static boolean regionMatches(CharSequence s, int offset, char[] segment) {
+    if (offset < 0 || offset + segment.length > s.length()) {
+      return false;
+    }
+    for (int i = 0; i < segment.length; i++) {
+      if (segment[i] != ANY && segment[i] != s.charAt(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(CharSequence s, char[] segment, int from, int to) {
+    for (int i = from; i + segment.length <= to; i++) {
+      if (regionMatches(s, i, segment)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean hasLineTerminator(CharSequence s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
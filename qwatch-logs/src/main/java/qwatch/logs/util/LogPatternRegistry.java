@@ -0,0 +1,417 @@
+package qwatch.logs.util;
+
+import io.vavr.Tuple2;
+import io.vavr.collection.HashMap;
+import io.vavr.collection.List;
+import io.vavr.collection.Map;
+import io.vavr.control.Option;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.Classification;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.model.LogPatternStats;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Log Pattern Registry keeps an ordered, immutable list of log patterns whose regular expressions
+ * are compiled once, at registration time.
+ *
+ * <p>The first matching pattern in registration order wins. Before
+ * evaluating any regular expression, the message head is scanned once for the literals required by
+ * the patterns (see {@link RegexLiterals#longestRequiredLiteral(java.util.regex.Pattern)}), so that
+ * only the candidate patterns whose literal is present are evaluated. Classifications are cached
+ * by message head, since the same heads are repeated many times in the logs.
+ *
+ * <p>By default, patterns having a simple shape are evaluated by a {@link LinearPatternMatcher}
+ * rather than by their regular expression, so that a long message head cannot cause catastrophic
+ * backtracking, unless they opt out, see {@link LogPattern#linearMatchable()}. The remaining
+ * regular expressions are never evaluated on more than {@link Builder#maxHeadLength(int)}
+ * characters: a longer head matches only if its truncated head does, so patterns anchored at the
+ * end of the head never match it.
+ *
+ * <p>The registry counts how many times each pattern is evaluated and matched, and periodically
+ * reorders the evaluation of candidates so that the most frequent patterns are evaluated first.
+ * When a pattern matches, only the candidates registered before it are still evaluated, so the
+ * result is the same as the one of a sequential evaluation in registration order.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class LogPatternRegistry {
+
+  /** Shorter literals are too frequent to filter out anything. */
+  static final int MIN_LITERAL_LENGTH = 3;
+
+  public static final int DEFAULT_MAX_HEAD_LENGTH = 4_096;
+
+  public static final int DEFAULT_REORDER_INTERVAL = 10_000;
+
+  private static final LogPatternRegistry BUILTIN =
+      newBuilder().patterns(List.of(BuiltinLogPattern.values())).build();
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  public static class Builder {
+    private List<LogPattern> patterns = List.empty();
+    private int maxHeadLength = DEFAULT_MAX_HEAD_LENGTH;
+    private int cacheCapacity = ClassificationCache.DEFAULT_CAPACITY;
+    private boolean linearMatching = true;
+    private int reorderInterval = DEFAULT_REORDER_INTERVAL;
+
+    private Builder() {}
+
+    /**
+     * Sets the log patterns of the registry.
+     *
+     * @param patterns log patterns, in evaluation order
+     * @return this
+     */
+    public Builder patterns(Iterable<? extends LogPattern> patterns) {
+      this.patterns = List.ofAll(patterns);
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of characters of a message head on which a regular expression is
+     * evaluated. Longer heads are truncated before evaluation, so a regular expression requiring a
+     * suffix, or ending with {@code $}, does not match them. Patterns evaluated by a linear matcher
+     * are evaluated on the full head. Defaults to {@value #DEFAULT_MAX_HEAD_LENGTH}.
+     *
+     * @param maxHeadLength maximum head length
+     * @return this
+     */
+    public Builder maxHeadLength(int maxHeadLength) {
+      this.maxHeadLength = maxHeadLength;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of classifications kept in the cache.
+     *
+     * @param cacheCapacity cache capacity
+     * @return this
+     */
+    public Builder cacheCapacity(int cacheCapacity) {
+      this.cacheCapacity = cacheCapacity;
+      return this;
+    }
+
+    /**
+     * Enables or disables the linear matching engine. When disabled, all patterns are evaluated by
+     * their regular expression, on the truncated head. Enabled by default.
+     *
+     * @param linearMatching whether linear matching is enabled
+     * @return this
+     */
+    public Builder linearMatching(boolean linearMatching) {
+      this.linearMatching = linearMatching;
+      return this;
+    }
+
+    /**
+     * Sets the number of classifications between two reorderings of the evaluation order, based on
+     * the hits observed so far. Zero disables the reordering. Defaults to {@value
+     * #DEFAULT_REORDER_INTERVAL}.
+     *
+     * @param reorderInterval number of classifications between two reorderings
+     * @return this
+     */
+    public Builder reorderInterval(int reorderInterval) {
+      this.reorderInterval = reorderInterval;
+      return this;
+    }
+
+    public LogPatternRegistry build() {
+      return new LogPatternRegistry(this);
+    }
+  }
+
+  private final LogPattern[] patterns;
+
+  private final Map<Integer, LogPattern> patternsById;
+
+  /** Classification of each pattern, shared by all the heads it matches. */
+  private final ConcurrentHashMap<Integer, Classification> classificationsById;
+
+  private final String version;
+
+  /** Matchers of the patterns, indexed like the patterns. */
+  private final Predicate<String>[] matchers;
+
+  /** Finds patterns whose required literal is present in the message head. */
+  private final AhoCorasick prefilter;
+
+  /** Patterns without required literal, they are always evaluated. */
+  private final BitSet unfiltered;
+
+  private final ClassificationCache cache;
+
+  private final int maxHeadLength;
+
+  private final LongAdder[] attempts;
+  private final LongAdder[] hits;
+  private final AtomicLong classifications = new AtomicLong();
+  private final int reorderInterval;
+
+  /** Evaluation rank of each pattern, indexed like the patterns. */
+  private volatile int[] ranks;
+
+  @SuppressWarnings("unchecked")
+  private LogPatternRegistry(Builder builder) {
+    var patterns = builder.patterns.toJavaArray(LogPattern.class);
+    var matchers = (Predicate<String>[]) new Predicate<?>[patterns.length];
+    var literals = new String[patterns.length];
+    var unfiltered = new BitSet(patterns.length);
+    for (int i = 0; i < patterns.length; i++) {
+      matchers[i] = newMatcher(patterns[i], builder.maxHeadLength, builder.linearMatching);
+      var literal = RegexLiterals.longestRequiredLiteral(patterns[i].pattern());
+      if (literal.isDefined() && literal.get().length() >= MIN_LITERAL_LENGTH) {
+        literals[i] = literal.get();
+      } else {
+        unfiltered.set(i);
+      }
+    }
+    this.patterns = patterns;
+    this.patternsById = HashMap.ofEntries(builder.patterns.map(p -> new Tuple2<>(p.id(), p)));
+    this.version = version(patterns);
+    var classifications = new ConcurrentHashMap<Integer, Classification>();
+    for (var p : patterns) {
+      classifications.put(p.id(), Classification.of(Option.of(p), null, version));
+    }
+    this.classificationsById = classifications;
+    this.matchers = matchers;
+    this.prefilter = AhoCorasick.of(literals);
+    this.unfiltered = unfiltered;
+    this.cache = new ClassificationCache(builder.cacheCapacity);
+    this.maxHeadLength = builder.maxHeadLength;
+    this.attempts = new LongAdder[patterns.length];
+    this.hits = new LongAdder[patterns.length];
+    this.ranks = new int[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      attempts[i] = new LongAdder();
+      hits[i] = new LongAdder();
+      ranks[i] = i;
+    }
+    this.reorderInterval = builder.reorderInterval;
+  }
+
+  /**
+   * Computes the version of the given patterns: a hash of everything which has an impact on the
+   * classification.
+   */
+  private static String version(LogPattern[] patterns) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported", e);
+    }
+    for (var p : patterns) {
+      var line =
+          String.format(
+              "%d\t%s\t%d\t%s\n", p.id(), p.pattern().pattern(), p.pattern().flags(), p.longMsg());
+      digest.update(line.getBytes(UTF_8));
+    }
+    var sb = new StringBuilder();
+    var hash = digest.digest();
+    for (int i = 0; i < 8; i++) {
+      sb.append(String.format("%02x", hash[i]));
+    }
+    return sb.toString();
+  }
+
+  private static Predicate<String> newMatcher(LogPattern p, int maxHeadLength, boolean linear) {
+    if (linear && p.linearMatchable()) {
+      var optMatcher = LinearPatternMatcher.compile(p.pattern());
+      if (optMatcher.isDefined()) {
+        return optMatcher.get()::matches;
+      }
+    }
+    return head -> p.matches(bound(head, maxHeadLength));
+  }
+
+  private static String bound(String head, int maxHeadLength) {
+    return head.length() > maxHeadLength ? head.substring(0, maxHeadLength) : head;
+  }
+
+  /**
+   * Gets the registry of builtin log patterns.
+   *
+   * @return the builtin registry
+   */
+  public static LogPatternRegistry builtin() {
+    return BUILTIN;
+  }
+
+  /**
+   * Creates a new registry for the given patterns.
+   *
+   * @param patterns log patterns, in evaluation order
+   * @return a new registry
+   */
+  public static LogPatternRegistry of(Iterable<? extends LogPattern> patterns) {
+    return newBuilder().patterns(patterns).build();
+  }
+
+  /**
+   * Finds the first pattern matching the given message head.
+   *
+   * @param head the first line of a log message
+   * @return an optional log pattern
+   */
+  public Option<LogPattern> find(String head) {
+    var candidates = candidates(head).stream().toArray();
+    sortByRank(candidates, ranks);
+
+    int found = -1;
+    for (int i : candidates) {
+      // once a pattern matched, only the ones registered before it can take precedence
+      if (found < 0 || i < found) {
+        attempts[i].increment();
+        if (matchers[i].test(head)) {
+          found = i;
+        }
+      }
+    }
+    if (reorderInterval > 0 && classifications.incrementAndGet() % reorderInterval == 0) {
+      reorder();
+    }
+    if (found < 0) {
+      return Option.none();
+    }
+    hits[found].increment();
+    return Option.of(patterns[found]);
+  }
+
+  private static void sortByRank(int[] indexes, int[] ranks) {
+    // insertion sort: there are only a few candidates
+    for (int i = 1; i < indexes.length; i++) {
+      int current = indexes[i];
+      int j = i - 1;
+      while (j >= 0 && ranks[indexes[j]] > ranks[current]) {
+        indexes[j + 1] = indexes[j];
+        j--;
+      }
+      indexes[j + 1] = current;
+    }
+  }
+
+  /** Reorders the evaluation of patterns by descending number of hits. */
+  void reorder() {
+    var order =
+        List.range(0, patterns.length)
+            .sortBy(i -> -hits[i].sum())
+            .toJavaArray(Integer.class); // sortBy is stable: ties keep registration order
+    var newRanks = new int[patterns.length];
+    for (int rank = 0; rank < order.length; rank++) {
+      newRanks[order[rank]] = rank;
+    }
+    ranks = newRanks;
+  }
+
+  /**
+   * Gets the evaluation statistics of each pattern, in current evaluation order.
+   *
+   * @return statistics of all patterns
+   */
+  public List<LogPatternStats> stats() {
+    var currentRanks = ranks;
+    return List.range(0, patterns.length)
+        .sortBy(i -> currentRanks[i])
+        .map(i -> LogPatternStats.of(patterns[i], attempts[i].sum(), hits[i].sum()));
+  }
+
+  /**
+   * Classifies the given message head, using the cache of this registry.
+   *
+   * @param head the first line of a log message
+   * @return the classification
+   */
+  public Classification classify(String head) {
+    return cache.get(
+        head,
+        h -> {
+          var pattern = find(h);
+          return pattern.isDefined()
+              ? classificationsById.get(pattern.get().id())
+              : Classification.of(pattern, h, version);
+        });
+  }
+
+  /**
+   * Gets the classification of the messages matching a pattern, without any matching. The same
+   * instance is returned for all the messages, as it does not depend on the message head.
+   *
+   * @param id the identifier of the pattern
+   * @return the classification, or {@code null} if this registry has no such pattern
+   */
+  public Classification classificationById(int id) {
+    return classificationsById.get(id);
+  }
+
+  /**
+   * Matches a message head against the regular expression of a pattern, to get the values captured
+   * by its groups. Like for classification, the regular expression is evaluated on at most {@link
+   * Builder#maxHeadLength(int)} characters and must match them entirely.
+   *
+   * @param logPattern the log pattern
+   * @param head the first line of a log message
+   * @return the matcher having matched the head, or none
+   */
+  public Option<Matcher> match(LogPattern logPattern, String head) {
+    var matcher = logPattern.matcher(bound(head, maxHeadLength));
+    return matcher.matches() ? Option.of(matcher) : Option.none();
+  }
+
+  /**
+   * Finds a pattern by its identifier, without any matching.
+   *
+   * @param id the identifier of the pattern
+   * @return an optional log pattern
+   */
+  public Option<LogPattern> findById(int id) {
+    return patternsById.get(id);
+  }
+
+  /**
+   * Gets the version of this registry. The version is a hash of the patterns (identifier, regular
+   * expression and message), so that registries having the same version classify log messages in
+   * the same way.
+   *
+   * @return the version
+   */
+  public String version() {
+    return version;
+  }
+
+  public ClassificationCache cache() {
+    return cache;
+  }
+
+  /**
+   * Gets the indexes of the patterns which may match the given message head.
+   *
+   * @param head the first line of a log message
+   * @return indexes of candidate patterns
+   */
+  BitSet candidates(String head) {
+    var candidates = new BitSet(patterns.length);
+    prefilter.scan(head, candidates);
+    candidates.or(unfiltered);
+    return candidates;
+  }
+
+  public List<LogPattern> patterns() {
+    return List.of(patterns);
+  }
+}
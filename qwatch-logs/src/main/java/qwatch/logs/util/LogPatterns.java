@@ -1,7 +1,7 @@
 package qwatch.logs.util;
 
 import io.vavr.control.Option;
-import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.Classification;
 import qwatch.logs.model.LogPattern;
 
 /**
@@ -10,6 +10,12 @@ import qwatch.logs.model.LogPattern;
  */
 public class LogPatterns {
 
+  /**
+   * The registry used for classification. It is read once per classification, without locking,
+   * and can be replaced at any time by {@link #install(LogPatternRegistry)}.
+   */
+  private static volatile LogPatternRegistry registry = LogPatternRegistry.builtin();
+
   /**
    * Finds log pattern for the given message.
    *
@@ -17,13 +23,81 @@ public class LogPatterns {
    * @return an optional log pattern
    */
   public static Option<LogPattern> findPattern(String fullMessage) {
-    String head = head(fullMessage);
-    for (LogPattern p : BuiltinLogPattern.values()) {
-      if (p.matches(head)) {
-        return Option.of(p);
+    return findPatternByHead(head(fullMessage));
+  }
+
+  /**
+   * Finds log pattern for the given message head, as returned by {@link #head(String)}.
+   *
+   * @param head message head
+   * @return an optional log pattern
+   */
+  public static Option<LogPattern> findPatternByHead(String head) {
+    return registry().find(head);
+  }
+
+  /**
+   * Classifies the given message. The result is cached by message head, so classifying a head seen
+   * before costs a single hash lookup.
+   *
+   * @param fullMessage full message
+   * @return the classification
+   */
+  public static Classification classify(String fullMessage) {
+    return registry().classify(head(fullMessage));
+  }
+
+  /**
+   * Classifies the given message, reusing a previous classification when it was made by the
+   * current version of the registry. In that case, no pattern is evaluated at all.
+   *
+   * @param fullMessage full message
+   * @param patternId identifier of the pattern found by the previous classification, {@code null}
+   *     if the message was not matched
+   * @param catalogVersion version of the registry used by the previous classification, {@code
+   *     null} if unknown
+   * @return the classification
+   */
+  public static Classification classify(
+      String fullMessage, Integer patternId, String catalogVersion) {
+    var current = registry();
+    if (current.version().equals(catalogVersion)) {
+      if (patternId == null) {
+        // Cached by head like any classification, without evaluating the patterns
+        return current
+            .cache()
+            .get(head(fullMessage), h -> Classification.of(Option.none(), h, catalogVersion));
+      }
+      // Shared by all the entries of the pattern, so reusing it allocates nothing
+      var classification = current.classificationById(patternId);
+      if (classification != null) {
+        return classification;
       }
     }
-    return Option.none();
+    return current.classify(head(fullMessage));
+  }
+
+  /**
+   * Gets the registry used for classification.
+   *
+   * @return the current registry
+   */
+  public static LogPatternRegistry registry() {
+    return registry;
+  }
+
+  /**
+   * Installs a new registry for classification, replacing the current one atomically. Ongoing
+   * classifications complete with the previous registry, the next ones use the new registry. Log
+   * entries already classified keep their classification and its catalog version.
+   *
+   * @param newRegistry the new registry
+   * @return the previous registry
+   */
+  public static synchronized LogPatternRegistry install(LogPatternRegistry newRegistry) {
+    var previous = registry;
+    registry = newRegistry;
+    return previous;
   }
 
   public static String head(String message) {
@@ -0,0 +1,143 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import io.vavr.collection.Traversable;
+import java.util.TreeMap;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.model.ParameterSummary;
+
+/**
+ * Parameter Analytics records the values captured by the groups of log patterns, e.g. the project
+ * id of {@code PROJECT_NOT_FOUND}.
+ *
+ * <p>Values are not kept in memory: for each pattern and each group, a {@link HyperLogLog} sketch
+ * estimates the number of distinct values and a {@link SpaceSaving} sketch finds the most frequent
+ * ones. Analytics built from different subsets of entries, e.g. one per import thread or per day,
+ * can be merged. This class is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class ParameterAnalytics {
+
+  private final TreeMap<Integer, PatternParameters> parametersById = new TreeMap<>();
+
+  /**
+   * Builds the analytics of the given entries, one subset per day in parallel.
+   *
+   * @param entries log entries
+   * @return analytics of all the entries
+   */
+  public static ParameterAnalytics of(Traversable<LogEntry> entries) {
+    return entries
+        .groupBy(e -> e.dateTime().toLocalDate())
+        .values()
+        .toJavaParallelStream()
+        .map(
+            group -> {
+              var analytics = new ParameterAnalytics();
+              group.forEach(analytics::add);
+              return analytics;
+            })
+        .reduce(ParameterAnalytics::merge)
+        .orElseGet(ParameterAnalytics::new);
+  }
+
+  /**
+   * Records the values captured by the pattern of the entry, if any.
+   *
+   * @param entry log entry
+   */
+  public void add(LogEntry entry) {
+    if (entry.optLogPattern().isDefined()) {
+      add(entry.optLogPattern().get(), LogPatterns.head(entry.message()));
+    }
+  }
+
+  /**
+   * Records the values captured by the given pattern in a message head, for entries which are not
+   * materialized. The head is matched by the current registry, see {@link
+   * LogPatternRegistry#match(LogPattern, String)}.
+   *
+   * @param logPattern the log pattern matching the head
+   * @param head the head of the message
+   */
+  public void add(LogPattern logPattern, String head) {
+    var optMatcher = LogPatterns.registry().match(logPattern, head);
+    if (optMatcher.isEmpty()) {
+      return;
+    }
+    var matcher = optMatcher.get();
+    var parameters =
+        parametersById.computeIfAbsent(
+            logPattern.id(), id -> new PatternParameters(logPattern, matcher.groupCount()));
+    parameters.occurrences++;
+    for (int i = 0; i < parameters.distinct.length; i++) {
+      var value = matcher.group(i + 1);
+      if (value != null) {
+        parameters.distinct[i].add(value);
+        parameters.frequent[i].add(value);
+      }
+    }
+  }
+
+  /**
+   * Merges other analytics into these ones. The other analytics should not be used afterwards.
+   *
+   * @param other analytics to merge
+   * @return this
+   */
+  public ParameterAnalytics merge(ParameterAnalytics other) {
+    other.parametersById.forEach(
+        (id, o) -> parametersById.merge(id, o, PatternParameters::merge));
+    return this;
+  }
+
+  /**
+   * Summarizes the values captured by each group of each pattern.
+   *
+   * @param topN number of most frequent values per group
+   * @return summaries, by pattern id and group
+   */
+  public List<ParameterSummary> summaries(int topN) {
+    return List.ofAll(parametersById.values())
+        .flatMap(
+            p ->
+                List.range(0, p.distinct.length)
+                    .map(
+                        i ->
+                            ParameterSummary.of(
+                                p.logPattern,
+                                i + 1,
+                                p.occurrences,
+                                p.distinct[i].cardinality(),
+                                p.frequent[i].top(topN))));
+  }
+
+  private static class PatternParameters {
+    private final LogPattern logPattern;
+    private final HyperLogLog[] distinct;
+    private final SpaceSaving[] frequent;
+    private long occurrences;
+
+    private PatternParameters(LogPattern logPattern, int groupCount) {
+      this.logPattern = logPattern;
+      this.distinct = new HyperLogLog[groupCount];
+      this.frequent = new SpaceSaving[groupCount];
+      for (int i = 0; i < groupCount; i++) {
+        distinct[i] = new HyperLogLog();
+        frequent[i] = new SpaceSaving();
+      }
+    }
+
+    private PatternParameters merge(PatternParameters other) {
+      occurrences += other.occurrences;
+      for (int i = 0; i < Math.min(distinct.length, other.distinct.length); i++) {
+        distinct[i].merge(other.distinct[i]);
+        frequent[i].merge(other.frequent[i]);
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import io.vavr.control.Try;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline processes items through a chain of stages running concurrently.
+ *
+ * <p>Each stage has its own worker threads, taking items from its input queue and emitting items
+ * into the input queue of the next stage. Queues between stages are bounded: a worker emitting into
+ * a full queue waits, so a slow stage slows down the upstream ones instead of letting items pile
+ * up, and memory is bounded by the queue capacities. A stage completes once all its upstream
+ * stages have completed and its input queue is drained.
+ *
+ * <p>If a worker fails, the whole pipeline stops and {@link #run()} returns the failure.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class Pipeline {
+
+  /** Polling interval of the workers, for detecting the end of the input or a failure. */
+  private static final long POLL_MILLIS = 50;
+
+  /**
+   * Worker function of a stage.
+   *
+   * @param <I> type of the input items
+   * @param <O> type of the output items
+   */
+  @FunctionalInterface
+  public interface Worker<I, O> {
+
+    /**
+     * Processes an item.
+     *
+     * @param item the item to process
+     * @param emitter emits items to the next stage, blocking while its queue is full
+     * @throws Exception if the item cannot be processed, which stops the pipeline
+     */
+    void process(I item, Consumer<? super O> emitter) throws Exception;
+  }
+
+  /**
+   * Creates a pipeline builder.
+   *
+   * @param source items to process
+   * @param <T> type of the items
+   * @return a new builder
+   */
+  public static <T> Builder<T> from(Iterable<? extends T> source) {
+    var queue = new LinkedBlockingQueue<T>();
+    source.forEach(queue::add);
+    return new Builder<>(new ArrayList<>(), queue, new AtomicReference<>());
+  }
+
+  public static final class Builder<T> {
+
+    private final ArrayList<Stage<?, ?>> stages;
+    private final BlockingQueue<T> queue;
+    private final AtomicReference<Throwable> failure;
+
+    private Builder(
+        ArrayList<Stage<?, ?>> stages, BlockingQueue<T> queue, AtomicReference<Throwable> failure) {
+      this.stages = stages;
+      this.queue = queue;
+      this.failure = failure;
+    }
+
+    /**
+     * Adds a stage.
+     *
+     * @param name name of the stage, used in statistics
+     * @param parallelism number of worker threads
+     * @param capacity capacity of the output queue of the stage
+     * @param worker worker function
+     * @param <O> type of the output items
+     * @return a builder for the next stage
+     */
+    public <O> Builder<O> stage(
+        String name, int parallelism, int capacity, Worker<? super T, ? extends O> worker) {
+      var output = new ArrayBlockingQueue<O>(capacity);
+      stages.add(new Stage<T, O>(name, parallelism, queue, output, worker, failure));
+      return new Builder<>(stages, output, failure);
+    }
+
+    /**
+     * Adds the last stage, which does not emit items.
+     *
+     * @param name name of the stage, used in statistics
+     * @param parallelism number of worker threads
+     * @param worker worker function, consuming items
+     * @return the pipeline
+     */
+    public Pipeline sink(String name, int parallelism, Consumer<? super T> worker) {
+      Worker<T, Void> sink = (item, emitter) -> worker.accept(item);
+      stages.add(new Stage<>(name, parallelism, queue, null, sink, failure));
+      return new Pipeline(List.ofAll(stages), failure);
+    }
+  }
+
+  /** Statistics of a stage. */
+  public static final class StageStats {
+    private final String name;
+    private final int parallelism;
+    private final long items;
+    private final long nanos;
+
+    private StageStats(String name, int parallelism, long items, long nanos) {
+      this.name = name;
+      this.parallelism = parallelism;
+      this.items = items;
+      this.nanos = nanos;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public int parallelism() {
+      return parallelism;
+    }
+
+    /** Number of items processed by the stage. */
+    public long items() {
+      return items;
+    }
+
+    /** Time between the start of the pipeline and the completion of the stage. */
+    public long nanos() {
+      return nanos;
+    }
+
+    /** Items processed per second. */
+    public double throughput() {
+      return nanos == 0 ? 0 : items * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s (x%d): %,d items in %,d ms, %,.0f items/s",
+          name, parallelism, items, nanos / 1_000_000, throughput());
+    }
+  }
+
+  private final List<Stage<?, ?>> stages;
+  private final AtomicReference<Throwable> failure;
+
+  private Pipeline(List<Stage<?, ?>> stages, AtomicReference<Throwable> failure) {
+    this.stages = stages;
+    this.failure = failure;
+  }
+
+  /**
+   * Runs the pipeline and waits for its completion.
+   *
+   * @return success, or the first failure of a worker
+   */
+  public Try<Void> run() {
+    long start = System.nanoTime();
+    var threads = new ArrayList<Thread>();
+    CountDownLatch upstream = new CountDownLatch(0);
+    for (var stage : stages) {
+      threads.addAll(stage.start(upstream, start));
+      upstream = stage.done;
+    }
+    try {
+      upstream.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    }
+    if (failure.get() != null) {
+      threads.forEach(Thread::interrupt);
+      return Try.failure(failure.get());
+    }
+    return Try.success(null);
+  }
+
+  /**
+   * Gets the statistics of each stage, once the pipeline has run.
+   *
+   * @return statistics, in stage order
+   */
+  public List<StageStats> stats() {
+    return stages.map(s -> new StageStats(s.name, s.parallelism, s.items.sum(), s.nanos.get()));
+  }
+
+  private static final class Stage<I, O> {
+    private final String name;
+    private final int parallelism;
+    private final BlockingQueue<I> input;
+    private final BlockingQueue<O> output;
+    private final Worker<? super I, ? extends O> worker;
+    private final CountDownLatch done;
+    private final LongAdder items = new LongAdder();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicReference<Throwable> failure;
+
+    private Stage(
+        String name,
+        int parallelism,
+        BlockingQueue<I> input,
+        BlockingQueue<O> output,
+        Worker<? super I, ? extends O> worker,
+        AtomicReference<Throwable> failure) {
+      this.failure = failure;
+      this.name = name;
+      this.parallelism = parallelism;
+      this.input = input;
+      this.output = output;
+      this.worker = worker;
+      this.done = new CountDownLatch(parallelism);
+    }
+
+    private java.util.List<Thread> start(CountDownLatch upstream, long pipelineStart) {
+      var threads = new ArrayList<Thread>();
+      for (int i = 0; i < parallelism; i++) {
+        var thread =
+            new Thread(
+                () -> {
+                  try {
+                    work(upstream);
+                  } catch (Throwable e) { // NOSONAR: any failure stops the pipeline
+                    failure.compareAndSet(null, e);
+                  } finally {
+                    nanos.accumulateAndGet(System.nanoTime() - pipelineStart, Math::max);
+                    done.countDown();
+                  }
+                },
+                "pipeline-" + name + "-" + (i + 1));
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+      return threads;
+    }
+
+    private void work(CountDownLatch upstream) throws Exception {
+      Consumer<O> emitter = this::emit;
+      while (failure.get() == null) {
+        // Check completion before polling, so that no item is added after an empty poll
+        boolean upstreamDone = upstream.getCount() == 0;
+        I item = input.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (item != null) {
+          worker.process(item, emitter);
+          items.increment();
+        } else if (upstreamDone) {
+          return;
+        }
+      }
+    }
+
+    private void emit(O item) {
+      try {
+        while (!output.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+          if (failure.get() != null) {
+            throw new IllegalStateException("Pipeline stopped");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted", e);
+      }
+    }
+  }
+}
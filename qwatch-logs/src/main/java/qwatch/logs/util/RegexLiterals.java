@@ -0,0 +1,122 @@
+package qwatch.logs.util;
+
+import io.vavr.control.Option;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for extracting literals from regular expressions.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class RegexLiterals {
+
+  private static final int UNSUPPORTED_FLAGS =
+      Pattern.CASE_INSENSITIVE
+          | Pattern.UNICODE_CASE
+          | Pattern.CANON_EQ
+          | Pattern.COMMENTS
+          | Pattern.LITERAL;
+
+  /**
+   * Finds the longest literal which must be present in any input matched by the given pattern.
+   *
+   * <p>The analysis is conservative: only literals outside groups are considered, and nothing is
+   * returned for regular expressions using alternations, inline flags or escape sequences which
+   * are not simple character escapes.
+   *
+   * @param pattern the pattern to analyse
+   * @return the longest required literal, if any
+   */
+  public static Option<String> longestRequiredLiteral(Pattern pattern) {
+    if ((pattern.flags() & UNSUPPORTED_FLAGS) != 0) {
+      return Option.none();
+    }
+    var regex = pattern.pattern();
+    var best = "";
+    var current = new StringBuilder();
+    int depth = 0;
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      switch (c) {
+        case '\\':
+          if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+            return Option.none();
+          }
+          if (depth == 0) {
+            current.append(regex.charAt(i + 1));
+          }
+          i += 2;
+          break;
+        case '|':
+          return Option.none();
+        case '(':
+          if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+            return Option.none();
+          }
+          best = longest(best, current);
+          depth++;
+          i++;
+          break;
+        case ')':
+          best = longest(best, current);
+          depth--;
+          i++;
+          break;
+        case '[':
+          best = longest(best, current);
+          i = skipCharacterClass(regex, i);
+          break;
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          // the previous character is optional or repeated
+          if (current.length() > 0) {
+            current.setLength(current.length() - 1);
+          }
+          best = longest(best, current);
+          i = c == '{' ? regex.indexOf('}', i) + 1 : i + 1;
+          if (i == 0) {
+            return Option.none();
+          }
+          break;
+        case '.':
+        case '^':
+        case '$':
+          best = longest(best, current);
+          i++;
+          break;
+        default:
+          if (depth == 0) {
+            current.append(c);
+          }
+          i++;
+      }
+    }
+    best = longest(best, current);
+    return best.isEmpty() ? Option.none() : Option.some(best);
+  }
+
+  private static String longest(String best, StringBuilder current) {
+    var candidate = current.toString();
+    current.setLength(0);
+    return candidate.length() > best.length() ? candidate : best;
+  }
+
+  private static int skipCharacterClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++; // literal ']' at the beginning of the class
+    }
+    while (i < regex.length() && regex.charAt(i) != ']') {
+      i += regex.charAt(i) == '\\' ? 2 : 1;
+    }
+    return i + 1;
+  }
+
+  private RegexLiterals() {
+    // Utility class, do not instantiate
+  }
+}
@@ -0,0 +1,116 @@
+package qwatch.logs.util;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import java.util.HashMap;
+
+/**
+ * Space-Saving sketch finding the most frequent values added to it, keeping at most {@code
+ * capacity} counters.
+ *
+ * <p>When a new value arrives and all the counters are used, the counter having the minimal count
+ * is reassigned to the new value, and its count becomes an upper bound of the actual count. Any
+ * value occurring more than {@code n / capacity} times, where {@code n} is the number of values
+ * added, is guaranteed to be kept.
+ *
+ * <p>Two sketches can be merged, which gives the sketch of the union of their values. This class
+ * is not thread-safe: use one sketch per thread and merge them.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class SpaceSaving {
+
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private final int capacity;
+  private final HashMap<String, long[]> counters;
+
+  public SpaceSaving() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public SpaceSaving(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be positive, but was " + capacity);
+    }
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+  }
+
+  public void add(String value) {
+    var counter = counters.get(value);
+    if (counter != null) {
+      counter[0]++;
+    } else if (counters.size() < capacity) {
+      counters.put(value, new long[] {1});
+    } else {
+      // Linear scan: the capacity is small compared to the number of values
+      var min = minEntry();
+      counters.remove(min._1);
+      counters.put(value, new long[] {min._2 + 1});
+    }
+  }
+
+  /**
+   * Merges another sketch into this one.
+   *
+   * <p>A value missing from a full sketch may still have occurred up to the minimal count of that
+   * sketch, so the minimal count is added to the values missing from it.
+   *
+   * @param other sketch to merge
+   * @return this
+   */
+  public SpaceSaving merge(SpaceSaving other) {
+    long thisMin = counters.size() < capacity ? 0 : minEntry()._2;
+    long otherMin = other.counters.size() < other.capacity ? 0 : other.minEntry()._2;
+    var merged = new HashMap<String, long[]>();
+    counters.forEach(
+        (value, c) -> {
+          var o = other.counters.get(value);
+          merged.put(value, new long[] {c[0] + (o != null ? o[0] : otherMin)});
+        });
+    other.counters.forEach(
+        (value, o) -> {
+          if (!counters.containsKey(value)) {
+            merged.put(value, new long[] {o[0] + thisMin});
+          }
+        });
+    counters.clear();
+    List.ofAll(merged.entrySet())
+        .sortBy(e -> -e.getValue()[0])
+        .take(capacity)
+        .forEach(e -> counters.put(e.getKey(), e.getValue()));
+    return this;
+  }
+
+  /**
+   * Gets the most frequent values.
+   *
+   * @param n number of values
+   * @return values and their estimated counts, by descending count
+   */
+  public List<Tuple2<String, Long>> top(int n) {
+    return List.ofAll(counters.entrySet())
+        .map(e -> Tuple.of(e.getKey(), e.getValue()[0]))
+        .sortBy(t -> -t._2)
+        .take(n);
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  private Tuple2<String, Long> minEntry() {
+    String minValue = null;
+    long minCount = Long.MAX_VALUE;
+    for (var e : counters.entrySet()) {
+      if (e.getValue()[0] < minCount) {
+        minValue = e.getKey();
+        minCount = e.getValue()[0];
+      }
+    }
+    return Tuple.of(minValue, minCount);
+  }
+}
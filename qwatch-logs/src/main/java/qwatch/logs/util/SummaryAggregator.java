@@ -0,0 +1,129 @@
+package qwatch.logs.util;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.collection.List;
+import io.vavr.collection.Stream;
+import io.vavr.control.Option;
+import java.util.HashMap;
+import java.util.Map;
+import qwatch.logs.model.Classification;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.model.LogSummary;
+import qwatch.logs.util.TemplateMiner.Cluster;
+
+/**
+ * Summary Aggregator counts log entries one at a time, keeping one counter per log pattern and per
+ * template mined from unmatched heads, but not the entries themselves. Entries can then be
+ * streamed, for instance from a {@code SegmentStore}, without being materialized.
+ *
+ * <p>Once the miner reached its maximum number of clusters, the unmatched heads fitting no cluster
+ * are counted by a {@link SpaceSaving} sketch instead, so that memory stays bounded whatever the
+ * number of distinct heads. Their counts are then estimates.
+ *
+ * <p>An aggregator is not thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class SummaryAggregator {
+
+  private final TemplateMiner miner;
+  // Keyed by log pattern or by cluster
+  private final Map<Object, Long> counts = new HashMap<>();
+  // Descriptions of the unmatched heads fitting no cluster
+  private final SpaceSaving overflow = new SpaceSaving();
+
+  public SummaryAggregator() {
+    this(new TemplateMiner());
+  }
+
+  SummaryAggregator(TemplateMiner miner) {
+    this.miner = miner;
+  }
+
+  /**
+   * Counts an entry.
+   *
+   * @param entry log entry
+   */
+  public void add(LogEntry entry) {
+    var logPattern = entry.optLogPattern();
+    if (logPattern.isDefined()) {
+      addMatched(logPattern.get());
+    } else {
+      addUnmatched(LogPatterns.head(entry.message()));
+    }
+  }
+
+  /**
+   * Counts an entry matching a log pattern.
+   *
+   * @param logPattern the log pattern of the entry
+   */
+  public void addMatched(LogPattern logPattern) {
+    counts.merge(logPattern, 1L, Long::sum);
+  }
+
+  /**
+   * Counts an entry matching no log pattern, grouped by the template mined from its head, see
+   * {@link TemplateMiner}.
+   *
+   * @param head the head of the message of the entry
+   */
+  public void addUnmatched(String head) {
+    var cluster = miner.add(head);
+    if (cluster.isDefined()) {
+      counts.merge(cluster.get(), 1L, Long::sum);
+    } else {
+      overflow.add(Classification.describe(Option.none(), head));
+    }
+  }
+
+  /**
+   * Gets the top N summaries.
+   *
+   * <p>Entries matching a log pattern are grouped by pattern. Other entries are grouped by the
+   * template mined from their heads.
+   *
+   * @param n number of summaries
+   * @return summaries, by descending count
+   */
+  public List<LogSummary> top(int n) {
+    // Templates are final once all the entries are mined, so describe clusters last
+    return Stream.ofAll(counts.entrySet())
+        .map(e -> Tuple.of(description(e.getKey()), e.getValue()))
+        .appendAll(overflow.top(overflow.capacity()))
+        .groupBy(Tuple2::_1)
+        .map((description, ts) -> Tuple.of(description, ts.map(Tuple2::_2).sum().longValue()))
+        .toStream()
+        .sortBy(t -> t._2 * -1)
+        .take(n)
+        .map(t -> LogSummary.of(t._2, t._1))
+        .toList();
+  }
+
+  /**
+   * Suggests regular expressions for the most frequent unmatched entries, as candidates for new log
+   * patterns. Only templates shared by at least two entries and containing a variable part are
+   * suggested.
+   *
+   * @param n number of suggestions
+   * @return candidate regular expressions, by descending number of entries
+   */
+  public List<String> candidatePatterns(int n) {
+    return miner
+        .clusters()
+        .filter(c -> c.size() > 1 && c.template().contains(TemplateMiner.WILDCARD))
+        .take(n)
+        .map(Cluster::toRegex);
+  }
+
+  private static String description(Object key) {
+    if (key instanceof LogPattern) {
+      return Classification.describe(Option.of((LogPattern) key), null);
+    }
+    return "[   ] " + ((Cluster) key).template();
+  }
+}
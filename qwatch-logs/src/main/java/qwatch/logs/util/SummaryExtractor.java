@@ -2,7 +2,6 @@ package qwatch.logs.util;
 
 import io.vavr.collection.List;
 import io.vavr.collection.Traversable;
-import java.util.function.Function;
 import qwatch.logs.model.LogEntry;
 import qwatch.logs.model.LogSummary;
 
@@ -18,14 +17,32 @@ public class SummaryExtractor {
     this.logEntries = logEntries;
   }
 
+  /**
+   * Gets the top N summaries.
+   *
+   * @param n number of summaries
+   * @return summaries, by descending count
+   * @see SummaryAggregator#top(int)
+   */
   public List<LogSummary> top(int n) {
-    return logEntries
-        .groupBy(LogEntry::summary)
-        .bimap(Function.identity(), Traversable::size)
-        .toStream()
-        .sortBy(t -> t._2 * -1)
-        .take(n)
-        .map(t -> LogSummary.of(t._2, t._1))
-        .toList();
+    return aggregate().top(n);
+  }
+
+  /**
+   * Suggests regular expressions for the most frequent unmatched entries, as candidates for new log
+   * patterns.
+   *
+   * @param n number of suggestions
+   * @return candidate regular expressions, by descending number of entries
+   * @see SummaryAggregator#candidatePatterns(int)
+   */
+  public List<String> candidatePatterns(int n) {
+    return aggregate().candidatePatterns(n);
+  }
+
+  private SummaryAggregator aggregate() {
+    var aggregator = new SummaryAggregator();
+    logEntries.forEach(aggregator::add);
+    return aggregator;
   }
 }
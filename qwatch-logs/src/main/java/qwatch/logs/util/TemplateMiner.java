@@ -0,0 +1,239 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Template Miner clusters message heads into templates in a single pass, using a fixed-depth parse
+ * tree (Drain).
+ *
+ * <p>Heads are split into tokens on spaces, and tokens containing digits are considered as
+ * variables. The first level of the tree groups heads by number of tokens, the next levels by
+ * their first tokens, and each leaf contains a list of clusters. A head joins the most similar
+ * cluster of its leaf, if the ratio of tokens equal to the cluster template reaches the similarity
+ * threshold, and the differing tokens of the template are replaced by a wildcard. Otherwise, it
+ * creates a new cluster.
+ *
+ * <p>Memory is bounded: a node has at most {@code maxChildren} children, further tokens sharing a
+ * wildcard child, and at most {@code maxClusters} clusters are created. This class is thread-safe.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class TemplateMiner {
+
+  public static final String WILDCARD = "<*>";
+
+  public static final int DEFAULT_DEPTH = 4;
+  public static final double DEFAULT_SIMILARITY = 0.5;
+  public static final int DEFAULT_MAX_CHILDREN = 100;
+  public static final int DEFAULT_MAX_CLUSTERS = 10_000;
+
+  private final int depth;
+  private final double similarity;
+  private final int maxChildren;
+  private final int maxClusters;
+
+  /** Root of the tree: one node per token count. */
+  private final ConcurrentHashMap<Integer, Node> roots = new ConcurrentHashMap<>();
+
+  private final AtomicInteger clusterCount = new AtomicInteger();
+
+  public TemplateMiner() {
+    this(DEFAULT_DEPTH, DEFAULT_SIMILARITY, DEFAULT_MAX_CHILDREN, DEFAULT_MAX_CLUSTERS);
+  }
+
+  /**
+   * Creates a new template miner.
+   *
+   * @param depth depth of the parse tree, including the token count level and the leaves, at
+   *     least 3
+   * @param similarity minimal ratio of equal tokens for joining a cluster, between 0 and 1
+   * @param maxChildren maximum number of children of a node
+   * @param maxClusters maximum number of clusters
+   */
+  public TemplateMiner(int depth, double similarity, int maxChildren, int maxClusters) {
+    if (depth < 3) {
+      throw new IllegalArgumentException("Depth should be at least 3, but was " + depth);
+    }
+    this.depth = depth;
+    this.similarity = similarity;
+    this.maxChildren = maxChildren;
+    this.maxClusters = maxClusters;
+  }
+
+  /**
+   * Adds a message head to the miner.
+   *
+   * @param head the first line of a log message
+   * @return the cluster of the head, or none if the head does not fit any existing cluster and the
+   *     maximum number of clusters is reached
+   */
+  public Option<Cluster> add(String head) {
+    var tokens = head.split(" ", -1);
+    for (int i = 0; i < tokens.length; i++) {
+      if (hasDigit(tokens[i])) {
+        tokens[i] = WILDCARD;
+      }
+    }
+    var root = roots.computeIfAbsent(tokens.length, n -> new Node());
+    synchronized (root) {
+      var node = root;
+      for (int i = 0; i < Math.min(depth - 2, tokens.length); i++) {
+        var key = tokens[i];
+        var child = node.children.get(key);
+        if (child == null) {
+          if (node.children.size() >= maxChildren) {
+            key = WILDCARD;
+          }
+          child = node.children.computeIfAbsent(key, k -> new Node());
+        }
+        node = child;
+      }
+      return addToLeaf(node, tokens);
+    }
+  }
+
+  private Option<Cluster> addToLeaf(Node leaf, String[] tokens) {
+    Cluster best = null;
+    double bestScore = -1;
+    for (var cluster : leaf.clusters) {
+      double score = cluster.similarity(tokens);
+      if (score > bestScore) {
+        best = cluster;
+        bestScore = score;
+      }
+    }
+    if (best != null && bestScore >= similarity) {
+      best.merge(tokens);
+      return Option.some(best);
+    }
+    if (clusterCount.get() >= maxClusters) {
+      return Option.none();
+    }
+    var cluster = new Cluster(clusterCount.incrementAndGet(), tokens);
+    leaf.clusters.add(cluster);
+    return Option.some(cluster);
+  }
+
+  /**
+   * Gets all the clusters mined so far.
+   *
+   * @return clusters, by descending size
+   */
+  public List<Cluster> clusters() {
+    var clusters = new ArrayList<Cluster>();
+    for (var root : roots.values()) {
+      synchronized (root) {
+        collect(root, clusters);
+      }
+    }
+    return List.ofAll(clusters).sortBy(c -> -c.size());
+  }
+
+  private static void collect(Node node, java.util.List<Cluster> clusters) {
+    clusters.addAll(node.clusters);
+    for (var child : node.children.values()) {
+      collect(child, clusters);
+    }
+  }
+
+  private static boolean hasDigit(String token) {
+    for (int i = 0; i < token.length(); i++) {
+      if (Character.isDigit(token.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Node {
+    private final HashMap<String, Node> children = new HashMap<>();
+    private final ArrayList<Cluster> clusters = new ArrayList<>();
+  }
+
+  /** Cluster of message heads sharing the same template. */
+  public static final class Cluster {
+    private final int id;
+    private final String[] template;
+    private volatile long size;
+
+    private Cluster(int id, String[] tokens) {
+      this.id = id;
+      this.template = tokens;
+      this.size = 1;
+    }
+
+    private double similarity(String[] tokens) {
+      int equal = 0;
+      for (int i = 0; i < tokens.length; i++) {
+        if (template[i].equals(tokens[i])) {
+          equal++;
+        }
+      }
+      return (double) equal / tokens.length;
+    }
+
+    private synchronized void merge(String[] tokens) {
+      for (int i = 0; i < tokens.length; i++) {
+        if (!template[i].equals(tokens[i])) {
+          template[i] = WILDCARD;
+        }
+      }
+      size++;
+    }
+
+    public int id() {
+      return id;
+    }
+
+    /**
+     * Gets the number of heads added to this cluster.
+     *
+     * @return cluster size
+     */
+    public long size() {
+      return size;
+    }
+
+    /**
+     * Gets the template of this cluster, where variable tokens are replaced by {@value
+     * #WILDCARD}. The template may still change while heads are added to the miner.
+     *
+     * @return the template
+     */
+    public synchronized String template() {
+      return String.join(" ", template);
+    }
+
+    /**
+     * Suggests a regular expression matching all the heads of this cluster, as a candidate for a
+     * new log pattern.
+     *
+     * @return a regular expression
+     */
+    public synchronized String toRegex() {
+      var sb = new StringBuilder("^");
+      for (int i = 0; i < template.length; i++) {
+        if (i > 0) {
+          sb.append(' ');
+        }
+        if (template[i].equals(WILDCARD)) {
+          sb.append("(.*)");
+        } else {
+          for (char c : template[i].toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) >= 0) {
+              sb.append('\\');
+            }
+            sb.append(c);
+          }
+        }
+      }
+      return sb.append('$').toString();
+    }
+  }
+}
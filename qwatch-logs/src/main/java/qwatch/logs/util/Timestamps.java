@@ -0,0 +1,165 @@
+package qwatch.logs.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parser of the timestamps of Datadog logs, such as {@code 2019-02-11T12:13:57.916Z}.
+ *
+ * <p>Timestamps with the shape {@code yyyy-MM-ddTHH:mm:ss[.SSSSSSSSS]Z} are parsed by hand, without
+ * {@link java.time.format.DateTimeFormatter}. Other timestamps fall back to {@link
+ * ZonedDateTime#parse(CharSequence)}. In both cases, the local date-time is kept and the zone is
+ * replaced by UTC, as for the JSON object mapper.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public final class Timestamps {
+
+  /** Region-based UTC, not {@code ZoneOffset.UTC}, so that parsed values equal the JSON ones. */
+  public static final ZoneId UTC = ZoneId.of("UTC");
+
+  private static final long SECONDS_PER_DAY = 86_400L;
+
+  /** Days from 0000-03-01 to 1970-01-01. */
+  private static final long DAYS_0000_TO_1970 = 719_468L;
+
+  /**
+   * Parses a timestamp.
+   *
+   * @param text the text to parse
+   * @return the date-time, in zone UTC
+   * @throws DateTimeParseException if the text cannot be parsed
+   */
+  public static ZonedDateTime parse(CharSequence text) {
+    var fields = parseFields(text);
+    if (fields != null) {
+      try {
+        var local =
+            LocalDateTime.of(
+                fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6]);
+        return ZonedDateTime.of(local, UTC);
+      } catch (DateTimeException e) {
+        // out of range, e.g. month 13: let the generic parser report it
+      }
+    }
+    return ZonedDateTime.parse(text).withZoneSameLocal(UTC);
+  }
+
+  /**
+   * Parses a timestamp into milliseconds since the epoch, considering its local date-time as UTC.
+   *
+   * @param text the text to parse
+   * @return epoch milliseconds
+   * @throws DateTimeParseException if the text cannot be parsed
+   */
+  static long parseEpochMilli(CharSequence text) {
+    var fields = parseFields(text);
+    if (fields == null || !isValid(fields)) {
+      return parse(text).toInstant().toEpochMilli();
+    }
+    long days = epochDay(fields[0], fields[1], fields[2]);
+    long seconds = days * SECONDS_PER_DAY + fields[3] * 3600L + fields[4] * 60L + fields[5];
+    return seconds * 1000L + fields[6] / 1_000_000;
+  }
+
+  /**
+   * Parses the fields of a timestamp having the shape {@code yyyy-MM-ddTHH:mm:ss[.S...]Z}, with 1
+   * to 9 fraction digits.
+   *
+   * @return year, month, day, hour, minute, second and nanos; or {@code null} if the text has
+   *     another shape
+   */
+  private static int[] parseFields(CharSequence text) {
+    int length = text.length();
+    if (length < 20
+        || text.charAt(4) != '-'
+        || text.charAt(7) != '-'
+        || text.charAt(10) != 'T'
+        || text.charAt(13) != ':'
+        || text.charAt(16) != ':'
+        || text.charAt(length - 1) != 'Z') {
+      return null;
+    }
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 7);
+    int day = digits(text, 8, 10);
+    int hour = digits(text, 11, 13);
+    int minute = digits(text, 14, 16);
+    int second = digits(text, 17, 19);
+    if ((year | month | day | hour | minute | second) < 0) {
+      return null;
+    }
+    int nanos = 0;
+    if (length > 20) {
+      int fractionDigits = length - 21;
+      if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+        return null;
+      }
+      nanos = digits(text, 20, length - 1);
+      if (nanos < 0) {
+        return null;
+      }
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+    return new int[] {year, month, day, hour, minute, second, nanos};
+  }
+
+  /** Parses the ASCII digits in range [start, end), or returns -1. */
+  private static int digits(CharSequence text, int start, int end) {
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      int d = text.charAt(i) - '0';
+      if (d < 0 || d > 9) {
+        return -1;
+      }
+      value = value * 10 + d;
+    }
+    return value;
+  }
+
+  private static boolean isValid(int[] f) {
+    return f[1] >= 1
+        && f[1] <= 12
+        && f[2] >= 1
+        && f[2] <= lengthOfMonth(f[0], f[1])
+        && f[3] <= 23
+        && f[4] <= 59
+        && f[5] <= 59;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return leap ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /** Days since 1970-01-01 of a date of the proleptic Gregorian calendar. */
+  private static long epochDay(int year, int month, int day) {
+    // Years starting in March, so that the leap day is the last day of the year
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146_097 + dayOfEra - DAYS_0000_TO_1970;
+  }
+
+  private Timestamps() {
+    // Utility class, do not instantiate
+  }
+}
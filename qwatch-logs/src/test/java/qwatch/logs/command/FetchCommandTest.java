@@ -0,0 +1,34 @@
+package qwatch.logs.command;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class FetchCommandTest {
+
+  @Test
+  public void newBuilder() {
+    assertThat(FetchCommand.newBuilder()).isInstanceOf(CommandBuilder.class);
+  }
+
+  @Test
+  public void parse() {
+    var builder = FetchCommand.parse("--from", "2019-02-01", "--to", "2019-02-03", "--query", "*");
+    assertThat(builder.isRight()).isTrue();
+  }
+
+  @Test
+  public void parse_invalidDate() {
+    var builder = FetchCommand.parse("--from", "yesterday");
+    assertThat(builder.getLeft()).hasMessage("Invalid date value: yesterday");
+  }
+
+  @Test
+  public void parse_defaultDates() {
+    assertThat(FetchCommand.parse().isRight()).isTrue();
+  }
+}
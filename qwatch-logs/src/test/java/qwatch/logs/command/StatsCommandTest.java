@@ -8,7 +8,10 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import qwatch.logs.io.DayFileFormat;
+import qwatch.logs.model.LogEntry;
 import qwatch.logs.model.LogSummary;
+import qwatch.logs.util.Timestamps;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -54,6 +57,53 @@ public class StatsCommandTest {
     assertThat(summaries).containsExactly(LogSummary.of(2, "[   ] Foo"));
   }
 
+  @Test
+  public void execute_segments() throws Exception {
+    var dir = tempDir.newFolder("segments").toPath();
+    for (int d = 1; d <= 3; d++) {
+      var day = LocalDate.of(2019, 1, d);
+      var path = dir.resolve(DayFileFormat.SEGMENT.filename(day));
+      try (var writer = DayFileFormat.SEGMENT.newWriter(path)) {
+        writer.accept(
+            LogEntry.newBuilder()
+                .dateTime(day.atStartOfDay(Timestamps.UTC))
+                .host("myHost")
+                .service("myService")
+                .status("error")
+                .message("Foo\nBar")
+                .build());
+      }
+    }
+    var summaries =
+        StatsCommand.newBuilder()
+            .logDir(dir)
+            .sinceDate(LocalDate.of(2019, 1, 2))
+            .topN(1)
+            .build()
+            .execute();
+    assertThat(summaries).containsExactly(LogSummary.of(2, "[   ] Foo"));
+  }
+
+  @Test
+  public void execute_withParams() {
+    var summaries =
+        StatsCommand.newBuilder()
+            .logDir(tempRoot)
+            .sinceDate(LocalDate.of(2019, 1, 2))
+            .topN(1)
+            .paramsTopN(5)
+            .build()
+            .execute();
+    assertThat(summaries).containsExactly(LogSummary.of(2, "[   ] Foo"));
+  }
+
+  @Test
+  public void parse_params() {
+    var builder = StatsCommand.parse("--params", "a");
+    assertThat(builder.isLeft()).isTrue();
+    assertThat(builder.getLeft()).hasMessage("Invalid int value: a");
+  }
+
   @Test
   public void newOptions() {
     var options = StatsCommand.newOptions();
@@ -63,5 +113,11 @@ public class StatsCommandTest {
 
     assertThat(options.hasLongOption(StatsCommand.OPT_LONG_TOP)).isTrue();
     assertThat(options.getOption(StatsCommand.OPT_LONG_TOP).hasArg()).isTrue();
+
+    assertThat(options.hasLongOption(StatsCommand.OPT_LONG_CATALOG)).isTrue();
+    assertThat(options.getOption(StatsCommand.OPT_LONG_CATALOG).hasArg()).isTrue();
+
+    assertThat(options.hasLongOption(StatsCommand.OPT_LONG_PARAMS)).isTrue();
+    assertThat(options.getOption(StatsCommand.OPT_LONG_PARAMS).hasArg()).isTrue();
   }
 }
@@ -0,0 +1,24 @@
+package qwatch.logs.command;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class WatchCommandTest {
+
+  @Test
+  public void newBuilder() {
+    assertThat(WatchCommand.newBuilder()).isInstanceOf(CommandBuilder.class);
+  }
+
+  @Test
+  public void parse_catalog() {
+    assertThat(WatchCommand.parse("--catalog", "catalog.json").isRight()).isTrue();
+    assertThat(WatchCommand.parse().isRight()).isTrue();
+    assertThat(WatchCommand.parse("--unknown").isLeft()).isTrue();
+  }
+}
@@ -0,0 +1,80 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.LogPatternRegistry;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.Timestamps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class BatchClassifierTest {
+
+  private final LogPatternRegistry previous = LogPatterns.registry();
+
+  @After
+  public void tearDown() {
+    LogPatterns.install(previous);
+  }
+
+  @Test
+  public void finish_registrySwappedInFlight() throws Exception {
+    var builtin = LogPatternRegistry.builtin();
+    var other = LogPatternRegistry.of(List.of(BuiltinLogPattern.NO_SUCH_PROJECT));
+    var executor = Executors.newFixedThreadPool(4);
+    var done = new AtomicBoolean();
+    var swapper =
+        new Thread(
+            () -> {
+              for (int i = 0; !done.get(); i++) {
+                LogPatterns.install(i % 2 == 0 ? other : builtin);
+              }
+            });
+    swapper.start();
+    try {
+      // Given entries classified while the registry is swapped again and again
+      var classifier = BatchClassifier.ofEntries(executor);
+      int size = BatchClassifier.BATCH_SIZE * 8;
+      for (int i = 0; i < size; i++) {
+        assertThat(classifier.add(entry("Project p" + i + " not found.")).isRight()).isTrue();
+      }
+      var entries = classifier.finish().get();
+
+      // Then each entry is classified consistently with the version of its registry
+      assertThat(entries).hasSize(size);
+      for (int i = 0; i < size; i++) {
+        var entry = entries.get(i);
+        assertThat(entry.message()).isEqualTo("Project p" + i + " not found.");
+        if (entry.catalogVersion().equals(builtin.version())) {
+          assertThat(entry.optLogPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+        } else {
+          assertThat(entry.catalogVersion()).isEqualTo(other.version());
+          assertThat(entry.optLogPattern()).isEmpty();
+        }
+      }
+    } finally {
+      done.set(true);
+      swapper.join();
+      executor.shutdown();
+    }
+  }
+
+  private static LogEntry entry(String message) {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse("2019-02-14T10:00:00Z"))
+        .host("myHost")
+        .service("myService")
+        .status("error")
+        .message(message)
+        .build();
+  }
+}
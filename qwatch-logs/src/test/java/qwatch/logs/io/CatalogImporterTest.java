@@ -0,0 +1,80 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CatalogImporterTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path writeCatalog(boolean builtin, int id, String regex) throws Exception {
+    var path = tempDir.newFile().toPath();
+    var lines =
+        List.of(
+            "{",
+            "  \"builtin\" : " + builtin + ",",
+            "  \"patterns\" : [ {",
+            "    \"id\" : " + id + ",",
+            "    \"regex\" : \"" + regex + "\",",
+            "    \"shortMsg\" : \"Timeout\",",
+            "    \"longMsg\" : \"Timeout after ${duration} ms\"",
+            "  } ]",
+            "}");
+    Files.write(path, lines);
+    return path;
+  }
+
+  @Test
+  public void importRegistry() throws Exception {
+    var path = writeCatalog(false, 101, "^Timeout after (.*) ms$");
+
+    var registry = CatalogImporter.importRegistry(path).get();
+
+    assertThat(registry.patterns().map(LogPattern::id)).containsExactly(101);
+    var pattern = registry.find("Timeout after 300 ms").get();
+    assertThat(pattern.id()).isEqualTo(101);
+    assertThat(pattern.shortMsg()).isEqualTo("Timeout");
+    assertThat(pattern.longMsg()).isEqualTo("Timeout after ${duration} ms");
+    assertThat(registry.find("Project foo not found.")).isEmpty();
+  }
+
+  @Test
+  public void importRegistry_withBuiltin() throws Exception {
+    var path = writeCatalog(true, 101, "^Timeout after (.*) ms$");
+
+    var registry = CatalogImporter.importRegistry(path).get();
+
+    assertThat(registry.patterns()).hasSize(BuiltinLogPattern.values().length + 1);
+    assertThat(registry.find("Project foo not found."))
+        .contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    assertThat(registry.find("Timeout after 300 ms").map(LogPattern::id)).contains(101);
+  }
+
+  @Test
+  public void importRegistry_duplicateIds() throws Exception {
+    var path = writeCatalog(true, 1, "^Timeout after (.*) ms$");
+
+    var tryImport = CatalogImporter.importRegistry(path);
+
+    assertThat(tryImport.isFailure()).isTrue();
+    assertThat(tryImport.getCause()).hasMessageContaining("Duplicate pattern ids");
+  }
+
+  @Test
+  public void importRegistry_invalidRegex() throws Exception {
+    var path = writeCatalog(false, 101, "^Timeout after (.* ms$");
+    assertThat(CatalogImporter.importRegistry(path).isFailure()).isTrue();
+  }
+}
@@ -0,0 +1,91 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.util.LogPatternRegistry;
+import qwatch.logs.util.LogPatterns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CatalogReloaderTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private final LogPatternRegistry previous = LogPatterns.registry();
+
+  @After
+  public void tearDown() {
+    LogPatterns.install(previous);
+  }
+
+  @Test
+  public void reloadIfModified() throws Exception {
+    var path = tempDir.newFile().toPath();
+    writeCatalog(path, 101, Instant.parse("2019-02-14T10:00:00Z"));
+    var reloader = new CatalogReloader(path);
+
+    // Installed once, until modified
+    assertThat(reloader.reloadIfModified().get()).isTrue();
+    assertThat(ids()).containsExactly(101);
+    assertThat(reloader.reloadIfModified().get()).isFalse();
+
+    writeCatalog(path, 102, Instant.parse("2019-02-14T11:00:00Z"));
+    assertThat(reloader.reloadIfModified().get()).isTrue();
+    assertThat(ids()).containsExactly(102);
+  }
+
+  @Test
+  public void reloadIfModified_invalidCatalogKept() throws Exception {
+    var path = tempDir.newFile().toPath();
+    writeCatalog(path, 101, Instant.parse("2019-02-14T10:00:00Z"));
+    var reloader = new CatalogReloader(path);
+    reloader.reloadIfModified();
+
+    // When the catalog becomes invalid, then the current registry is kept
+    Files.write(path, List.of("{").asJava());
+    Files.setLastModifiedTime(path, FileTime.from(Instant.parse("2019-02-14T11:00:00Z")));
+    assertThat(reloader.reloadIfModified().isFailure()).isTrue();
+    assertThat(ids()).containsExactly(101);
+    assertThat(reloader.reloadIfModified().get()).isFalse();
+  }
+
+  @Test
+  public void reloadIfModified_missingCatalog() {
+    var reloader = new CatalogReloader(tempDir.getRoot().toPath().resolve("missing.json"));
+
+    assertThat(reloader.reloadIfModified().isFailure()).isTrue();
+    assertThat(LogPatterns.registry()).isSameAs(previous);
+  }
+
+  private static List<Integer> ids() {
+    return LogPatterns.registry().patterns().map(LogPattern::id);
+  }
+
+  private static void writeCatalog(Path path, int id, Instant modified) throws Exception {
+    var lines =
+        List.of(
+            "{",
+            "  \"builtin\" : false,",
+            "  \"patterns\" : [ {",
+            "    \"id\" : " + id + ",",
+            "    \"regex\" : \"^Timeout after (.*) ms$\",",
+            "    \"shortMsg\" : \"Timeout\",",
+            "    \"longMsg\" : \"Timeout after ${duration} ms\"",
+            "  } ]",
+            "}");
+    Files.write(path, lines);
+    Files.setLastModifiedTime(path, FileTime.from(modified));
+  }
+}
@@ -0,0 +1,351 @@
+package qwatch.logs.io;
+
+import io.vavr.control.Try;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.ObjectMapperFactory;
+import qwatch.logs.util.Pipeline;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CollectPipelineTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path csvDir;
+  private Path destDir;
+
+  @Before
+  public void setUp() throws Exception {
+    csvDir = tempDir.newFolder("csv").toPath();
+    destDir = tempDir.newFolder("dest").toPath();
+  }
+
+  @Test
+  public void run() throws Exception {
+    // Given an existing day file
+    var content =
+        "[{\n"
+            + "  \"date\" : \"2019-02-14T12:44:20.962Z\",\n"
+            + "  \"host\" : \"myHost\",\n"
+            + "  \"service\" : \"myService\",\n"
+            + "  \"status\" : \"error\",\n"
+            + "  \"message\" : \"Existing\"\n"
+            + "}]";
+    Files.write(destDir.resolve("log.2019-02-14.json"), content.getBytes(UTF_8));
+
+    // And CSV extracts over two days, with more rows than a batch and duplicates across files
+    var lines = new ArrayList<String>();
+    lines.add("date,Host,Service,Status,message");
+    for (int i = 0; i < 3_000; i++) {
+      var date = String.format("2019-02-%02dT10:%02d:%02d.000Z", 14 + i % 2, i / 60, i % 60);
+      lines.add(date + ",h,s,error,m" + i);
+    }
+    Files.write(csvDir.resolve("extract-1.csv"), lines);
+    Files.write(csvDir.resolve("extract-2.csv"), lines.subList(0, 11));
+
+    // When collecting with a small buffer, so that day writers spill
+    var pipeline =
+        CollectPipeline.newBuilder()
+            .readers(2)
+            .parsers(2)
+            .classifiers(2)
+            .writers(2)
+            .queueCapacity(2)
+            .maxBufferedEntries(500)
+            .build();
+    var result = pipeline.run(csvDir, destDir);
+
+    // Then all entries are written into their day file, without duplicates
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(result.get().map(Pipeline.StageStats::name))
+        .containsExactly(
+            "read", "parse", "classify", "write", "read", "parse", "classify", "write");
+    var day14 = readDay("log.2019-02-14.json");
+    var day15 = readDay("log.2019-02-15.json");
+    assertThat(day14).hasSize(1_501).isSortedAccordingTo(LogEntry.BY_DATE);
+    assertThat(day15).hasSize(1_500).isSortedAccordingTo(LogEntry.BY_DATE);
+    assertThat(day14).extracting(LogEntry::message).contains("Existing", "m0", "m2998");
+    assertThat(day15).extracting(LogEntry::message).contains("m1", "m2999");
+    assertThat(Files.list(destDir)).hasSize(3);
+    assertThat(Manifest.read(destDir).get().get(LocalDate.of(2019, 2, 15)).get().count())
+        .isEqualTo(1_500);
+  }
+
+  @Test
+  public void run_skipsUnchangedDays() throws Exception {
+    // Given day files collected from an extract
+    var day14 = destDir.resolve("log.2019-02-14.json");
+    var day15 = destDir.resolve("log.2019-02-15.json");
+    Files.write(
+        csvDir.resolve("extract-1.csv"),
+        List.of(
+            "date,Host,Service,Status,message",
+            "2019-02-14T10:00:00Z,h,s,error,old14",
+            "2019-02-15T10:00:00Z,h,s,error,old15"));
+    assertThat(CollectPipeline.newBuilder().build().run(csvDir, destDir).isSuccess()).isTrue();
+    Files.setLastModifiedTime(day14, FileTime.fromMillis(0));
+    Files.setLastModifiedTime(day15, FileTime.fromMillis(0));
+
+    // When collecting again, with a new extract for the 15th
+    Files.write(
+        csvDir.resolve("extract-2.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-15T11:00:00Z,h,s,error,new15"));
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    // Then the 14th is skipped, and the 15th is merged
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(Files.getLastModifiedTime(day14).toMillis()).isZero();
+    assertThat(readDay("log.2019-02-15.json"))
+        .extracting(LogEntry::message)
+        .containsExactly("old15", "new15");
+    assertThat(Manifest.read(destDir).get().get(LocalDate.of(2019, 2, 15)).get().count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void run_ndjsonGzip() throws Exception {
+    // Given a day file in the original format
+    Files.write(
+        csvDir.resolve("extract-1.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-14T10:00:00Z,h,s,error,old14"));
+    assertThat(CollectPipeline.newBuilder().build().run(csvDir, destDir).isSuccess()).isTrue();
+
+    // When collecting new entries of that day as compressed NDJSON
+    Files.write(
+        csvDir.resolve("extract-2.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-14T11:00:00Z,h,s,error,new14"));
+    var pipeline = CollectPipeline.newBuilder().format(DayFileFormat.NDJSON_GZIP).build();
+    assertThat(pipeline.run(csvDir, destDir).isSuccess()).isTrue();
+
+    // Then the day file is replaced, keeping its existing entries
+    assertThat(Files.exists(destDir.resolve("log.2019-02-14.json"))).isFalse();
+    var day14 = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.ndjson.gz"));
+    assertThat(day14.get().map(LogEntry::message)).containsExactlyInAnyOrder("old14", "new14");
+  }
+
+  @Test
+  public void run_invalidManifestIsIgnored() throws Exception {
+    Files.write(destDir.resolve(Manifest.FILENAME), "{ not json".getBytes(UTF_8));
+    Files.write(
+        csvDir.resolve("extract-1.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-14T10:00:00Z,h,s,error,m"));
+
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(readDay("log.2019-02-14.json")).extracting(LogEntry::message).containsExactly("m");
+    assertThat(Manifest.read(destDir).isSuccess()).isTrue();
+  }
+
+  @Test
+  public void run_invalidCsvFails() throws Exception {
+    Files.write(csvDir.resolve("extract-1.csv"), List.of("date,Host", "2019-02-14,foo"));
+    Files.write(
+        csvDir.resolve("extract-2.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-14T10:00:00Z,h,s,error,m"));
+
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("extract-1.csv");
+    assertThat(destDir.resolve("log.2019-02-14.json")).doesNotExist();
+  }
+
+  @Test
+  public void run_truncatedCsvFails() throws Exception {
+    // Given a collected day
+    var header = "date,Host,Service,Status,message";
+    Files.write(csvDir.resolve("extract-1.csv"), List.of(header, "2019-02-14T10:00:00Z,h,s,e,m1"));
+    assertThat(CollectPipeline.newBuilder().build().run(csvDir, destDir).isSuccess()).isTrue();
+    var day = destDir.resolve("log.2019-02-14.json");
+    var dayContent = Files.readAllBytes(day);
+    var manifestContent = Files.readAllBytes(destDir.resolve(Manifest.FILENAME));
+
+    // When collecting an extract truncated in the middle of a row
+    Files.write(
+        csvDir.resolve("extract-2.csv"),
+        List.of(header, "2019-02-14T11:00:00Z,h,s,e,m2", "2019-02-14T12:00:00Z,h"));
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    // Then the run fails, the day file and the manifest are unchanged
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("unexpected number of columns");
+    assertThat(Files.readAllBytes(day)).isEqualTo(dayContent);
+    assertThat(Files.readAllBytes(destDir.resolve(Manifest.FILENAME))).isEqualTo(manifestContent);
+  }
+
+  @Test
+  public void run_truncatedLargeCsvFails() throws Exception {
+    var lines = new ArrayList<String>();
+    lines.add("date,Host,Service,Status,message");
+    for (int i = 0; i < 100; i++) {
+      lines.add(String.format("2019-02-14T10:00:%02d.000Z,h,s,error,m%d", i % 60, i));
+    }
+    lines.add("2019-02-14T11:00:00Z,h");
+    Files.write(csvDir.resolve("extract-1.csv"), lines);
+
+    var result = CollectPipeline.newBuilder().splitSize(256).build().run(csvDir, destDir);
+
+    assertThat(result.isFailure()).isTrue();
+    assertThat(destDir.resolve("log.2019-02-14.json")).doesNotExist();
+    assertThat(destDir.resolve(Manifest.FILENAME)).doesNotExist();
+  }
+
+  @Test
+  public void run_truncatedExportFails() throws Exception {
+    var event =
+        "{\"id\":\"A\",\"attributes\":{\"timestamp\":\"2019-02-14T10:00:00Z\",\"host\":\"h\","
+            + "\"service\":\"s\",\"status\":\"error\",\"message\":\"m\"}}";
+    Files.write(csvDir.resolve("extract-1.json"), ("[" + event + ", {\"id\": ").getBytes(UTF_8));
+
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    // The entries read before the failure are not committed
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("failed after 1 entries");
+    assertThat(destDir.resolve("log.2019-02-14.json")).doesNotExist();
+    assertThat(destDir.resolve(Manifest.FILENAME)).doesNotExist();
+  }
+
+  @Test
+  public void run_unreadableDayFileFails() throws Exception {
+    var day = destDir.resolve("log.2019-02-14.json");
+    Files.write(day, "[{ not json".getBytes(UTF_8));
+    Files.write(
+        csvDir.resolve("extract-1.csv"),
+        List.of("date,Host,Service,Status,message", "2019-02-14T10:00:00Z,h,s,error,m"));
+
+    var result = CollectPipeline.newBuilder().build().run(csvDir, destDir);
+
+    // The day file is not overwritten
+    assertThat(result.isFailure()).isTrue();
+    assertThat(new String(Files.readAllBytes(day), UTF_8)).isEqualTo("[{ not json");
+  }
+
+  @Test
+  public void runIncremental() throws Exception {
+    // Given two existing day files
+    var day14 = destDir.resolve("log.2019-02-14.json");
+    var day15 = destDir.resolve("log.2019-02-15.json");
+    var csv = csvDir.resolve("extract-1.csv");
+    Files.write(
+        csv,
+        List.of(
+            "date,Host,Service,Status,message",
+            "2019-02-14T10:00:00Z,h,s,error,old14",
+            "2019-02-15T10:00:00Z,h,s,error,old15"));
+    assertThat(CollectPipeline.newBuilder().build().run(csvDir, destDir).isSuccess()).isTrue();
+    var day15Content = Files.readAllBytes(day15);
+    Files.setLastModifiedTime(day15, FileTime.fromMillis(0));
+
+    // When collecting an extract having entries of the 14th only
+    var newCsv = csvDir.resolve("extract-2.csv");
+    Files.write(
+        newCsv,
+        List.of("date,Host,Service,Status,message", "2019-02-14T11:00:00Z,h,s,error,new14"));
+    var result = CollectPipeline.newBuilder().build().runIncremental(List.of(newCsv), destDir);
+
+    // Then the 14th is merged with its existing entries, and the 15th is untouched
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(readDay("log.2019-02-14.json"))
+        .extracting(LogEntry::message)
+        .containsExactly("old14", "new14");
+    assertThat(Files.readAllBytes(day15)).isEqualTo(day15Content);
+    assertThat(Files.getLastModifiedTime(day15).toMillis()).isZero();
+    assertThat(Files.exists(day14)).isTrue();
+  }
+
+  @Test
+  public void run_largeCsvSplitIntoChunks() throws Exception {
+    // Given an extract much larger than the split size, with multi-line quoted messages
+    var lines = new ArrayList<String>();
+    var messages = new ArrayList<String>();
+    lines.add("date,Host,Service,Status,message");
+    for (int i = 0; i < 2_000; i++) {
+      var message = i % 3 == 0 ? "Boom, " + i + "\n\tat Foo.bar(Foo.java:1)" : "m" + i;
+      var date = String.format("2019-02-14T10:%02d:%02dZ", i / 60, i % 60);
+      lines.add(date + ",h,s,error,\"" + message + "\"");
+      messages.add(message);
+    }
+    Files.write(csvDir.resolve("extract-1.csv"), lines);
+
+    // When collected in chunks parsed in parallel
+    var result =
+        CollectPipeline.newBuilder().splitSize(1_000).parsers(4).build().run(csvDir, destDir);
+
+    // Then all the rows are collected, none being split across chunks
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(readDay("log.2019-02-14.json"))
+        .extracting(LogEntry::message)
+        .containsExactlyInAnyOrderElementsOf(messages);
+  }
+
+  @Test
+  public void runIncremental_producer() throws Exception {
+    var csv = csvDir.resolve("extract-1.csv");
+    Files.write(
+        csv,
+        List.of("date,Host,Service,Status,message", "2019-02-14T10:00:00Z,h,s,error,old14"));
+    assertThat(CollectPipeline.newBuilder().build().run(csvDir, destDir).isSuccess()).isTrue();
+
+    var entry =
+        LogEntry.newBuilder()
+            .dateTime(Timestamps.parse("2019-02-14T11:00:00Z"))
+            .host("h")
+            .service("s")
+            .status("error")
+            .message("fetched")
+            .build();
+    var result =
+        CollectPipeline.newBuilder()
+            .build()
+            .runIncremental(
+                sink ->
+                    Try.run(
+                        () -> {
+                          sink.accept(entry);
+                          sink.accept(entry);
+                        }),
+                destDir);
+
+    assertThat(result.isSuccess()).isTrue();
+    assertThat(readDay("log.2019-02-14.json"))
+        .extracting(LogEntry::message)
+        .containsExactly("old14", "fetched");
+  }
+
+  @Test
+  public void runIncremental_producerFailure() throws Exception {
+    var result =
+        CollectPipeline.newBuilder()
+            .build()
+            .runIncremental(sink -> Try.failure(new IOException("Boom")), destDir);
+
+    assertThat(result.getCause()).hasMessage("Boom");
+    assertThat(Files.list(destDir)).isEmpty();
+  }
+
+  private List<LogEntry> readDay(String filename) throws Exception {
+    var entries = new ArrayList<LogEntry>();
+    var reader = ObjectMapperFactory.newObjectMapper().readerFor(LogEntry.class);
+    reader.<LogEntry>readValues(destDir.resolve(filename).toFile()).forEachRemaining(entries::add);
+    return entries;
+  }
+}
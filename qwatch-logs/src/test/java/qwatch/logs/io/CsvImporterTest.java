@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -80,4 +81,32 @@ public class CsvImporterTest {
     var rows3 = CsvImporter.internalParseCsv("a,b,\"c1\nc2\"").get().toJavaList();
     assertThat(rows3).hasSize(1).containsExactly(new String[] {"a", "b", "c1\nc2"});
   }
+
+  @Test
+  public void importLogEntries_missingColumns() throws Exception {
+    var path = tempDir.newFile().toPath();
+    Files.write(path, List.of("date,Host,Service,Status,message", "2019-02-11,foo"));
+
+    var result = CsvImporter.importLogEntriesFromFile(path);
+    assertThat(result.getLeft()).isEqualTo("Unable to parse CSV file: " + path);
+  }
+
+  @Test
+  public void importLogEntries_batchesInOrder() throws Exception {
+    var path = tempDir.newFile().toPath();
+    var lines = new ArrayList<String>();
+    lines.add("date,Host,Service,Status,message");
+    int size = BatchClassifier.BATCH_SIZE * 3 + 1;
+    for (int i = 0; i < size; i++) {
+      lines.add("2019-02-11T12:13:57.916Z,foo,myService,error,Project p" + i + " not found.");
+    }
+    Files.write(path, lines);
+
+    var entries = CsvImporter.importLogEntriesFromFile(path).get();
+    assertThat(entries).hasSize(size);
+    for (int i = 0; i < size; i++) {
+      assertThat(entries.get(i).message()).isEqualTo("Project p" + i + " not found.");
+    }
+    assertThat(entries.last().summary()).isEqualTo("[P01] Project ${id} not found");
+  }
 }
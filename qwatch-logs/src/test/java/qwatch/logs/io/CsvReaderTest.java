@@ -0,0 +1,85 @@
+package qwatch.logs.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CsvReaderTest {
+
+  @Test
+  public void readRow() throws Exception {
+    var rows = readAll("A,B,C\na,b,c\n");
+    assertThat(rows).containsExactly(new String[] {"A", "B", "C"}, new String[] {"a", "b", "c"});
+  }
+
+  @Test
+  public void readRow_lineBreaks() throws Exception {
+    var rows = readAll("a,b\r\nc,d\re,f\n\ng,h");
+    assertThat(rows)
+        .containsExactly(
+            new String[] {"a", "b"},
+            new String[] {"c", "d"},
+            new String[] {"e", "f"},
+            new String[] {"g", "h"});
+  }
+
+  @Test
+  public void readRow_quoted() throws Exception {
+    var rows = readAll("\"a,1\",\"b\"\"2\"\"\",\"c1\r\nc2\"\nd,\"\",f");
+    assertThat(rows)
+        .containsExactly(new String[] {"a,1", "b\"2\"", "c1\r\nc2"}, new String[] {"d", "", "f"});
+  }
+
+  @Test
+  public void readRow_emptyFields() throws Exception {
+    var rows = readAll(",b,\n");
+    assertThat(rows).containsExactly(new String[] {"", "b", ""});
+  }
+
+  @Test
+  public void readRow_acrossBuffers() throws Exception {
+    // Fields larger than the internal buffer
+    var longValue = "x".repeat(100_000);
+    var content = "a,\"" + longValue + "\"\"" + longValue + "\"\n" + longValue + ",b";
+    var rows = readAll(content);
+    assertThat(rows)
+        .containsExactly(
+            new String[] {"a", longValue + "\"" + longValue}, new String[] {longValue, "b"});
+  }
+
+  @Test
+  public void readRow_channel() throws Exception {
+    var bytes = "a,é\nb,ü".getBytes(UTF_8);
+    var channel = Channels.newChannel(new ByteArrayInputStream(bytes));
+    var rows = new ArrayList<String[]>();
+    try (var reader = new CsvReader(channel)) {
+      reader.forEachRow(rows::add);
+    }
+    assertThat(rows).containsExactly(new String[] {"a", "é"}, new String[] {"b", "ü"});
+  }
+
+  @Test
+  public void readRow_empty() throws Exception {
+    try (var reader = new CsvReader(new StringReader(""))) {
+      assertThat(reader.readRow()).isNull();
+    }
+  }
+
+  private static ArrayList<String[]> readAll(String content) throws IOException {
+    var rows = new ArrayList<String[]>();
+    try (var reader = new CsvReader(new StringReader(content))) {
+      reader.forEachRow(rows::add);
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,130 @@
+package qwatch.logs.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class CsvScannerTest {
+
+  private static final boolean[] ALL = {true, true, true};
+
+  @Test
+  public void next_projection() throws Exception {
+    var bytes = "a,b,c\nd,e,f".getBytes(UTF_8);
+    var scanner = new CsvScanner(ByteBuffer.wrap(bytes), new boolean[] {true, false, true});
+
+    assertThat(scanner.next()).containsExactly("a", null, "c");
+    assertThat(scanner.next()).containsExactly("d", null, "f");
+    assertThat(scanner.next()).isNull();
+  }
+
+  @Test
+  public void next_fieldCount() throws Exception {
+    var scanner = new CsvScanner(ByteBuffer.wrap("a\nb,c,d,e\n".getBytes(UTF_8)), ALL);
+
+    assertThat(scanner.next()).containsExactly("a", null, null);
+    assertThat(scanner.fieldCount()).isEqualTo(1);
+    assertThat(scanner.next()).containsExactly("b", "c", "d");
+    assertThat(scanner.fieldCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void next_sameAsCsvReader() throws Exception {
+    var contents =
+        new String[] {
+          "A,B,C\na,b,c\n",
+          "a,b\r\nc,d\re,f\n\ng,h",
+          "\"a,1\",\"b\"\"2\"\"\",\"c1\r\nc2\"\nd,\"\",f",
+          ",b,\n",
+          "a,b,c,",
+          "\"a\"x,\"\"\"\",\"é,ü\"\n\"unterminated",
+          "\"x".repeat(10_000) + "\",y\n" + "é".repeat(100_000) + ",z"
+        };
+    for (var content : contents) {
+      var expected = readWithCsvReader(content);
+      var bytes = content.getBytes(UTF_8);
+      assertThat(scanAll(new CsvScanner(ByteBuffer.wrap(bytes), ALL)))
+          .as("buffer: %s", content)
+          .containsExactlyElementsOf(expected);
+      assertThat(scanAll(new CsvScanner(oneByteChannel(bytes), ALL)))
+          .as("channel: %s", content)
+          .containsExactlyElementsOf(expected);
+      assertThat(scanAll(new CsvScanner(Channels.newChannel(new ByteArrayInputStream(bytes)), ALL)))
+          .as("stream: %s", content)
+          .containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  public void next_directBuffer() throws Exception {
+    var bytes = "\"a\"\"b\",é,c\n".getBytes(UTF_8);
+    var buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+    assertThat(new CsvScanner(buffer, ALL).next()).containsExactly("a\"b", "é", "c");
+  }
+
+  private static ArrayList<String[]> scanAll(CsvScanner scanner) throws IOException {
+    var rows = new ArrayList<String[]>();
+    String[] row;
+    while ((row = scanner.next()) != null) {
+      // Missing fields are null for the scanner, but absent for the reader
+      var copy = new ArrayList<String>();
+      for (int i = 0; i < Math.min(scanner.fieldCount(), row.length); i++) {
+        copy.add(row[i]);
+      }
+      rows.add(copy.toArray(new String[0]));
+    }
+    return rows;
+  }
+
+  private static ArrayList<String[]> readWithCsvReader(String content) throws IOException {
+    var rows = new ArrayList<String[]>();
+    try (var reader = new CsvReader(new StringReader(content))) {
+      reader.forEachRow(
+          row -> rows.add(Arrays.copyOf(row, Math.min(row.length, ALL.length))));
+    }
+    return rows;
+  }
+
+  /** A channel returning at most one byte per read, to cut rows at every possible position. */
+  private static ReadableByteChannel oneByteChannel(byte[] bytes) {
+    var stream = Channels.newChannel(new ByteArrayInputStream(bytes));
+    return new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+          return 0;
+        }
+        var one = ByteBuffer.allocate(1);
+        int n = stream.read(one);
+        if (n > 0) {
+          dst.put(one.flip());
+        }
+        return n;
+      }
+
+      @Override
+      public boolean isOpen() {
+        return stream.isOpen();
+      }
+
+      @Override
+      public void close() throws IOException {
+        stream.close();
+      }
+    };
+  }
+}
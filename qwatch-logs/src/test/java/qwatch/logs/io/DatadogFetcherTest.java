@@ -0,0 +1,220 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DatadogFetcherTest {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final ZonedDateTime FROM = Timestamps.parse("2019-02-14T00:00:00Z");
+
+  private HttpServer server;
+  private ExecutorService serverExecutor;
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(0);
+      serverExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void fetch_paginatedSlices() throws Exception {
+    // Given a server returning two pages per slice
+    var apiKeys = new ConcurrentLinkedQueue<String>();
+    start(
+        exchange -> {
+          apiKeys.add(exchange.getRequestHeaders().getFirst(DatadogFetcher.HEADER_API_KEY));
+          var body = mapper.readTree(exchange.getRequestBody());
+          var from = body.path("filter").path("from").asText();
+          var cursor = body.path("page").path("cursor").asText(null);
+          if (cursor == null) {
+            return new Response(200, page(from, "p1", "next-" + from));
+          }
+          return new Response(200, page(from, "p2", null));
+        });
+
+    // When fetching 4 slices of one hour
+    var entries = new ConcurrentLinkedQueue<LogEntry>();
+    var result = newFetcher().fetch(FROM, FROM.plusHours(4), entries::add);
+
+    // Then all the pages of all the slices are fetched
+    assertThat(result.get()).isEqualTo(16L);
+    assertThat(requests.get()).isEqualTo(8);
+    assertThat(apiKeys).containsOnly("myApiKey");
+    assertThat(entries)
+        .extracting(LogEntry::message)
+        .contains("p1 at 2019-02-14T00:00:00Z", "p2 at 2019-02-14T03:00:00Z");
+    assertThat(entries).extracting(LogEntry::host).containsOnly("myHost");
+    assertThat(entries).extracting(LogEntry::status).containsOnly("error");
+  }
+
+  @Test
+  public void fetch_retriesRateLimited() throws Exception {
+    var attempts = new AtomicInteger();
+    start(
+        exchange -> {
+          exchange.getResponseHeaders().add(DatadogFetcher.HEADER_RATE_LIMIT_RESET, "0");
+          if (attempts.incrementAndGet() <= 2) {
+            return new Response(429, "{\"errors\":[\"Too many requests\"]}");
+          }
+          return new Response(200, page("2019-02-14T00:00:00Z", "m", null));
+        });
+
+    var result = newFetcher().fetch(FROM, FROM.plusHours(1), entry -> {});
+
+    assertThat(result.get()).isEqualTo(2L);
+    assertThat(requests.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void fetch_serverErrorExhaustsRetries() throws Exception {
+    start(exchange -> new Response(503, "unavailable"));
+
+    var result = newFetcher().fetch(FROM, FROM.plusHours(1), entry -> {});
+
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("Failed after 4 attempts");
+    assertThat(requests.get()).isEqualTo(4);
+  }
+
+  @Test
+  public void fetch_clientErrorIsNotRetried() throws Exception {
+    start(exchange -> new Response(403, "{\"errors\":[\"Forbidden\"]}"));
+
+    var result = newFetcher().fetch(FROM, FROM.plusHours(1), entry -> {});
+
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("Unexpected status 403");
+    assertThat(requests.get()).isEqualTo(1);
+  }
+
+  @Test(timeout = 10_000)
+  public void fetch_failureCancelsOtherSlices() throws Exception {
+    // Given a first slice whose pages never end, and a second slice failing
+    start(
+        exchange -> {
+          var from = mapper.readTree(exchange.getRequestBody()).path("filter").path("from");
+          if (from.asText().equals("2019-02-14T00:00:00Z")) {
+            return new Response(200, page(from.asText(), "m", "next"));
+          }
+          return new Response(403, "{\"errors\":[\"Forbidden\"]}");
+        });
+
+    // When fetching, then the failure is returned without waiting for the first slice
+    var result = newFetcher().fetch(FROM, FROM.plusHours(2), entry -> {});
+
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause()).hasMessageContaining("Unexpected status 403");
+  }
+
+  @Test
+  public void fetch_sinkFailureIsNotRetried() throws Exception {
+    start(exchange -> new Response(200, page("2019-02-14T00:00:00Z", "m", null)));
+
+    var result =
+        newFetcher()
+            .fetch(
+                FROM,
+                FROM.plusHours(1),
+                entry -> {
+                  throw new IOException("Disk full");
+                });
+
+    assertThat(result.getCause()).isInstanceOf(IOException.class).hasMessage("Disk full");
+    assertThat(requests.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void slices() throws Exception {
+    start(exchange -> new Response(200, "{}"));
+    var slices = newFetcher().slices(FROM, FROM.plusMinutes(150));
+    assertThat(slices.map(s -> s._2))
+        .containsExactly(FROM.plusHours(1), FROM.plusHours(2), FROM.plusMinutes(150));
+  }
+
+  private DatadogFetcher newFetcher() {
+    return DatadogFetcher.newBuilder()
+        .site(URI.create("http://localhost:" + server.getAddress().getPort()))
+        .apiKey("myApiKey")
+        .applicationKey("myAppKey")
+        .sliceDuration(Duration.ofHours(1))
+        .concurrency(2)
+        .maxRetries(3)
+        .backoff(Duration.ofMillis(1), Duration.ofMillis(10))
+        .build();
+  }
+
+  /** Page of two logs, using the v2 event format. */
+  private static String page(String date, String prefix, String cursor) {
+    var event =
+        "{\"id\":\"%s\",\"type\":\"log\",\"attributes\":{\"timestamp\":\"%s\","
+            + "\"host\":\"myHost\",\"service\":\"myService\",\"status\":\"error\","
+            + "\"message\":\"%s at %s\",\"tags\":[\"env:prod\"],"
+            + "\"attributes\":{\"message\":\"ignored\",\"count\":%d}}}";
+    var meta = cursor == null ? "{}" : "{\"page\":{\"after\":\"" + cursor + "\"}}";
+    return "{\"data\":["
+        + String.format(event, prefix + 1, date, prefix, date, 1)
+        + ","
+        + String.format(event, prefix + 2, date, prefix + "'", date, 2)
+        + "],\"meta\":"
+        + meta
+        + ",\"links\":{}}";
+  }
+
+  private void start(Handler handler) throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    serverExecutor = Executors.newFixedThreadPool(4);
+    server.setExecutor(serverExecutor);
+    server.createContext(
+        DatadogFetcher.SEARCH_PATH,
+        exchange -> {
+          requests.incrementAndGet();
+          var response = handler.handle(exchange);
+          var bytes = response.body.getBytes(UTF_8);
+          exchange.sendResponseHeaders(response.status, bytes.length);
+          try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+          }
+        });
+    server.start();
+  }
+
+  @FunctionalInterface
+  private interface Handler {
+    Response handle(HttpExchange exchange) throws IOException;
+  }
+
+  private static final class Response {
+    private final int status;
+    private final String body;
+
+    private Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the import of the same logs exported as CSV and as NDJSON.
+ *
+ * <p>Run it with the test classpath, e.g. from the IDE, using the main method.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatadogImporterBenchmark {
+
+  private static final int ENTRIES = 100_000;
+
+  private Path dir;
+  private Path csv;
+  private Path ndjson;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    var mapper = new ObjectMapper();
+    dir = Files.createTempDirectory("qwatch-bench-");
+    var csvLines = new ArrayList<String>();
+    var jsonLines = new ArrayList<String>();
+    csvLines.add("date,Host,Service,Status,message,Env,Version");
+    var start = ZonedDateTime.of(2019, 2, 11, 0, 0, 0, 0, ZoneId.of("UTC"));
+    for (int i = 0; i < ENTRIES; i++) {
+      var date = String.format("%tFT%<tT.%<tLZ", start.plusNanos(i * 7_919_000_000L));
+      var host = "host-" + i % 16;
+      var message = "Project p" + i + " not found, \"id\": " + i * 31;
+      var quoted = "\"" + message.replace("\"", "\"\"") + "\"";
+      var version = "1.0." + i % 7;
+      csvLines.add(String.join(",", date, host, "myService", "error", quoted, "prod", version));
+      var event = mapper.createObjectNode();
+      event.put("id", "AQAAAW" + i);
+      var content = event.putObject("content");
+      content.put("timestamp", date);
+      content.put("host", host);
+      content.put("service", "myService");
+      content.put("message", message);
+      content.putArray("tags").add("env:prod").add("version:" + version);
+      content.putObject("attributes").put("status", "error").put("duration", i * 3);
+      jsonLines.add(mapper.writeValueAsString(event));
+    }
+    csv = Files.write(dir.resolve("extract-1.csv"), csvLines, UTF_8);
+    ndjson = Files.write(dir.resolve("extract-1.ndjson"), jsonLines, UTF_8);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.delete(csv);
+    Files.delete(ndjson);
+    Files.delete(dir);
+  }
+
+  @Benchmark
+  public Object csv() {
+    return CsvImporter.importLogEntriesFromFile(csv).get();
+  }
+
+  @Benchmark
+  public Object ndjson() {
+    return DatadogImporter.importLogEntriesFromFile(ndjson).get();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var options =
+        new OptionsBuilder().include(DatadogImporterBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
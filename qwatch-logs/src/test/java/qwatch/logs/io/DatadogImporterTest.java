@@ -0,0 +1,113 @@
+package qwatch.logs.io;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DatadogImporterTest {
+
+  private static final String EVENT_1 =
+      "{\"id\":\"A\",\"content\":{\"timestamp\":\"2019-02-11T12:13:57.916Z\",\"host\":\"foo\","
+          + "\"service\":\"myService\",\"message\":\"Project foo not found.\","
+          + "\"attributes\":{\"status\":\"error\",\"http\":{\"status_code\":404}}}}";
+  private static final String EVENT_2 =
+      "{\"id\":\"B\",\"attributes\":{\"timestamp\":\"2019-02-11T12:13:57.917Z\",\"host\":\"foo\","
+          + "\"service\":\"myService\",\"status\":\"error\",\"message\":\"First line\\nanother\"}}";
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = tempDir.newFolder().toPath();
+  }
+
+  @Test
+  public void importLogEntriesFromFile_array() throws Exception {
+    var path = write("extract-1.json", "[" + EVENT_1 + ",\n" + EVENT_2 + "]");
+    var entries = DatadogImporter.importLogEntriesFromFile(path).get();
+    assertThat(entries).containsExactly(entry1(), entry2());
+  }
+
+  @Test
+  public void importLogEntriesFromFile_ndjson() throws Exception {
+    var path = write("extract-1.ndjson", EVENT_1 + "\n" + EVENT_2 + "\n");
+    var entries = DatadogImporter.importLogEntriesFromFile(path).get();
+    assertThat(entries).containsExactly(entry1(), entry2());
+  }
+
+  @Test
+  public void importLogEntriesFromFile_wrapped() throws Exception {
+    var content =
+        "{\"data\":[" + EVENT_2 + "],\"meta\":{\"page\":{\"after\":\"x\"}}}\n"
+            + "{\"logs\":[" + EVENT_1 + "],\"nextLogId\":null,\"status\":\"done\"}";
+    var path = write("extract-1.json", content);
+    var entries = DatadogImporter.importLogEntriesFromFile(path).get();
+    assertThat(entries).containsExactly(entry2(), entry1());
+  }
+
+  @Test
+  public void importLogEntriesFromFile_invalid() throws Exception {
+    var path = write("extract-1.json", "[" + EVENT_1 + ", {\"timestamp\": ");
+    var result = DatadogImporter.importLogEntriesFromFile(path);
+    assertThat(result.getLeft()).isEqualTo("Unable to parse Datadog export: " + path);
+  }
+
+  @Test
+  public void importLogEntries() throws Exception {
+    write("extract-1.json", "[" + EVENT_1 + "]");
+    write("extract-2.ndjson", EVENT_2 + "\n" + EVENT_1);
+    write("extract-3.csv", "date,Host,Service,Status,message");
+    write("other.json", "[" + EVENT_1 + "]");
+
+    var entries = DatadogImporter.importLogEntries(dir).get();
+
+    assertThat(entries).containsExactlyInAnyOrder(entry1(), entry2());
+  }
+
+  @Test
+  public void isExport() {
+    assertThat(DatadogImporter.isExport(dir.resolve("extract-1.json"))).isTrue();
+    assertThat(DatadogImporter.isExport(dir.resolve("extract-1.ndjson"))).isTrue();
+    assertThat(DatadogImporter.isExport(dir.resolve("extract-1.csv"))).isFalse();
+    assertThat(DatadogImporter.isExport(dir.resolve("log.2019-02-11.json"))).isFalse();
+  }
+
+  private Path write(String filename, String content) throws Exception {
+    return Files.write(dir.resolve(filename), List.of(content), UTF_8);
+  }
+
+  private static LogEntry entry1() {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse("2019-02-11T12:13:57.916Z"))
+        .host("foo")
+        .service("myService")
+        .status("error")
+        .message("Project foo not found.")
+        .build();
+  }
+
+  private static LogEntry entry2() {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse("2019-02-11T12:13:57.917Z"))
+        .host("foo")
+        .service("myService")
+        .status("error")
+        .message("First line\nanother")
+        .build();
+  }
+}
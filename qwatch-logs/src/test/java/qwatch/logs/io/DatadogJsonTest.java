@@ -0,0 +1,68 @@
+package qwatch.logs.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DatadogJsonTest {
+
+  private static final JsonFactory factory = new JsonFactory();
+
+  @Test
+  public void readEvent_v2() throws Exception {
+    var json =
+        "{\"id\":\"A\",\"type\":\"log\",\"attributes\":{"
+            + "\"attributes\":{\"host\":\"nested\",\"status\":\"warn\"},"
+            + "\"host\":\"myHost\",\"service\":\"myService\",\"status\":\"error\","
+            + "\"tags\":[\"a\",{\"b\":1}],\"message\":\"Hello\","
+            + "\"timestamp\":\"2019-02-14T12:44:20.962Z\"}}";
+    assertThat(read(json))
+        .isEqualTo(
+            LogEntry.newBuilder()
+                .dateTime(Timestamps.parse("2019-02-14T12:44:20.962Z"))
+                .host("myHost")
+                .service("myService")
+                .status("error")
+                .message("Hello")
+                .build());
+  }
+
+  @Test
+  public void readEvent_v1ContentWithEpochMillis() throws Exception {
+    var json =
+        "{\"id\":\"A\",\"content\":{\"timestamp\":1550148260962,\"host\":\"h\","
+            + "\"service\":\"s\",\"message\":\"Hello\",\"attributes\":{\"status\":\"warn\"}}}";
+    var entry = read(json);
+    assertThat(entry.dateTime()).isEqualTo(Timestamps.parse("2019-02-14T12:44:20.962Z"));
+    assertThat(entry.status()).isEqualTo("warn");
+  }
+
+  @Test
+  public void readEvent_missingFields() throws Exception {
+    assertThat(read("{\"message\":\"no date\"}")).isNull();
+    var entry = read("{\"timestamp\":\"2019-02-14T12:44:20Z\",\"message\":\"m\",\"host\":null}");
+    assertThat(entry.host()).isEmpty();
+    assertThat(entry.status()).isEqualTo("error");
+  }
+
+  @Test
+  public void readEvent_invalidDate() {
+    assertThatThrownBy(() -> read("{\"timestamp\":\"yesterday\",\"message\":\"m\"}"))
+        .hasMessage("Unable to parse date: yesterday");
+  }
+
+  private static LogEntry read(String json) throws Exception {
+    try (var parser = factory.createParser(json)) {
+      parser.nextToken();
+      return DatadogJson.readEvent(parser);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import qwatch.logs.model.LogEntry;
+
+/**
+ * Compares writing and reading a month of day files in each {@link DayFileFormat}. Reading the
+ * summary scans the entries through the {@link SegmentStore}.
+ *
+ * <p>Run it with the test classpath, e.g. from the IDE, using the main method.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DayFileFormatBenchmark {
+
+  private static final int DAYS = 30;
+  private static final int ENTRIES_PER_DAY = 10_000;
+
+  @Param({"JSON", "NDJSON", "NDJSON_GZIP", "SEGMENT"})
+  public DayFileFormat format;
+
+  private Path dir;
+  private List<List<LogEntry>> days;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("qwatch-bench-");
+    days = new ArrayList<>();
+    var start = LocalDate.of(2019, 2, 1).atStartOfDay(ZoneId.of("UTC"));
+    for (int d = 0; d < DAYS; d++) {
+      var entries = new ArrayList<LogEntry>();
+      for (int i = 0; i < ENTRIES_PER_DAY; i++) {
+        entries.add(
+            LogEntry.newBuilder()
+                .dateTime(start.plusDays(d).plusSeconds(i * 8))
+                .host("host-" + i % 16)
+                .service("service-" + i % 4)
+                .status("error")
+                .message("Project p" + i + " not found, id: " + i * 31)
+                .build());
+      }
+      days.add(entries);
+    }
+    write();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (var paths = Files.list(dir)) {
+      for (var path : (Iterable<Path>) paths::iterator) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  @Benchmark
+  public Object write() throws IOException {
+    var start = LocalDate.of(2019, 2, 1);
+    for (int d = 0; d < DAYS; d++) {
+      try (var w = format.newWriter(dir.resolve(format.filename(start.plusDays(d))))) {
+        for (var entry : days.get(d)) {
+          w.accept(entry);
+        }
+      }
+    }
+    return dir;
+  }
+
+  @Benchmark
+  public long read() throws IOException {
+    long count = 0;
+    for (var path : DayFileFormat.listDayFiles(dir).get()) {
+      try (var it = DayFileFormat.openEntries(path)) {
+        while (it.hasNext()) {
+          it.next();
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Reads what summarizing needs, without materializing the entries of segments. */
+  @Benchmark
+  public long readSummary() {
+    var patterns = new long[1];
+    new SegmentStore(dir)
+        .scan(
+            LocalDate.of(2019, 2, 1),
+            SegmentColumn.summary(),
+            cursor -> patterns[0] += cursor.logPattern().isDefined() ? 1 : 0);
+    return patterns[0];
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var options =
+        new OptionsBuilder().include(DayFileFormatBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
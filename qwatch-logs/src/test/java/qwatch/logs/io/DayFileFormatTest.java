@@ -0,0 +1,119 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DayFileFormatTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private static final LocalDate DAY = LocalDate.of(2019, 2, 14);
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = tempDir.newFolder("dest").toPath();
+  }
+
+  @Test
+  public void filename() {
+    assertThat(DayFileFormat.JSON.filename(DAY)).isEqualTo("log.2019-02-14.json");
+    assertThat(DayFileFormat.NDJSON.filename(DAY)).isEqualTo("log.2019-02-14.ndjson");
+    assertThat(DayFileFormat.NDJSON_GZIP.filename(DAY)).isEqualTo("log.2019-02-14.ndjson.gz");
+    assertThat(DayFileFormat.SEGMENT.filename(DAY)).isEqualTo("log.2019-02-14.seg");
+  }
+
+  @Test
+  public void writeThenRead() throws Exception {
+    var entries = List.of(entry("2019-02-14T12:00:00Z", "a"), entry("2019-02-14T13:00:00Z", "b"));
+    for (var format : DayFileFormat.values()) {
+      var path = dir.resolve(format.filename(DAY));
+      write(format, path, entries);
+      assertThat(read(path)).as(format.name()).isEqualTo(entries);
+    }
+  }
+
+  @Test
+  public void ndjson_oneCompactObjectPerLine() throws Exception {
+    var path = dir.resolve(DayFileFormat.NDJSON_GZIP.filename(DAY));
+    write(
+        DayFileFormat.NDJSON_GZIP,
+        path,
+        List.of(entry("2019-02-14T12:00:00Z", "a"), entry("2019-02-14T13:00:00Z", "b")));
+
+    String content;
+    try (var in = new GZIPInputStream(Files.newInputStream(path))) {
+      content = new String(in.readAllBytes(), UTF_8);
+    }
+    var line =
+        "{\"date\":\"2019-02-14T%s:00:00Z\",\"host\":\"myHost\",\"service\":\"myService\","
+            + "\"status\":\"error\",\"message\":\"%s\"}\n";
+    assertThat(content).isEqualTo(String.format(line, 12, "a") + String.format(line, 13, "b"));
+  }
+
+  @Test
+  public void listDayFiles() throws Exception {
+    for (var format : DayFileFormat.values()) {
+      write(format, dir.resolve(format.filename(DAY)), List.of());
+    }
+    Files.write(dir.resolve(Manifest.FILENAME), "{}".getBytes(UTF_8));
+
+    assertThat(DayFileFormat.listDayFiles(dir).get()).hasSize(4);
+    assertThat(DayFileFormat.existingDayFiles(dir, DAY)).hasSize(4);
+    assertThat(DayFileFormat.existingDayFiles(dir, DAY.plusDays(1))).isEmpty();
+  }
+
+  @Test
+  public void dayOf() {
+    assertThat(DayFileFormat.dayOf(dir.resolve("log.2019-02-14.seg"))).contains(DAY);
+    assertThat(DayFileFormat.dayOf(dir.resolve("log.2019-02-14.ndjson.gz"))).contains(DAY);
+    assertThat(DayFileFormat.dayOf(dir.resolve("log.json"))).isEmpty();
+    assertThat(DayFileFormat.dayOf(dir.resolve("log.2019-02-xx.json"))).isEmpty();
+  }
+
+  private static void write(DayFileFormat format, Path path, List<LogEntry> entries)
+      throws IOException {
+    try (var w = format.newWriter(path)) {
+      for (var entry : entries) {
+        w.accept(entry);
+      }
+    }
+  }
+
+  private static List<LogEntry> read(Path path) throws IOException {
+    var entries = new ArrayList<LogEntry>();
+    try (var it = DayFileFormat.openEntries(path)) {
+      it.forEachRemaining(entries::add);
+    }
+    return entries;
+  }
+
+  private static LogEntry entry(String date, String message) {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse(date))
+        .host("myHost")
+        .service("myService")
+        .status("error")
+        .message(message)
+        .build();
+  }
+}
@@ -0,0 +1,183 @@
+package qwatch.logs.io;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.ObjectMapperFactory;
+import qwatch.logs.util.Timestamps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class DayWritersTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path destDir;
+  private Path spillDir;
+
+  @Before
+  public void setUp() throws Exception {
+    destDir = tempDir.newFolder("dest").toPath();
+    spillDir = tempDir.newFolder("spill").toPath();
+  }
+
+  @Test
+  public void finish_inMemory() throws Exception {
+    var writers = new DayWriters(destDir, spillDir, 1_000);
+    writers.add(entry("2019-02-14T12:00:02Z", "b"));
+    writers.add(entry("2019-02-14T12:00:01Z", "a"));
+    writers.add(entry("2019-02-14T12:00:01Z", "a"));
+    writers.add(entry("2019-02-15T00:00:00Z", "c"));
+
+    assertThat(writers.days())
+        .containsExactlyInAnyOrder(LocalDate.of(2019, 2, 14), LocalDate.of(2019, 2, 15));
+    assertThat(writers.finish().isSuccess()).isTrue();
+
+    var day14 = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.json"));
+    assertThat(day14.get().map(LogEntry::message)).containsExactlyInAnyOrder("a", "b");
+    var day15 = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-15.json"));
+    assertThat(day15.get().map(LogEntry::message)).containsExactly("c");
+    assertThat(Files.list(spillDir)).isEmpty();
+  }
+
+  @Test
+  public void finish_spilled() throws Exception {
+    // Given more entries than the buffer limit, with duplicates across runs
+    var writers = new DayWriters(destDir, spillDir, 10);
+    var expected = new ArrayList<LogEntry>();
+    for (int i = 0; i < 100; i++) {
+      var entry = entry(String.format("2019-02-14T12:00:%02dZ", 59 - i % 60), "m" + i % 60);
+      writers.add(entry);
+      if (i < 60) {
+        expected.add(entry);
+      }
+    }
+    assertThat(Files.list(spillDir)).isNotEmpty();
+
+    // When finishing
+    assertThat(writers.finish().isSuccess()).isTrue();
+
+    // Then runs are merged into a sorted day file, without duplicates
+    var path = destDir.resolve("log.2019-02-14.json");
+    var entries = new ArrayList<LogEntry>();
+    var reader = ObjectMapperFactory.newObjectMapper().readerFor(LogEntry.class);
+    reader.<LogEntry>readValues(path.toFile()).forEachRemaining(entries::add);
+    expected.sort(LogEntry.BY_DATE);
+    assertThat(entries).containsExactlyElementsOf(expected);
+    assertThat(Files.list(spillDir)).isEmpty();
+  }
+
+  @Test
+  public void finish_replacesExistingFile() throws Exception {
+    Files.write(destDir.resolve("log.2019-02-14.json"), "[]".getBytes());
+    var writers = new DayWriters(destDir, spillDir, 1_000);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    assertThat(writers.finish().isSuccess()).isTrue();
+
+    var day14 = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.json"));
+    assertThat(day14.get().map(LogEntry::message)).containsExactly("a");
+    assertThat(Files.list(destDir)).hasSize(1);
+  }
+
+  @Test
+  public void finish_failureLeavesDayFilesUnchanged() throws Exception {
+    // Given a day in memory and a day whose run file is lost
+    var day14 = destDir.resolve("log.2019-02-14.json");
+    Files.write(day14, "[]".getBytes());
+    var writers = new DayWriters(destDir, spillDir, 2);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-15T12:00:00Z", "b"));
+    writers.add(entry("2019-02-15T13:00:00Z", "c"));
+    try (var runs = Files.newDirectoryStream(spillDir, "run-2019-02-15-*")) {
+      for (var run : runs) {
+        Files.delete(run);
+      }
+    }
+
+    // When finishing, then no day file is written, whatever the order of the days
+    assertThat(writers.finish().isFailure()).isTrue();
+    assertThat(Files.list(destDir)).containsExactly(day14);
+    assertThat(Files.readAllBytes(day14)).isEqualTo("[]".getBytes());
+  }
+
+  @Test
+  public void finish_returnsSummaries() throws Exception {
+    var writers = new DayWriters(destDir, spillDir, 1_000);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-14T11:00:00Z", "b"));
+
+    var summaries = writers.finish().get();
+
+    var digest = new Manifest.Digest();
+    digest.add(entry("2019-02-14T11:00:00Z", "b"));
+    digest.add(entry("2019-02-14T12:00:00Z", "a"));
+    assertThat(summaries.keySet()).containsExactly(LocalDate.of(2019, 2, 14));
+    assertThat(summaries.get(LocalDate.of(2019, 2, 14)).get()).isEqualTo(digest.toDay());
+  }
+
+  @Test
+  public void discardUnchanged() throws Exception {
+    // Given day files written with their summaries
+    var writers = new DayWriters(destDir, spillDir, 1_000);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-15T12:00:00Z", "b"));
+    var manifest = Manifest.empty().withDays(writers.finish().get());
+
+    // When adding the same entries to the 14th, spilled and with duplicates, and a new entry to
+    // the 15th
+    writers = new DayWriters(destDir, spillDir, 1);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-15T13:00:00Z", "c"));
+    var discarded = writers.discardUnchanged(manifest);
+
+    // Then only the 14th is discarded
+    assertThat(discarded.get()).containsExactly(LocalDate.of(2019, 2, 14));
+    assertThat(writers.days()).containsExactly(LocalDate.of(2019, 2, 15));
+    assertThat(writers.finish().get().keySet()).containsExactly(LocalDate.of(2019, 2, 15));
+    assertThat(Files.list(spillDir)).isEmpty();
+  }
+
+  @Test
+  public void finish_replacesOtherFormat() throws Exception {
+    // Given a day file in the original format
+    var writers = new DayWriters(destDir, spillDir, 1_000);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.finish();
+
+    // When writing the same day in NDJSON, with the existing entries
+    writers = new DayWriters(destDir, spillDir, 1_000, DayFileFormat.NDJSON_GZIP);
+    writers.add(entry("2019-02-14T12:00:00Z", "a"));
+    writers.add(entry("2019-02-14T13:00:00Z", "b"));
+    assertThat(writers.finish().isSuccess()).isTrue();
+
+    // Then the day file in the original format is replaced
+    var path = destDir.resolve("log.2019-02-14.ndjson.gz");
+    assertThat(Files.list(destDir)).containsExactly(path);
+    var day14 = JsonImporter.importLogEntriesFromFile(path);
+    assertThat(day14.get().map(LogEntry::message)).containsExactlyInAnyOrder("a", "b");
+  }
+
+  private static LogEntry entry(String date, String message) {
+    ZonedDateTime d = Timestamps.parse(date);
+    return LogEntry.newBuilder()
+        .dateTime(d)
+        .host("myHost")
+        .service("myService")
+        .status("error")
+        .message(message)
+        .build();
+  }
+}
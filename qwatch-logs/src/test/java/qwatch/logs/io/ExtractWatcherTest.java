@@ -0,0 +1,194 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.util.LogPatterns;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class ExtractWatcherTest {
+
+  private static final String HEADER = "date,Host,Service,Status,message\n";
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path csvDir;
+  private Path destDir;
+  private ExtractWatcher watcher;
+
+  @Before
+  public void setUp() throws Exception {
+    csvDir = tempDir.newFolder("csv").toPath();
+    destDir = tempDir.newFolder("dest").toPath();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  @Test
+  public void poll_newExtract() throws Exception {
+    // Given an extract existing before watching
+    write("extract-old.csv", HEADER + "2019-02-13T10:00:00Z,h,s,error,old\n");
+    watcher = newWatcher(Duration.ofMillis(200));
+
+    // When a new extract is written
+    var csv = write("extract-new.csv", HEADER + "2019-02-14T10:00:00Z,h,s,error,new\n");
+
+    // Then only the new extract is collected
+    assertThat(pollUntilCollected()).containsExactly(csv);
+    assertThat(destDir.resolve("log.2019-02-13.json")).doesNotExist();
+    var entries = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.json"));
+    assertThat(entries.get().map(LogEntry::message)).containsExactly("new");
+  }
+
+  @Test
+  public void poll_waitsForQuietPeriod() throws Exception {
+    watcher = newWatcher(Duration.ofMillis(500));
+
+    // Given an extract being written slowly
+    var csv = write("extract-1.csv", HEADER);
+    for (int i = 0; i < 5; i++) {
+      assertThat(watcher.poll(Duration.ofMillis(100))).isEmpty();
+      var row = "2019-02-14T10:00:0" + i + "Z,h,s,error,m" + i + "\n";
+      Files.write(csv, row.getBytes(UTF_8), StandardOpenOption.APPEND);
+    }
+
+    // When it is complete, then all its rows are collected
+    assertThat(pollUntilCollected()).containsExactly(csv);
+    var entries = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.json"));
+    assertThat(entries.get()).hasSize(5);
+  }
+
+  @Test
+  public void poll_retriesFailedExtract() throws Exception {
+    // Given a destination which cannot be written
+    Files.delete(destDir);
+    Files.write(destDir, new byte[0]);
+    watcher = newWatcher(Duration.ofMillis(100));
+    var csv = write("extract-1.csv", HEADER + "2019-02-14T10:00:00Z,h,s,error,m\n");
+    for (int i = 0; i < 5; i++) {
+      assertThat(watcher.poll(Duration.ofMillis(100))).isEmpty();
+    }
+
+    // When the destination is fixed, then the extract is collected without being modified
+    Files.delete(destDir);
+    Files.createDirectory(destDir);
+    assertThat(pollUntilCollected()).containsExactly(csv);
+    assertThat(destDir.resolve("log.2019-02-14.json")).exists();
+  }
+
+  @Test
+  public void poll_retriesUnreadableExtract() throws Exception {
+    // Given an extract whose last row is truncated
+    watcher = newWatcher(Duration.ofMillis(100));
+    var csv = write("extract-1.csv", HEADER + "2019-02-14T10:00:00Z,h,s,error,m1\n2019-02-14");
+    for (int i = 0; i < 5; i++) {
+      assertThat(watcher.poll(Duration.ofMillis(100))).isEmpty();
+    }
+    assertThat(destDir.resolve("log.2019-02-14.json")).doesNotExist();
+
+    // When the extract is completed, then all its rows are collected
+    Files.write(csv, "T11:00:00Z,h,s,error,m2\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+    assertThat(pollUntilCollected()).containsExactly(csv);
+    var entries = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-14.json"));
+    assertThat(entries.get().map(LogEntry::message)).containsExactlyInAnyOrder("m1", "m2");
+  }
+
+  @Test
+  public void poll_reloadsModifiedCatalog() throws Exception {
+    var previous = LogPatterns.registry();
+    try {
+      // Given a watcher using a catalog
+      var catalog = tempDir.newFile("catalog.json").toPath();
+      writeCatalog(catalog, 101, Instant.parse("2019-02-14T10:00:00Z"));
+      watcher =
+          ExtractWatcher.newBuilder()
+              .csvDir(csvDir)
+              .destDir(destDir)
+              .catalog(catalog)
+              .quietPeriod(Duration.ofMillis(100))
+              .start();
+      assertThat(LogPatterns.registry().patterns().map(LogPattern::id)).containsExactly(101);
+
+      // When the catalog is modified, then the next extracts are classified with it
+      writeCatalog(catalog, 102, Instant.parse("2019-02-14T11:00:00Z"));
+      write("extract-1.csv", HEADER + "2019-02-15T10:00:00Z,h,s,error,Timeout after 300 ms\n");
+      assertThat(pollUntilCollected()).hasSize(1);
+      var entries = JsonImporter.importLogEntriesFromFile(destDir.resolve("log.2019-02-15.json"));
+      assertThat(entries.get().map(LogEntry::patternId)).containsExactly(102);
+    } finally {
+      LogPatterns.install(previous);
+    }
+  }
+
+  @Test
+  public void poll_ignoresOtherFiles() throws Exception {
+    watcher = newWatcher(Duration.ofMillis(100));
+    write("notes.csv", HEADER + "2019-02-14T10:00:00Z,h,s,error,m\n");
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(watcher.poll(Duration.ofMillis(100))).isEmpty();
+    }
+    assertThat(Files.list(destDir)).isEmpty();
+  }
+
+  private ExtractWatcher newWatcher(Duration quietPeriod) throws Exception {
+    return ExtractWatcher.newBuilder()
+        .csvDir(csvDir)
+        .destDir(destDir)
+        .quietPeriod(quietPeriod)
+        .start();
+  }
+
+  private static void writeCatalog(Path path, int id, Instant modified) throws Exception {
+    var lines =
+        List.of(
+            "{",
+            "  \"builtin\" : false,",
+            "  \"patterns\" : [ {",
+            "    \"id\" : " + id + ",",
+            "    \"regex\" : \"^Timeout after (.*) ms$\",",
+            "    \"shortMsg\" : \"Timeout\",",
+            "    \"longMsg\" : \"Timeout after ${duration} ms\"",
+            "  } ]",
+            "}");
+    Files.write(path, lines);
+    Files.setLastModifiedTime(path, FileTime.from(modified));
+  }
+
+  private Path write(String filename, String content) throws Exception {
+    return Files.write(csvDir.resolve(filename), content.getBytes(UTF_8));
+  }
+
+  private List<Path> pollUntilCollected() throws Exception {
+    long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+    while (System.nanoTime() < deadline) {
+      var collected = watcher.poll(Duration.ofMillis(100));
+      if (!collected.isEmpty()) {
+        return collected;
+      }
+    }
+    return List.empty();
+  }
+}
@@ -0,0 +1,129 @@
+package qwatch.logs.io;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class IngestionExecutorTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private List<Path> paths;
+  private IngestionExecutor executor;
+
+  @Before
+  public void setUp() throws Exception {
+    paths = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      var path = tempDir.newFile().toPath();
+      Files.write(path, new byte[100]);
+      paths.add(path);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.close();
+    }
+  }
+
+  @Test
+  public void foldCompleted() throws Exception {
+    executor = IngestionExecutor.newBuilder().threads(4).build();
+    int sum = executor.foldCompleted(paths, p -> () -> 1, 0, Integer::sum);
+    assertThat(sum).isEqualTo(20);
+  }
+
+  @Test
+  public void fileTaskExecutor_fromOwnThreads() throws Exception {
+    // Each file waits for a task of its own, while all the threads are busy with files
+    executor = IngestionExecutor.newBuilder().threads(2).build();
+    var split = executor.fileTaskExecutor();
+    Function<Path, Callable<Integer>> factory =
+        p -> () -> CompletableFuture.supplyAsync(() -> 1, split).get(10, TimeUnit.SECONDS);
+
+    int sum = executor.foldCompleted(paths, factory, 0, Integer::sum);
+
+    assertThat(sum).isEqualTo(20);
+  }
+
+  @Test
+  public void fileTaskExecutor_fromOtherThreads() throws Exception {
+    executor = IngestionExecutor.newBuilder().threads(2).build();
+
+    var thread = CompletableFuture.supplyAsync(Thread::currentThread, executor.fileTaskExecutor());
+
+    assertThat(thread.get().getName()).startsWith("qwatch-ingestion-");
+  }
+
+  @Test
+  public void foldCompleted_maxInFlightFiles() throws Exception {
+    executor = IngestionExecutor.newBuilder().threads(8).maxInFlightFiles(3).build();
+    var tracker = new ConcurrencyTracker();
+    executor.foldCompleted(paths, tracker::task, 0, Integer::sum);
+    assertThat(tracker.max.get()).isBetween(1, 3);
+  }
+
+  @Test
+  public void foldCompleted_maxInFlightBytes() throws Exception {
+    // 250 bytes allow two files of 100 bytes at the same time
+    executor = IngestionExecutor.newBuilder().threads(8).maxInFlightBytes(250).build();
+    var tracker = new ConcurrencyTracker();
+    executor.foldCompleted(paths, tracker::task, 0, Integer::sum);
+    assertThat(tracker.max.get()).isBetween(1, 2);
+  }
+
+  @Test
+  public void foldCompleted_fileLargerThanLimit() throws Exception {
+    executor = IngestionExecutor.newBuilder().threads(2).maxInFlightBytes(10).build();
+    int sum = executor.foldCompleted(paths, p -> () -> 1, 0, Integer::sum);
+    assertThat(sum).isEqualTo(20);
+  }
+
+  @Test
+  public void foldCompleted_failure() {
+    executor = IngestionExecutor.newBuilder().threads(2).build();
+    Callable<Integer> failing =
+        () -> {
+          throw new IllegalStateException("boom");
+        };
+    assertThatThrownBy(() -> executor.foldCompleted(paths, p -> failing, 0, Integer::sum))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  private static class ConcurrencyTracker {
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicInteger max = new AtomicInteger();
+
+    private Callable<Integer> task(Path path) {
+      return () -> {
+        int n = current.incrementAndGet();
+        max.accumulateAndGet(n, Math::max);
+        Thread.sleep(10);
+        current.decrementAndGet();
+        return 1;
+      };
+    }
+  }
+}
@@ -8,7 +8,9 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.BuiltinLogPattern;
 import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.LogPatterns;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +63,55 @@ public class JsonImporterTest {
     assertThat(logEntries).hasSize(1).containsExactly(expectedEntry);
   }
 
+  @Test
+  public void importLogEntriesFromFile_persistedClassification() throws Exception {
+    // Given an entry classified as P01 by the current catalog version
+    var path = tempDir.newFile("log.2019-02-15.json").toPath();
+    var content =
+        "[{\n"
+            + "  \"date\" : \"2019-02-15T12:44:20.962Z\",\n"
+            + "  \"host\" : \"myHost\",\n"
+            + "  \"service\" : \"myService\",\n"
+            + "  \"status\" : \"error\",\n"
+            + "  \"message\" : \"Persisted\",\n"
+            + "  \"pattern\" : 1,\n"
+            + "  \"catalog\" : \""
+            + LogPatterns.registry().version()
+            + "\"\n"
+            + "}]";
+    Files.write(path, content.getBytes(UTF_8));
+
+    // When importing it
+    var entry = JsonImporter.importLogEntriesFromFile(path).get().single();
+
+    // Then the message is not matched again
+    assertThat(entry.optLogPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    assertThat(entry.catalogVersion()).isEqualTo(LogPatterns.registry().version());
+  }
+
+  @Test
+  public void importLogEntriesFromFile_outdatedClassification() throws Exception {
+    // Given an entry classified by an old catalog version
+    var path = tempDir.newFile("log.2019-02-15.json").toPath();
+    var content =
+        "[{\n"
+            + "  \"date\" : \"2019-02-15T12:44:20.962Z\",\n"
+            + "  \"host\" : \"myHost\",\n"
+            + "  \"service\" : \"myService\",\n"
+            + "  \"status\" : \"error\",\n"
+            + "  \"message\" : \"No such project foo\",\n"
+            + "  \"catalog\" : \"old\"\n"
+            + "}]";
+    Files.write(path, content.getBytes(UTF_8));
+
+    // When importing it
+    var entry = JsonImporter.importLogEntriesFromFile(path).get().single();
+
+    // Then the message is classified again
+    assertThat(entry.optLogPattern()).contains(BuiltinLogPattern.NO_SUCH_PROJECT);
+    assertThat(entry.catalogVersion()).isEqualTo(LogPatterns.registry().version());
+  }
+
   @Test
   public void importLogEntriesFromFile_notJson() {
     var nonexistent = tempDir.getRoot().toPath().resolve("nonexistent");
@@ -0,0 +1,82 @@
+package qwatch.logs.io;
+
+import io.vavr.collection.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class ManifestTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = tempDir.newFolder("dest").toPath();
+  }
+
+  @Test
+  public void read_missing() {
+    var manifest = Manifest.read(dir);
+    assertThat(manifest.get().get(LocalDate.of(2019, 2, 14)).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void read_invalid() throws Exception {
+    Files.write(dir.resolve(Manifest.FILENAME), "{\"days\":{\"2019-02-14\":{}}}".getBytes(UTF_8));
+    assertThat(Manifest.read(dir).getCause()).hasMessageContaining("2019-02-14");
+  }
+
+  @Test
+  public void writeThenRead() {
+    var day14 = LocalDate.of(2019, 2, 14);
+    var day15 = LocalDate.of(2019, 2, 15);
+    var manifest =
+        Manifest.empty()
+            .withDays(HashMap.of(day14, Manifest.Day.of(1, 1L), day15, Manifest.Day.of(2, -1L)))
+            .withDays(HashMap.of(day14, Manifest.Day.of(3, 0xcafeL)));
+
+    assertThat(manifest.write(dir).isSuccess()).isTrue();
+
+    var read = Manifest.read(dir).get();
+    assertThat(read.get(day14).get()).isEqualTo(Manifest.Day.of(3, 0xcafeL));
+    assertThat(read.get(day15).get()).isEqualTo(Manifest.Day.of(2, -1L));
+  }
+
+  @Test
+  public void digest() {
+    var d1 = new Manifest.Digest();
+    d1.add(entry("ab", "c"));
+    var d2 = new Manifest.Digest();
+    d2.add(entry("a", "bc"));
+    var d3 = new Manifest.Digest();
+    d3.add(entry("ab", "c"));
+
+    assertThat(d1.toDay()).isEqualTo(d3.toDay()).isNotEqualTo(d2.toDay());
+    assertThat(d1.toDay().count()).isEqualTo(1);
+  }
+
+  private static LogEntry entry(String host, String message) {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse("2019-02-14T12:00:00Z"))
+        .host(host)
+        .service("myService")
+        .status("error")
+        .message(message)
+        .build();
+  }
+}
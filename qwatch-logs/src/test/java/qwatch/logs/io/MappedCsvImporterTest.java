@@ -0,0 +1,97 @@
+package qwatch.logs.io;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class MappedCsvImporterTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path logPath;
+
+  @Before
+  public void setUp() throws Exception {
+    logPath = tempDir.newFile().toPath();
+    var lines = new ArrayList<String>();
+    lines.add("date,Host,Service,Status,message");
+    for (int i = 0; i < 100; i++) {
+      var ms = String.format("%03d", i);
+      var message = "Project p" + i + " not found.";
+      lines.add("2019-02-11T12:13:57." + ms + "Z,foo,myService,error," + message);
+      lines.add("2019-02-11T12:13:58." + ms + "Z,bar,myService,warn,\"Line 1, \"\"quoted\"\"");
+      lines.add("line 2");
+      lines.add("line 3\"");
+    }
+    Files.write(logPath, lines);
+  }
+
+  @Test
+  public void importLogEntriesFromFile_sameAsSequential() {
+    var expected = CsvImporter.importLogEntriesFromFile(logPath).get();
+    assertThat(expected).hasSize(200);
+
+    // Splits realigned inside quoted multi-line messages, or covering no record start
+    for (long splitSize : new long[] {7, 16, 50, 333, 1_000, 100_000}) {
+      var actual = MappedCsvImporter.importLogEntriesFromFile(logPath, splitSize).get();
+      assertThat(actual).as("split size %d", splitSize).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  public void split_wholeRecords() throws Exception {
+    long size = Files.size(logPath);
+    try (var channel = FileChannel.open(logPath)) {
+      for (long splitSize : new long[] {7, 50, 1_000, 100_000}) {
+        var chunks = new ArrayList<long[]>();
+        MappedCsvImporter.split(channel, splitSize, (s, e) -> chunks.add(new long[] {s, e}));
+
+        // Contiguous chunks covering the file, each ending with a record
+        long expectedStart = 0;
+        for (var chunk : chunks) {
+          assertThat(chunk[0]).as("split size %d", splitSize).isEqualTo(expectedStart);
+          var last = channel.map(FileChannel.MapMode.READ_ONLY, chunk[1] - 1, 1).get();
+          assertThat((char) last).isEqualTo('\n');
+          expectedStart = chunk[1];
+        }
+        assertThat(expectedStart).isEqualTo(size);
+      }
+    }
+  }
+
+  @Test
+  public void importLogEntriesFromFile_classified() {
+    var entries = MappedCsvImporter.importLogEntriesFromFile(logPath, 100).get();
+    assertThat(entries.head().summary()).isEqualTo("[P01] Project ${id} not found");
+    assertThat(entries.get(1).message()).isEqualTo("Line 1, \"quoted\"\nline 2\nline 3");
+  }
+
+  @Test
+  public void importLogEntriesFromFile_invalidRow() throws Exception {
+    var path = tempDir.newFile().toPath();
+    Files.write(path, List.of("date,Host,Service,Status,message", "oops,a,b,c,d"));
+
+    var result = MappedCsvImporter.importLogEntriesFromFile(path, 10);
+    assertThat(result.getLeft()).isEqualTo("Unable to parse CSV file: " + path);
+  }
+
+  @Test
+  public void importLogEntriesFromFile_missingHeader() throws Exception {
+    var path = tempDir.newFile().toPath();
+
+    var result = MappedCsvImporter.importLogEntriesFromFile(path);
+    assertThat(result.getLeft()).isEqualTo("Missing header in CSV file: " + path);
+  }
+}
@@ -0,0 +1,131 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class SegmentStoreTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path dir;
+  private SegmentStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = tempDir.newFolder("dest").toPath();
+    store = new SegmentStore(dir);
+    write(DayFileFormat.SEGMENT, "2019-02-13T10:00:00Z", "Project p1 not found.");
+    write(DayFileFormat.SEGMENT, "2019-02-14T10:00:00Z", "Project p2 not found.");
+    write(DayFileFormat.NDJSON_GZIP, "2019-02-15T10:00:00Z", "Queue is empty");
+  }
+
+  @Test
+  public void scan() {
+    var heads = new ArrayList<String>();
+    var patterns = new ArrayList<Boolean>();
+
+    var count =
+        store.scan(
+            LocalDate.of(2019, 2, 14),
+            SegmentColumn.summary(),
+            cursor -> {
+              heads.add(cursor.head());
+              patterns.add(cursor.logPattern().contains(BuiltinLogPattern.PROJECT_NOT_FOUND));
+            });
+
+    assertThat(count.get()).isEqualTo(2);
+    assertThat(heads).containsExactly("Project p2 not found.", "Queue is empty");
+    assertThat(patterns).containsExactly(true, false);
+  }
+
+  @Test
+  public void scan_materialized() {
+    var entries = new ArrayList<LogEntry>();
+
+    store.scan(LocalDate.of(2019, 2, 1), SegmentColumn.all(), c -> entries.add(c.entry()));
+
+    assertThat(entries)
+        .extracting(LogEntry::host)
+        .containsExactly("myHost", "myHost", "myHost");
+    assertThat(entries.get(0).dateTime()).isEqualTo(Timestamps.parse("2019-02-13T10:00:00Z"));
+  }
+
+  @Test
+  public void scan_invalidDayFileSkipped() throws Exception {
+    Files.write(dir.resolve("log.2019-02-16.seg"), "[]".getBytes(UTF_8));
+
+    var count = store.scan(LocalDate.of(2019, 2, 1), SegmentColumn.summary(), c -> {});
+
+    assertThat(count.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void scan_truncatedSegmentSkipped() throws Exception {
+    var segment = dir.resolve(DayFileFormat.SEGMENT.filename(LocalDate.of(2019, 2, 14)));
+    var bytes = Files.readAllBytes(segment);
+    Files.write(dir.resolve("log.2019-02-16.seg"), Arrays.copyOf(bytes, bytes.length - 1));
+
+    var count = store.scan(LocalDate.of(2019, 2, 1), SegmentColumn.summary(), c -> {});
+
+    assertThat(count.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void scan_oneFilePerDay() throws Exception {
+    write(DayFileFormat.NDJSON, "2019-02-14T10:00:00Z", "Project p2 not found.");
+    write(DayFileFormat.JSON, "2019-02-15T09:00:00Z", "Stale copy");
+    var ndjson = dir.resolve(DayFileFormat.NDJSON_GZIP.filename(LocalDate.of(2019, 2, 15)));
+    Files.setLastModifiedTime(ndjson, FileTime.from(Instant.now().plusSeconds(60)));
+    var heads = new ArrayList<String>();
+
+    var count =
+        store.scan(LocalDate.of(2019, 2, 1), SegmentColumn.summary(), c -> heads.add(c.head()));
+
+    assertThat(count.get()).isEqualTo(3);
+    assertThat(heads)
+        .containsExactly("Project p1 not found.", "Project p2 not found.", "Queue is empty");
+  }
+
+  @Test
+  public void scan_missingDir() {
+    var missing = new SegmentStore(dir.resolve("missing"));
+
+    assertThat(missing.scan(LocalDate.of(2019, 2, 1), SegmentColumn.summary(), c -> {}).isFailure())
+        .isTrue();
+  }
+
+  private void write(DayFileFormat format, String date, String message) throws IOException {
+    var dateTime = Timestamps.parse(date);
+    var path = dir.resolve(format.filename(dateTime.toLocalDate()));
+    try (var writer = format.newWriter(path)) {
+      writer.accept(
+          LogEntry.newBuilder()
+              .dateTime(dateTime)
+              .host("myHost")
+              .service("myService")
+              .status("error")
+              .message(message)
+              .build());
+    }
+  }
+}
@@ -0,0 +1,178 @@
+package qwatch.logs.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.Timestamps;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class SegmentTest {
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path dir;
+  private Path path;
+  private List<LogEntry> entries;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = tempDir.newFolder("dest").toPath();
+    path = dir.resolve("log.2019-02-14.seg");
+    entries =
+        List.of(
+            entry("2019-02-14T12:00:00.123456789Z", "host1", "Project p1 not found."),
+            entry("2019-02-14T11:00:00Z", "host2", "Boom\n\tat Foo.bar(Foo.java:1)"),
+            entry("2019-02-14T13:00:00Z", "host1", "Project p2 not found."));
+    try (var writer = new SegmentWriter(path)) {
+      for (var entry : entries) {
+        writer.accept(entry);
+      }
+    }
+  }
+
+  @Test
+  public void cursor_allColumns() throws Exception {
+    var segment = Segment.map(path);
+    var cursor = segment.cursor(SegmentColumn.all());
+
+    assertThat(segment.size()).isEqualTo(3);
+    assertThat(segment.catalogVersion()).isEqualTo(LogPatterns.registry().version());
+    assertThat(entries(cursor)).isEqualTo(entries);
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test
+  public void cursor_flyweight() throws Exception {
+    var cursor = Segment.map(path).cursor(SegmentColumn.all());
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.host()).isEqualTo("host2");
+    assertThat(cursor.head()).isEqualTo("Boom");
+    assertThat(cursor.message()).isEqualTo("Boom\n\tat Foo.bar(Foo.java:1)");
+    assertThat(cursor.logPattern()).isEmpty();
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.host()).isEqualTo("host1");
+    assertThat(cursor.logPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+  }
+
+  @Test
+  public void cursor_summaryColumns() throws Exception {
+    var cursor = Segment.map(path).cursor(SegmentColumn.summary());
+
+    assertThat(cursor.next()).isTrue();
+    var instant = entries.get(0).dateTime().toInstant();
+    assertThat(cursor.epochNanos() % 1_000_000_000L).isEqualTo(123_456_789);
+    assertThat(cursor.epochNanos() / 1_000_000_000L).isEqualTo(instant.getEpochSecond());
+    assertThat(cursor.logPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    var entry = cursor.entry();
+    assertThat(entry.dateTime()).isEqualTo(entries.get(0).dateTime());
+    assertThat(entry.host()).isEmpty();
+    assertThat(entry.optLogPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    assertThatThrownBy(cursor::host).isInstanceOf(IllegalStateException.class);
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.message()).isEqualTo("Boom");
+  }
+
+  @Test
+  public void cursor_missingTimestamp() throws Exception {
+    var cursor = Segment.map(path).cursor(EnumSet.of(SegmentColumn.BODY));
+
+    assertThat(cursor.next()).isTrue();
+    assertThatThrownBy(cursor::entry).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void cursor_persistedClassification() throws Exception {
+    var cursor = Segment.map(path).cursor(SegmentColumn.summary());
+    cursor.next();
+    var entry = cursor.entry();
+
+    assertThat(entry.patternId()).isEqualTo(BuiltinLogPattern.PROJECT_NOT_FOUND.id());
+    assertThat(entry.catalogVersion()).isEqualTo(LogPatterns.registry().version());
+  }
+
+  @Test
+  public void map_notSegment() throws Exception {
+    var json = dir.resolve("log.2019-02-15.seg");
+    Files.write(json, "[]".getBytes(UTF_8));
+
+    assertThatThrownBy(() -> Segment.map(json)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void map_truncated() throws Exception {
+    var bytes = Files.readAllBytes(path);
+    var truncated = dir.resolve("log.2019-02-16.seg");
+
+    for (int length = 0; length < bytes.length; length++) {
+      Files.write(truncated, Arrays.copyOf(bytes, length));
+      assertThatThrownBy(() -> entries(Segment.map(truncated).cursor(SegmentColumn.all())))
+          .as("truncated to %d bytes", length)
+          .isInstanceOfAny(IOException.class, UncheckedIOException.class);
+    }
+  }
+
+  @Test
+  public void cursor_corrupted() throws Exception {
+    var bytes = Files.readAllBytes(path);
+    var corrupted = dir.resolve("log.2019-02-16.seg");
+
+    for (int i = 0; i < bytes.length; i++) {
+      var copy = bytes.clone();
+      copy[i] = (byte) 0xFF;
+      Files.write(corrupted, copy);
+      // Either read, possibly with wrong values, or reported as corrupted
+      try {
+        entries(Segment.map(corrupted).cursor(SegmentColumn.all()));
+      } catch (IOException | UncheckedIOException e) {
+        assertThat(e).hasMessageContaining(corrupted.toString());
+      }
+    }
+  }
+
+  @Test
+  public void close_deletesColumnFiles() throws Exception {
+    try (var files = Files.list(dir)) {
+      assertThat(files).containsExactly(path);
+    }
+  }
+
+  private static List<LogEntry> entries(SegmentCursor cursor) {
+    var entries = new ArrayList<LogEntry>();
+    while (cursor.next()) {
+      entries.add(cursor.entry());
+    }
+    return entries;
+  }
+
+  private static LogEntry entry(String date, String host, String message) {
+    return LogEntry.newBuilder()
+        .dateTime(Timestamps.parse(date))
+        .host(host)
+        .service("myService")
+        .status("error")
+        .message(message)
+        .build();
+  }
+}
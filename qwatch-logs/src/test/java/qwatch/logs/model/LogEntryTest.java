@@ -3,6 +3,8 @@ package qwatch.logs.model;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import org.junit.Test;
+import qwatch.logs.util.LogPatterns;
+import qwatch.logs.util.ObjectMapperFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -12,6 +14,15 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class LogEntryTest {
 
+  private final LogEntry entry =
+      LogEntry.newBuilder()
+          .host("myHost")
+          .message("a\nb")
+          .status("error")
+          .service("myService")
+          .dateTime(LocalDateTime.of(2019, 1, 2, 3, 4, 5).atZone(ZoneId.of("Z")))
+          .build();
+
   @Test
   public void summary() {
     var e1 =
@@ -27,4 +38,56 @@ public class LogEntryTest {
     assertThat(e1.summary()).isEqualTo("[   ] a");
     assertThat(e2.summary()).isEqualTo("[P01] Project ${id} not found");
   }
+
+  @Test
+  public void equals_rawFieldsOnly() {
+    var persisted =
+        entry.toBuilder()
+            .persistedPatternId(1)
+            .persistedCatalogVersion(LogPatterns.registry().version())
+            .build();
+
+    assertThat(persisted.summary()).isEqualTo("[P01] Project ${id} not found");
+    assertThat(persisted).isEqualTo(entry).hasSameHashCodeAs(entry);
+  }
+
+  @Test
+  public void serialize_withoutClassification() throws Exception {
+    var misses = LogPatterns.registry().cache().misses();
+    var lazy = entry.toBuilder().message("serialize_withoutClassification").build();
+
+    var json = ObjectMapperFactory.newObjectMapper().writeValueAsString(lazy);
+
+    assertThat(json).doesNotContain("\"pattern\"").doesNotContain("\"catalog\"");
+    assertThat(LogPatterns.registry().cache().misses()).isEqualTo(misses);
+  }
+
+  @Test
+  public void serialize_persistedClassification() throws Exception {
+    var persisted = entry.toBuilder().persistedPatternId(1).persistedCatalogVersion("v1").build();
+
+    var json = ObjectMapperFactory.newObjectMapper().writeValueAsString(persisted);
+
+    assertThat(json).contains("\"pattern\" : 1").contains("\"catalog\" : \"v1\"");
+  }
+
+  @Test
+  public void build_canonicalFields() throws Exception {
+    var json = ObjectMapperFactory.newObjectMapper().writeValueAsString(entry);
+    var parsed = ObjectMapperFactory.newObjectMapper().readValue(json, LogEntry.class);
+    var built =
+        LogEntry.newBuilder()
+            .host(new String("myHost"))
+            .message("c")
+            .status(new String("error"))
+            .service(new String("myService"))
+            .dateTime(entry.dateTime())
+            .build();
+
+    assertThat(parsed.host()).isSameAs(entry.host());
+    assertThat(parsed.service()).isSameAs(entry.service());
+    assertThat(built.host()).isSameAs(entry.host());
+    assertThat(built.status()).isSameAs(entry.status());
+    assertThat(built.service()).isSameAs(entry.service());
+  }
 }
@@ -0,0 +1,30 @@
+package qwatch.logs.util;
+
+import java.util.BitSet;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class AhoCorasickTest {
+
+  @Test
+  public void scan() {
+    var automaton = AhoCorasick.of(new String[] {"he", "she", null, "his", "hers", "été"});
+
+    assertThat(scan(automaton, "ushers")).containsExactly(0, 1, 4);
+    assertThat(scan(automaton, "this")).containsExactly(3);
+    assertThat(scan(automaton, "un été")).containsExactly(5);
+    assertThat(scan(automaton, "nothing")).isEmpty();
+    assertThat(scan(automaton, "")).isEmpty();
+  }
+
+  private static int[] scan(AhoCorasick automaton, String text) {
+    var found = new BitSet();
+    automaton.scan(text, found);
+    return found.stream().toArray();
+  }
+}
@@ -53,6 +53,13 @@ public class BuiltinLogPatternTest {
     assertThat(expectedSize).isEqualTo(actualSize);
   }
 
+  @Test
+  public void pattern_compiledOnce() {
+    for (var p : BuiltinLogPattern.values()) {
+      assertThat(p.pattern()).isSameAs(p.pattern());
+    }
+  }
+
   @Test
   public void values() {
     String s;
@@ -0,0 +1,74 @@
+package qwatch.logs.util;
+
+import io.vavr.control.Option;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import qwatch.logs.model.Classification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class ClassificationCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Classification load(String head) {
+    loads.incrementAndGet();
+    return Classification.of(Option.none(), head, "v1");
+  }
+
+  @Test
+  public void get() {
+    var cache = new ClassificationCache(64);
+
+    var c1 = cache.get("a", this::load);
+    var c2 = cache.get("a", this::load);
+    cache.get("b", this::load);
+
+    assertThat(c1.summary()).isEqualTo("[   ] a");
+    assertThat(c2).isSameAs(c1);
+    assertThat(loads).hasValue(2);
+    assertThat(cache.hits()).isEqualTo(1);
+    assertThat(cache.misses()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_bounded() {
+    var cache = new ClassificationCache(64);
+    for (int i = 0; i < 10_000; i++) {
+      cache.get("head " + i, this::load);
+    }
+    assertThat(cache.size()).isLessThanOrEqualTo(64);
+  }
+
+  @Test
+  public void get_concurrently() throws Exception {
+    var cache = new ClassificationCache(1_024);
+    var pool = Executors.newFixedThreadPool(4);
+    var futures = new ArrayList<Future<?>>();
+    for (int t = 0; t < 4; t++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                for (int i = 0; i < 10_000; i++) {
+                  var head = "head " + (i % 100);
+                  assertThat(cache.get(head, this::load).summary()).isEqualTo("[   ] " + head);
+                }
+              }));
+    }
+    for (var f : futures) {
+      f.get(10, TimeUnit.SECONDS);
+    }
+    pool.shutdown();
+    assertThat(cache.hits() + cache.misses()).isEqualTo(40_000);
+    assertThat(cache.size()).isEqualTo(100);
+  }
+}
@@ -0,0 +1,55 @@
+package qwatch.logs.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class FieldDictionaryTest {
+
+  @Test
+  public void intern() {
+    var dictionary = new FieldDictionary(10);
+    var a = dictionary.intern(new String("a"));
+
+    assertThat(dictionary.intern(new String("a"))).isSameAs(a);
+    assertThat(dictionary.intern(null)).isNull();
+    assertThat(dictionary.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void code() {
+    var dictionary = new FieldDictionary(10);
+
+    assertThat(dictionary.code("a")).isEqualTo(0);
+    assertThat(dictionary.code("b")).isEqualTo(1);
+    assertThat(dictionary.code("a")).isEqualTo(0);
+    assertThat(dictionary.value(1)).isEqualTo("b");
+  }
+
+  @Test
+  public void code_growing() {
+    var dictionary = new FieldDictionary(100);
+    for (int i = 0; i < 100; i++) {
+      assertThat(dictionary.code("v" + i)).isEqualTo(i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertThat(dictionary.value(i)).isEqualTo("v" + i);
+    }
+  }
+
+  @Test
+  public void code_full() {
+    var dictionary = new FieldDictionary(2);
+    dictionary.code("a");
+    dictionary.code("b");
+    var c = new String("c");
+
+    assertThat(dictionary.code(c)).isEqualTo(FieldDictionary.NO_CODE);
+    assertThat(dictionary.intern(c)).isSameAs(c);
+    assertThat(dictionary.size()).isEqualTo(2);
+  }
+}
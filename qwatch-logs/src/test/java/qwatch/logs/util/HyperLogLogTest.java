@@ -0,0 +1,56 @@
+package qwatch.logs.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class HyperLogLogTest {
+
+  @Test
+  public void cardinality_empty() {
+    assertThat(new HyperLogLog().cardinality()).isEqualTo(0);
+  }
+
+  @Test
+  public void cardinality_small() {
+    var hll = new HyperLogLog();
+    for (int i = 0; i < 1_000; i++) {
+      hll.add("project-" + (i % 10));
+    }
+    assertThat(hll.cardinality()).isEqualTo(10);
+  }
+
+  @Test
+  public void cardinality_large() {
+    var hll = new HyperLogLog();
+    for (int i = 0; i < 100_000; i++) {
+      hll.add("project-" + i);
+    }
+    // Standard error is 1.6% for precision 12
+    assertThat((double) hll.cardinality()).isCloseTo(100_000, within(5_000.0));
+  }
+
+  @Test
+  public void merge() {
+    var a = new HyperLogLog();
+    var b = new HyperLogLog();
+    for (int i = 0; i < 20_000; i++) {
+      a.add("project-" + i);
+      b.add("project-" + (i + 10_000));
+    }
+    assertThat((double) a.merge(b).cardinality()).isCloseTo(30_000, within(1_500.0));
+  }
+
+  @Test
+  public void merge_precisionMismatch() {
+    assertThatThrownBy(() -> new HyperLogLog(10).merge(new HyperLogLog(12)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Precision mismatch: 10 != 12");
+  }
+}
@@ -0,0 +1,104 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static qwatch.logs.model.BuiltinLogPattern.REQUEST_ATTRIBUTE_RESPONSE_COMMITTED;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class LinearPatternMatcherTest {
+
+  private static final List<String> INPUTS =
+      List.of(
+          "",
+          "Project foo not found.",
+          "Project  not found.",
+          "Project foo not found",
+          "xProject foo not found.",
+          "Project a b not found.",
+          "a: Invalid ref name: HEAD",
+          "Invalid ref name",
+          "ERROR: Exception caught while accessing pack file xxx",
+          "remote=xxx,info=Unhandled error was caught by the Filter",
+          "/path/to/foo.git: refs/heads/master: Stream closed.",
+          "Stream closed.",
+          ": : Stream closed.",
+          "Unlocking LockFile '/path/to/gc.log.lock' failed",
+          "Unlocking LockFile 'gc.log.lock' failed",
+          "java.io.IOException: On requestURL: http://localhost",
+          "javaXioXIOException: On requestURL:",
+          "Service ticket [a] with service [b] does not match supplied service [c]",
+          "foo: Could not pull WIP branch x because it has WIP commit",
+          "foo: Could not pull WIP branch xy because it has WIP commit",
+          "Error executing FreeMarker template",
+          "Error executing FreeMarker template ",
+          "javax.transaction.RollbackException: Unable to commit/rollback",
+          "Killed handle: org.nuxeo.ecm.core.storage.sql.ra.ConnectionImpl@123");
+
+  @Test
+  public void compile_builtinPatterns() {
+    for (var p : BuiltinLogPattern.values()) {
+      var matcher = LinearPatternMatcher.compile(p.pattern());
+      if (p == REQUEST_ATTRIBUTE_RESPONSE_COMMITTED) {
+        assertThat(matcher).isEmpty();
+      } else {
+        assertThat(matcher).as(p.name()).isNotEmpty();
+      }
+    }
+  }
+
+  @Test
+  public void compile_unsupportedShapes() {
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("a|b"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("ab+"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("a.+"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("a\\.?"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("(ab)*"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("[ab]"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("\\d"))).isEmpty();
+    assertThat(LinearPatternMatcher.compile(Pattern.compile("(?:a)"))).isEmpty();
+  }
+
+  @Test
+  public void matches_sameAsRegex() {
+    for (var p : BuiltinLogPattern.values()) {
+      var optMatcher = LinearPatternMatcher.compile(p.pattern());
+      if (optMatcher.isEmpty()) {
+        continue;
+      }
+      for (var input : INPUTS) {
+        assertThat(optMatcher.get().matches(input))
+            .as("%s: '%s'", p.name(), input)
+            .isEqualTo(p.pattern().matcher(input).matches());
+      }
+    }
+  }
+
+  @Test
+  public void matches_customShapes() {
+    var regexes = List.of(".*", "a.*.*b", "^a(.)c$", "(.*)a(.*)a(.*)", "a.c.*", ".*x");
+    var inputs = List.of("", "a", "ab", "abc", "aXc", "axa", "aa", "ba", "x", "aaxb");
+    for (var regex : regexes) {
+      var pattern = Pattern.compile(regex);
+      var matcher = LinearPatternMatcher.compile(pattern).get();
+      for (var input : inputs) {
+        assertThat(matcher.matches(input))
+            .as("%s: '%s'", regex, input)
+            .isEqualTo(pattern.matcher(input).matches());
+      }
+    }
+  }
+
+  @Test(timeout = 5_000)
+  public void matches_longInput() {
+    var head = "x".repeat(1_000_000) + ": Stream closed";
+    var matcher = LinearPatternMatcher.compile(Pattern.compile("^(.*): (.*): Stream closed\\.$"));
+    assertThat(matcher.get().matches(head)).isFalse();
+  }
+}
@@ -0,0 +1,196 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogPattern;
+import qwatch.logs.model.LogPatternStats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static qwatch.logs.model.BuiltinLogPattern.FAILED_INIT_PROJECT;
+import static qwatch.logs.model.BuiltinLogPattern.INVALID_REF_NAME;
+import static qwatch.logs.model.BuiltinLogPattern.NO_SUCH_PROJECT;
+import static qwatch.logs.model.BuiltinLogPattern.PROJECT_NOT_FOUND;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class LogPatternRegistryTest {
+
+  @Test
+  public void builtin() {
+    var registry = LogPatternRegistry.builtin();
+    assertThat(registry.patterns()).containsExactly(BuiltinLogPattern.values());
+    assertThat(registry.find("Project foo not found.")).contains(PROJECT_NOT_FOUND);
+    assertThat(registry.find("No such project foo")).contains(NO_SUCH_PROJECT);
+    assertThat(registry.find("Unknown")).isEmpty();
+  }
+
+  @Test
+  public void find_firstMatchWins() {
+    var registry = LogPatternRegistry.of(List.of(NO_SUCH_PROJECT, PROJECT_NOT_FOUND));
+    assertThat(registry.find("Project foo not found.")).contains(PROJECT_NOT_FOUND);
+    assertThat(registry.find("No such project foo")).contains(NO_SUCH_PROJECT);
+  }
+
+  @Test
+  public void candidates() {
+    var registry = LogPatternRegistry.builtin();
+    var candidates = registry.candidates("java.lang.Exception: Invalid ref name: HEAD");
+    assertThat(candidates.get(INVALID_REF_NAME.ordinal())).isTrue();
+    assertThat(candidates.cardinality()).isLessThan(BuiltinLogPattern.values().length / 4);
+  }
+
+  @Test
+  public void find_sameAsSequentialEvaluation() {
+    var heads =
+        List.of(
+            "Project foo not found.",
+            "ERROR: Exception caught while accessing pack file xxx",
+            "remote=xxx,info=Unhandled error was caught by the Filter",
+            "/path/to/foo.git: refs/heads/master: Stream closed.",
+            "Unlocking LockFile '/path/to/gc.log.lock' failed",
+            "Request Attributes:",
+            "java.io.IOException: On requestURL: http://localhost",
+            "Killed handle: org.nuxeo.ecm.core.storage.sql.ra.ConnectionImpl@123",
+            "javax.transaction.RollbackException: Unable to commit/rollback",
+            "Something else");
+    for (var head : heads) {
+      Option<LogPattern> expected = Option.none();
+      for (var p : BuiltinLogPattern.values()) {
+        if (p.matches(head)) {
+          expected = Option.of(p);
+          break;
+        }
+      }
+      assertThat(LogPatternRegistry.builtin().find(head)).as(head).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void find_regexOnTruncatedHead() {
+    var registry =
+        LogPatternRegistry.newBuilder()
+            .patterns(List.of(BuiltinLogPattern.values()))
+            .linearMatching(false)
+            .maxHeadLength(30)
+            .build();
+    assertThat(registry.find("Project " + "x".repeat(100) + " not found.")).isEmpty();
+    assertThat(registry.find("Failed to initialize project " + "x".repeat(100))).isNotEmpty();
+  }
+
+  @Test
+  public void find_linearOnFullHead() {
+    var registry =
+        LogPatternRegistry.newBuilder()
+            .patterns(List.of(BuiltinLogPattern.values()))
+            .maxHeadLength(30)
+            .build();
+    var head = "Project " + "x".repeat(100) + " not found.";
+    assertThat(registry.find(head)).contains(PROJECT_NOT_FOUND);
+  }
+
+  @Test
+  public void find_overriddenMatches() {
+    var pattern = Pattern.compile("Request Attributes");
+    LogPattern findPattern =
+        new LogPattern() {
+          @Override
+          public int id() {
+            return 100;
+          }
+
+          @Override
+          public Pattern pattern() {
+            return pattern;
+          }
+
+          @Override
+          public String longMsg() {
+            return "Request Attributes";
+          }
+
+          @Override
+          public String shortMsg() {
+            return "Request Attributes";
+          }
+
+          @Override
+          public boolean matches(String s) {
+            return matcher(s).find();
+          }
+
+          @Override
+          public boolean linearMatchable() {
+            return false;
+          }
+        };
+    var registry = LogPatternRegistry.of(List.of(findPattern));
+
+    // the overridden method is used, although the pattern has a linear shape
+    assertThat(LinearPatternMatcher.compile(pattern)).isNotEmpty();
+    assertThat(registry.find("Error: Request Attributes:")).contains(findPattern);
+  }
+
+  @Test
+  public void match() {
+    var registry =
+        LogPatternRegistry.newBuilder()
+            .patterns(List.of(PROJECT_NOT_FOUND))
+            .maxHeadLength(30)
+            .build();
+
+    var matcher = registry.match(PROJECT_NOT_FOUND, "Project foo not found.");
+    assertThat(matcher.map(m -> m.group(1))).contains("foo");
+    // the regex matches the whole bounded head, as for classification
+    assertThat(registry.match(PROJECT_NOT_FOUND, "Error: Project foo not found.")).isEmpty();
+    assertThat(registry.match(PROJECT_NOT_FOUND, "Project " + "x".repeat(100) + " not found."))
+        .isEmpty();
+  }
+
+  @Test
+  public void stats() {
+    var registry = LogPatternRegistry.of(List.of(NO_SUCH_PROJECT, PROJECT_NOT_FOUND));
+    registry.find("Project foo not found.");
+    registry.find("Project bar not found.");
+    registry.find("Unknown");
+
+    assertThat(registry.stats())
+        .containsExactly(
+            LogPatternStats.of(NO_SUCH_PROJECT, 0, 0),
+            LogPatternStats.of(PROJECT_NOT_FOUND, 2, 2));
+  }
+
+  @Test
+  public void reorder() {
+    var registry =
+        LogPatternRegistry.newBuilder()
+            .patterns(List.of(NO_SUCH_PROJECT, PROJECT_NOT_FOUND, INVALID_REF_NAME))
+            .reorderInterval(2)
+            .build();
+    registry.find("Project foo not found.");
+    registry.find("Project bar not found.");
+
+    assertThat(registry.stats().map(LogPatternStats::logPattern))
+        .containsExactly(PROJECT_NOT_FOUND, NO_SUCH_PROJECT, INVALID_REF_NAME);
+  }
+
+  @Test
+  public void reorder_firstMatchSemanticsKept() {
+    // Both patterns match, but the first registered one must win after reordering
+    var registry =
+        LogPatternRegistry.newBuilder()
+            .patterns(List.of(FAILED_INIT_PROJECT, INVALID_REF_NAME))
+            .reorderInterval(1)
+            .build();
+    registry.find("a: Invalid ref name: HEAD");
+    registry.find("b: Invalid ref name: HEAD");
+    assertThat(registry.stats().head().logPattern()).isEqualTo(INVALID_REF_NAME);
+
+    var head = "Failed to initialize project: Invalid ref name: HEAD";
+    assertThat(registry.find(head)).contains(FAILED_INIT_PROJECT);
+  }
+}
@@ -1,6 +1,8 @@
 package qwatch.logs.util;
 
+import io.vavr.collection.List;
 import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -16,4 +18,50 @@ public class LogPatternsTest {
     assertThat(LogPatterns.head("1\r2")).isEqualTo("1");
     assertThat(LogPatterns.head("1\r\n2")).isEqualTo("1");
   }
+
+  @Test
+  public void install() {
+    var registry = LogPatternRegistry.of(List.of(BuiltinLogPattern.NO_SUCH_PROJECT));
+    var previous = LogPatterns.install(registry);
+    try {
+      assertThat(LogPatterns.registry()).isSameAs(registry);
+      assertThat(LogPatterns.classify("No such project foo").summary()).startsWith("[P06]");
+      assertThat(LogPatterns.classify("Project foo not found.").summary()).startsWith("[   ]");
+    } finally {
+      LogPatterns.install(previous);
+    }
+    assertThat(LogPatterns.classify("Project foo not found.").summary()).startsWith("[P01]");
+  }
+
+  @Test
+  public void classify_persistedPatternShared() {
+    var version = LogPatterns.registry().version();
+    var id = BuiltinLogPattern.PROJECT_NOT_FOUND.id();
+
+    var c1 = LogPatterns.classify("Project a not found.", id, version);
+    var c2 = LogPatterns.classify("Project b not found.", id, version);
+    var c3 = LogPatterns.classify("Project c not found.");
+
+    assertThat(c1).isSameAs(c2).isSameAs(c3);
+    assertThat(c1.optLogPattern()).contains(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    assertThat(c1.summary()).isEqualTo("[P01] Project ${id} not found");
+  }
+
+  @Test
+  public void classify_persistedUnmatchedCached() {
+    var registry = LogPatternRegistry.of(List.of(BuiltinLogPattern.PROJECT_NOT_FOUND));
+    var previous = LogPatterns.install(registry);
+    try {
+      // Not matched when persisted, so the patterns are not evaluated again
+      var c1 = LogPatterns.classify("Project a not found.\nat foo", null, registry.version());
+      var c2 = LogPatterns.classify("Project a not found.\nat bar", null, registry.version());
+
+      assertThat(c1).isSameAs(c2);
+      assertThat(c1.optLogPattern()).isEmpty();
+      assertThat(c1.summary()).isEqualTo("[   ] Project a not found.");
+      assertThat(registry.stats().single().attempts()).isZero();
+    } finally {
+      LogPatterns.install(previous);
+    }
+  }
 }
@@ -0,0 +1,80 @@
+package qwatch.logs.util;
+
+import io.vavr.Tuple;
+import io.vavr.collection.List;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogEntry;
+import qwatch.logs.model.ParameterSummary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class ParameterAnalyticsTest {
+
+  @Test
+  public void summaries() {
+    var analytics = new ParameterAnalytics();
+    analytics.add(newEntry("Project p1 not found.", 1));
+    analytics.add(newEntry("Project p2 not found.", 1));
+    analytics.add(newEntry("Project p1 not found.", 1));
+    analytics.add(newEntry("Unknown message", 1));
+
+    assertThat(analytics.summaries(1))
+        .containsExactly(
+            ParameterSummary.of(
+                BuiltinLogPattern.PROJECT_NOT_FOUND, 1, 3, 2, List.of(Tuple.of("p1", 2L))));
+  }
+
+  @Test
+  public void summaries_multipleGroups() {
+    var analytics = new ParameterAnalytics();
+    analytics.add(newEntry("foo: Invalid ref name: HEAD", 1));
+
+    var summaries = analytics.summaries(5);
+    assertThat(summaries.map(ParameterSummary::group)).containsExactly(1, 2);
+    assertThat(summaries.map(s -> s.topValues().head()._1)).containsExactly("foo: ", ": HEAD");
+  }
+
+  @Test
+  public void of_mergesDays() {
+    var entries =
+        List.of(
+            newEntry("Project p1 not found.", 1),
+            newEntry("Project p2 not found.", 2),
+            newEntry("Project p1 not found.", 3));
+
+    var summary = ParameterAnalytics.of(entries).summaries(5).single();
+    assertThat(summary.occurrences()).isEqualTo(3);
+    assertThat(summary.distinctValues()).isEqualTo(2);
+    assertThat(summary.topValues()).containsExactly(Tuple.of("p1", 2L), Tuple.of("p2", 1L));
+  }
+
+  @Test
+  public void merge() {
+    var a = new ParameterAnalytics();
+    var b = new ParameterAnalytics();
+    a.add(newEntry("Project p1 not found.", 1));
+    b.add(newEntry("Project p2 not found.", 2));
+    b.add(newEntry("No such project p3", 2));
+
+    var summaries = a.merge(b).summaries(5);
+    assertThat(summaries.map(s -> s.logPattern().id())).containsExactly(1, 6);
+    assertThat(summaries.head().occurrences()).isEqualTo(2);
+  }
+
+  private static LogEntry newEntry(String message, int day) {
+    return LogEntry.newBuilder()
+        .host("myHost")
+        .message(message)
+        .status("error")
+        .service("myService")
+        .dateTime(LocalDateTime.of(2019, 1, day, 3, 4, 5).atZone(ZoneId.of("Z")))
+        .build();
+  }
+}
@@ -0,0 +1,111 @@
+package qwatch.logs.util;
+
+import io.vavr.collection.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class PipelineTest {
+
+  @Test
+  public void run() {
+    var results = new ConcurrentLinkedQueue<Integer>();
+    var pipeline =
+        Pipeline.from(List.range(0, 1_000))
+            .<Integer>stage("double", 3, 4, (i, emitter) -> emitter.accept(2 * i))
+            .<Integer>stage(
+                "split",
+                2,
+                4,
+                (i, emitter) -> {
+                  emitter.accept(i);
+                  emitter.accept(i + 1);
+                })
+            .sink("collect", 2, results::add);
+
+    assertThat(pipeline.run().isSuccess()).isTrue();
+    assertThat(results).containsExactlyInAnyOrderElementsOf(List.range(0, 2_000));
+    assertThat(pipeline.stats().map(Pipeline.StageStats::items))
+        .containsExactly(1_000L, 1_000L, 2_000L);
+    assertThat(pipeline.stats().map(Pipeline.StageStats::name))
+        .containsExactly("double", "split", "collect");
+  }
+
+  @Test
+  public void run_emptySource() {
+    var pipeline =
+        Pipeline.from(List.<Integer>empty())
+            .<Integer>stage("identity", 2, 1, (i, emitter) -> emitter.accept(i))
+            .sink("ignore", 1, i -> {});
+    assertThat(pipeline.run().isSuccess()).isTrue();
+    assertThat(pipeline.stats().map(Pipeline.StageStats::items)).containsExactly(0L, 0L);
+  }
+
+  @Test
+  public void run_boundedQueue() {
+    // Given a fast producer and a slow consumer, connected by a queue of capacity 2
+    var produced = new AtomicInteger();
+    var consumed = new AtomicInteger();
+    var maxAhead = new AtomicInteger();
+    var pipeline =
+        Pipeline.from(List.range(0, 50))
+            .<Integer>stage(
+                "produce",
+                1,
+                2,
+                (i, emitter) -> {
+                  emitter.accept(i);
+                  int ahead = produced.incrementAndGet() - consumed.get();
+                  maxAhead.accumulateAndGet(ahead, Math::max);
+                })
+            .sink(
+                "consume",
+                1,
+                i -> {
+                  sleep(2);
+                  consumed.incrementAndGet();
+                });
+
+    // Then the producer never runs far ahead of the consumer
+    assertThat(pipeline.run().isSuccess()).isTrue();
+    assertThat(consumed.get()).isEqualTo(50);
+    assertThat(maxAhead.get()).isLessThanOrEqualTo(4); // queue + item being consumed + margin
+  }
+
+  @Test
+  public void run_failure() {
+    var pipeline =
+        Pipeline.from(List.range(0, 10_000))
+            .<Integer>stage(
+                "fail",
+                2,
+                2,
+                (i, emitter) -> {
+                  if (i == 100) {
+                    throw new IllegalArgumentException("Bad item: " + i);
+                  }
+                  emitter.accept(i);
+                })
+            .sink("slow", 1, i -> sleep(1));
+
+    var result = pipeline.run();
+    assertThat(result.isFailure()).isTrue();
+    assertThat(result.getCause())
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Bad item: 100");
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
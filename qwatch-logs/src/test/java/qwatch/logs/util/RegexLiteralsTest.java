@@ -0,0 +1,46 @@
+package qwatch.logs.util;
+
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class RegexLiteralsTest {
+
+  @Test
+  public void longestRequiredLiteral() {
+    assertThat(literal("^Project (.*) not found.$")).isEqualTo(" not found");
+    assertThat(literal("^(.*)Invalid ref name(.*)$")).isEqualTo("Invalid ref name");
+    assertThat(literal("^java.io.IOException: On requestURL:(.*)$"))
+        .isEqualTo("IOException: On requestURL:");
+    assertThat(literal("^(.*): (.*): Stream closed\\.$")).isEqualTo(": Stream closed.");
+    assertThat(literal("^Service ticket \\[(.*)] with service")).isEqualTo("Service ticket [");
+    assertThat(literal("^.*Unable to commit/rollback.*$")).isEqualTo("Unable to commit/rollback");
+  }
+
+  @Test
+  public void longestRequiredLiteral_optionalCharacters() {
+    assertThat(literal("abcdef?")).isEqualTo("abcde");
+    assertThat(literal("abc+def")).isEqualTo("def");
+    assertThat(literal("abcd{2,3}ef")).isEqualTo("abc");
+    assertThat(literal("ab[cde]fgh")).isEqualTo("fgh");
+    assertThat(literal("(abcdef)?gh")).isEqualTo("gh");
+  }
+
+  @Test
+  public void longestRequiredLiteral_unsupported() {
+    assertThat(literal("abc|def")).isNull();
+    assertThat(literal("\\d+ items")).isNull();
+    assertThat(literal("(?i)abc")).isNull();
+    assertThat(RegexLiterals.longestRequiredLiteral(Pattern.compile("abc", Pattern.CASE_INSENSITIVE)))
+        .isEmpty();
+  }
+
+  private static String literal(String regex) {
+    return RegexLiterals.longestRequiredLiteral(Pattern.compile(regex)).getOrNull();
+  }
+}
@@ -0,0 +1,67 @@
+package qwatch.logs.util;
+
+import io.vavr.Tuple;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class SpaceSavingTest {
+
+  @Test
+  public void top_exact() {
+    var sketch = new SpaceSaving(10);
+    sketch.add("a");
+    sketch.add("b");
+    sketch.add("a");
+    sketch.add("c");
+    sketch.add("a");
+    sketch.add("b");
+
+    assertThat(sketch.top(2)).containsExactly(Tuple.of("a", 3L), Tuple.of("b", 2L));
+  }
+
+  @Test
+  public void top_heavyHittersKept() {
+    var sketch = new SpaceSaving(10);
+    for (int i = 0; i < 10_000; i++) {
+      sketch.add(i % 3 == 0 ? "heavy" : "light-" + i);
+    }
+    var top = sketch.top(1).head();
+    assertThat(top._1).isEqualTo("heavy");
+    // Count is an upper bound of the actual count
+    assertThat(top._2).isGreaterThanOrEqualTo(3_334L);
+  }
+
+  @Test
+  public void merge() {
+    var a = new SpaceSaving(4);
+    var b = new SpaceSaving(4);
+    for (int i = 0; i < 100; i++) {
+      a.add("x");
+      b.add("y");
+      if (i % 2 == 0) {
+        a.add("y");
+      }
+    }
+    assertThat(a.merge(b).top(2)).containsExactly(Tuple.of("y", 150L), Tuple.of("x", 100L));
+  }
+
+  @Test
+  public void merge_capacityKept() {
+    var a = new SpaceSaving(2);
+    var b = new SpaceSaving(2);
+    a.add("a");
+    a.add("b");
+    b.add("c");
+    b.add("c");
+    b.add("d");
+
+    var top = a.merge(b).top(10);
+    assertThat(top).hasSize(2);
+    assertThat(top.head()._1).isEqualTo("c");
+  }
+}
@@ -0,0 +1,46 @@
+package qwatch.logs.util;
+
+import org.junit.Test;
+import qwatch.logs.model.BuiltinLogPattern;
+import qwatch.logs.model.LogSummary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class SummaryAggregatorTest {
+
+  @Test
+  public void top() {
+    var aggregator = new SummaryAggregator();
+    aggregator.addMatched(BuiltinLogPattern.PROJECT_NOT_FOUND);
+    aggregator.addUnmatched("Connection to host-a closed by peer");
+    aggregator.addUnmatched("Connection to host-b closed by peer");
+
+    assertThat(aggregator.top(5))
+        .containsExactly(
+            LogSummary.of(2, "[   ] Connection to <*> closed by peer"),
+            LogSummary.of(1, "[P01] Project ${id} not found"));
+  }
+
+  @Test
+  public void top_pastMaxClusters() {
+    var aggregator = new SummaryAggregator(new TemplateMiner(4, 0.5, 100, 1));
+    aggregator.addUnmatched("Queue is full");
+
+    // Heads fitting no cluster are counted by a bounded sketch
+    for (int i = 0; i < 10_000; i++) {
+      aggregator.addUnmatched("Disk " + (char) ('a' + i % 26) + i % 1_000 + " is full");
+    }
+    for (int i = 0; i < 500; i++) {
+      aggregator.addUnmatched("Disk quota exceeded");
+    }
+
+    var top = aggregator.top(1).single();
+    assertThat(top.description()).isEqualTo("[   ] Disk quota exceeded");
+    assertThat(top.count()).isGreaterThanOrEqualTo(500);
+    assertThat(aggregator.top(100_000)).hasSize(1 + SpaceSaving.DEFAULT_CAPACITY);
+  }
+}
@@ -50,4 +50,38 @@ public class SummaryExtractorTest {
     var summaries = extractor.top(2);
     assertThat(summaries).containsExactly(LogSummary.of(2, "[   ] a"), LogSummary.of(1, "[   ] b"));
   }
+
+  @Test
+  public void top_unmatchedGroupedByTemplate() {
+    var e1 = newEntry("Request 1 timed out");
+    var e2 = newEntry("Request 2 timed out");
+    var e3 = newEntry("Request 3 timed out");
+    var e4 = newEntry("Queue is empty");
+    var extractor = new SummaryExtractor(HashSet.of(e1, e2, e3, e4));
+
+    assertThat(extractor.top(10))
+        .containsExactly(
+            LogSummary.of(3, "[   ] Request <*> timed out"),
+            LogSummary.of(1, "[   ] Queue is empty"));
+  }
+
+  @Test
+  public void candidatePatterns() {
+    var e1 = newEntry("Connection to host-a closed");
+    var e2 = newEntry("Connection to host-b closed");
+    var e3 = newEntry("Queue is empty");
+    var extractor = new SummaryExtractor(HashSet.of(e1, e2, e3));
+
+    assertThat(extractor.candidatePatterns(10)).containsExactly("^Connection to (.*) closed$");
+  }
+
+  private static LogEntry newEntry(String message) {
+    return LogEntry.newBuilder()
+        .host("myHost")
+        .message(message)
+        .status("error")
+        .service("myService")
+        .dateTime(LocalDateTime.of(2019, 1, 2, 3, 4, 5).atZone(ZoneId.of("Z")))
+        .build();
+  }
 }
@@ -0,0 +1,129 @@
+package qwatch.logs.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class TemplateMinerTest {
+
+  @Test
+  public void add_sameTemplate() {
+    var miner = new TemplateMiner();
+    var c1 = miner.add("Connection to host-a closed by peer").get();
+    var c2 = miner.add("Connection to host-b closed by peer").get();
+
+    assertThat(c2).isSameAs(c1);
+    assertThat(c1.size()).isEqualTo(2);
+    assertThat(c1.template()).isEqualTo("Connection to <*> closed by peer");
+  }
+
+  @Test
+  public void add_digitsAreVariables() {
+    var miner = new TemplateMiner();
+    var cluster = miner.add("Build 123 failed after 45s").get();
+
+    assertThat(cluster.template()).isEqualTo("Build <*> failed after <*>");
+  }
+
+  @Test
+  public void add_differentTemplates() {
+    var miner = new TemplateMiner();
+    var c1 = miner.add("User alice logged in").get();
+    var c2 = miner.add("Disk quota exceeded for volume").get();
+    var c3 = miner.add("Queue is full, retrying later").get();
+
+    assertThat(c1).isNotSameAs(c2);
+    assertThat(c2).isNotSameAs(c3);
+    assertThat(miner.clusters()).hasSize(3);
+  }
+
+  @Test
+  public void add_belowSimilarity() {
+    var miner = new TemplateMiner();
+    var c1 = miner.add("Cannot open file a.txt: permission denied").get();
+    var c2 = miner.add("Cannot open stream b: connection reset").get();
+
+    assertThat(c2).isNotSameAs(c1);
+  }
+
+  @Test
+  public void add_maxClusters() {
+    var miner = new TemplateMiner(4, 0.5, 100, 2);
+    assertThat(miner.add("a").isDefined()).isTrue();
+    assertThat(miner.add("b").isDefined()).isTrue();
+    assertThat(miner.add("c").isDefined()).isFalse();
+    assertThat(miner.add("a").isDefined()).isTrue();
+  }
+
+  @Test
+  public void add_maxChildren() {
+    var miner = new TemplateMiner(4, 0.5, 2, 100);
+    miner.add("alpha failed");
+    miner.add("beta failed");
+    var c1 = miner.add("gamma failed").get();
+    var c2 = miner.add("delta failed").get();
+
+    // Both go to the wildcard child and share the same cluster
+    assertThat(c2).isSameAs(c1);
+    assertThat(c1.template()).isEqualTo("<*> failed");
+  }
+
+  @Test
+  public void clusters_bySize() {
+    var miner = new TemplateMiner();
+    miner.add("Job 1 started");
+    miner.add("Job 2 started");
+    miner.add("Queue is empty");
+
+    assertThat(miner.clusters().map(TemplateMiner.Cluster::template))
+        .containsExactly("Job <*> started", "Queue is empty");
+  }
+
+  @Test
+  public void toRegex() {
+    var miner = new TemplateMiner();
+    var heads = new String[] {"Invalid ref (a.b) in [x]", "Invalid ref (c.d) in [x]"};
+    miner.add(heads[0]);
+    var cluster = miner.add(heads[1]).get();
+
+    assertThat(cluster.toRegex()).isEqualTo("^Invalid ref (.*) in \\[x\\]$");
+    for (var head : heads) {
+      assertThat(Pattern.compile(cluster.toRegex()).matcher(head).find()).isTrue();
+    }
+  }
+
+  @Test
+  public void add_concurrently() throws Exception {
+    var miner = new TemplateMiner();
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1_000; i++) {
+                    miner.add("Request " + i + " timed out");
+                  }
+                }));
+      }
+      for (var f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    var clusters = miner.clusters();
+    assertThat(clusters).hasSize(1);
+    assertThat(clusters.head().size()).isEqualTo(4_000);
+    assertThat(clusters.head().template()).isEqualTo("Request <*> timed out");
+  }
+}
@@ -0,0 +1,75 @@
+package qwatch.logs.util;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the parsing of Datadog timestamps by {@link Timestamps} and by the generic parser.
+ *
+ * <p>Run it with the test classpath, e.g. from the IDE, using the main method.
+ *
+ * @author Mincong Huang
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class TimestampsBenchmark {
+
+  private String[] timestamps;
+
+  @Setup
+  public void setUp() {
+    // Realistic timestamps of a Datadog extract: milliseconds precision, varying values
+    timestamps = new String[1024];
+    var start = ZonedDateTime.of(2019, 2, 11, 0, 0, 0, 0, ZoneId.of("UTC"));
+    for (int i = 0; i < timestamps.length; i++) {
+      var d = start.plusSeconds(i * 7919L).plusNanos((i * 131L % 1000) * 1_000_000);
+      timestamps[i] = String.format("%tFT%<tT.%<tLZ", d);
+    }
+  }
+
+  @Benchmark
+  public void generic(Blackhole bh) {
+    for (var t : timestamps) {
+      bh.consume(ZonedDateTime.parse(t).withZoneSameLocal(ZoneId.of("UTC")));
+    }
+  }
+
+  @Benchmark
+  public void timestamps(Blackhole bh) {
+    for (var t : timestamps) {
+      bh.consume(Timestamps.parse(t));
+    }
+  }
+
+  @Benchmark
+  public void timestampsEpochMilli(Blackhole bh) {
+    for (var t : timestamps) {
+      bh.consume(Timestamps.parseEpochMilli(t));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    var options = new OptionsBuilder().include(TimestampsBenchmark.class.getSimpleName()).build();
+    new Runner(options).run();
+  }
+}
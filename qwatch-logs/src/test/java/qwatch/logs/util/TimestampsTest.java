@@ -0,0 +1,64 @@
+package qwatch.logs.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Mincong Huang
+ * @since 1.0
+ */
+public class TimestampsTest {
+
+  private static final ZoneId UTC = ZoneId.of("UTC");
+
+  private static final String[] TIMESTAMPS = {
+    "2019-02-11T12:13:57.916Z",
+    "2019-02-11T12:13:57Z",
+    "2019-02-11T12:13:57.9Z",
+    "2019-02-11T12:13:57.123456789Z",
+    "2020-02-29T23:59:59.999Z",
+    "1969-12-31T23:59:59.500Z",
+    "2019-02-11T12:13:57.916+01:00",
+    "2019-02-11T12:13:57.916+01:00[Europe/Paris]"
+  };
+
+  @Test
+  public void parse() {
+    assertThat(Timestamps.parse("2019-02-11T12:13:57.916Z"))
+        .isEqualTo(LocalDateTime.of(2019, 2, 11, 12, 13, 57, 916_000_000).atZone(UTC));
+  }
+
+  @Test
+  public void parse_sameAsGeneric() {
+    for (var t : TIMESTAMPS) {
+      var expected = ZonedDateTime.parse(t).withZoneSameLocal(UTC);
+      assertThat(Timestamps.parse(t)).as(t).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void parseEpochMilli_sameAsGeneric() {
+    for (var t : TIMESTAMPS) {
+      var expected = ZonedDateTime.parse(t).withZoneSameLocal(UTC).toInstant().toEpochMilli();
+      assertThat(Timestamps.parseEpochMilli(t)).as(t).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void parse_invalid() {
+    for (var t : new String[] {"2019-13-11T12:13:57.916Z", "2019-02-30T12:13:57Z", "foo", ""}) {
+      assertThatThrownBy(() -> Timestamps.parse(t))
+          .as(t)
+          .isInstanceOf(DateTimeParseException.class);
+      assertThatThrownBy(() -> Timestamps.parseEpochMilli(t))
+          .as(t)
+          .isInstanceOf(DateTimeParseException.class);
+    }
+  }
+}